@@ -0,0 +1,52 @@
+package com.pinyourword.william.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations to the other instances of the API.
+ * A region is a named cache (or a family of entries of one); keys are opaque strings
+ * without line breaks. Each instance still invalidates its own entries itself.
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Ask every other instance to drop {@code keys} from {@code region}.
+     * Inside a transaction the message is sent when it commits and dropped on rollback.
+     */
+    void publish(String region, Collection<String> keys);
+
+    /**
+     * Ask every other instance to drop everything in {@code region}; sent like {@link #publish}
+     */
+    void publishInvalidateAll(String region);
+
+    /**
+     * Register the local handler of a region's invalidations
+     */
+    void subscribe(String region, Handler handler);
+
+    interface Handler {
+
+        void invalidate(Collection<String> keys);
+
+        /**
+         * Called when invalidations may have been missed (e.g. the bus reconnected)
+         */
+        void invalidateAll();
+
+        static Handler of(Consumer<Collection<String>> invalidate, Runnable invalidateAll) {
+            return new Handler() {
+                @Override
+                public void invalidate(Collection<String> keys) {
+                    invalidate.accept(keys);
+                }
+
+                @Override
+                public void invalidateAll() {
+                    invalidateAll.run();
+                }
+            };
+        }
+    }
+}
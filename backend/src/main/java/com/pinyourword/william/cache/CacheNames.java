@@ -0,0 +1,31 @@
+package com.pinyourword.william.cache;
+
+import java.util.List;
+
+/**
+ * Names of the Spring caches (see CacheConfig) and of the other regions on the invalidation bus
+ */
+public final class CacheNames {
+
+    // AuthService.getCurrentUser, by user id
+    public static final String CURRENT_USERS = "currentUsers";
+    // UserService.getCurrentUserProfile, by user id
+    public static final String USER_PROFILES = "userProfiles";
+    // UserService.getUserProfileByUsername, by user id
+    public static final String PUBLIC_PROFILES = "publicProfiles";
+    // UserService.getUserProfileByUsername, user id by username
+    public static final String USER_IDS = "userIds";
+
+    public static final List<String> ALL = List.of(CURRENT_USERS, USER_PROFILES, PUBLIC_PROFILES, USER_IDS);
+
+    // Bus-only regions of the in-memory caches
+    public static final String FEED_HEADS = "feedHeads";
+    public static final String FEED_ACTIVITIES = "feedActivities";
+    public static final String PIN_TILES = "pinTiles";
+    public static final String LIKED_ACTIVITIES = "likedActivities";
+    // Not a cache: TokenRevocationList entries
+    public static final String TOKEN_REVOCATIONS = "tokenRevocations";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,269 @@
+package com.pinyourword.william.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pinyourword.william.dto.response.FeedItemResponse;
+import com.pinyourword.william.event.PinChangedEvent;
+import com.pinyourword.william.event.UserChangedEvent;
+import com.pinyourword.william.repository.projection.FeedEntryView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-memory caches for the first page of the feed, both bounded with Caffeine's W-TinyLFU
+ * so a burst of one-off readers does not flush the hot users.
+ * <ul>
+ *   <li>heads: per user, the newest {@code app.feed.cache.head-size} user_feeds entries.
+ *   Fan-out writes new entries through to the heads that are cached; anything else that
+ *   changes a feed evicts its head.</li>
+ *   <li>activities: hydrated feed items shared by every reader, keyed by activity id.
+ *   Only the viewer-independent part is cached; likes and seen are set per request.
+ *   Like and comment counts can lag by up to {@code app.feed.cache.activity-ttl-seconds}.
+ *   Cached ids are indexed by pin and by actor, so a change evicts exactly their items.</li>
+ * </ul>
+ * Hit/miss counts are published as the {@code cache.*} meters of feed.heads and feed.activities.
+ * <p>
+ * Other instances are told over the {@link CacheInvalidationBus}: heads written through here
+ * are evicted there, and item evictions are broadcast as "pin:id" and "user:id" keys.
+ */
+@Component
+public class FeedCache {
+
+    private static final Comparator<FeedEntryView> NEWEST_FIRST = Comparator
+            .comparing(FeedEntryView::getFeedTimestamp)
+            .thenComparing(FeedEntryView::getActivityId)
+            .reversed();
+
+    private static final String PIN_KEY = "pin:";
+    private static final String USER_KEY = "user:";
+
+    private final CacheInvalidationBus bus;
+    private final int headSize;
+    private final Cache<Long, List<FeedEntryView>> heads;
+    private final Cache<Long, CachedActivity> activities;
+    private final Map<Long, Set<Long>> activitiesByPin = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> activitiesByActor = new ConcurrentHashMap<>();
+
+    public FeedCache(CacheInvalidationBus bus,
+                     MeterRegistry meterRegistry,
+                     @Value("${app.feed.cache.head-size:50}") int headSize,
+                     @Value("${app.feed.cache.max-users:10000}") long maxUsers,
+                     @Value("${app.feed.cache.head-ttl-seconds:600}") long headTtlSeconds,
+                     @Value("${app.feed.cache.max-activities:50000}") long maxActivities,
+                     @Value("${app.feed.cache.activity-ttl-seconds:30}") long activityTtlSeconds) {
+        this.bus = bus;
+        this.headSize = headSize;
+        this.heads = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(headTtlSeconds))
+                .recordStats()
+                .build();
+        this.activities = Caffeine.newBuilder()
+                .maximumSize(maxActivities)
+                .expireAfterWrite(Duration.ofSeconds(activityTtlSeconds))
+                .executor(Runnable::run)
+                .<Long, CachedActivity>removalListener((activityId, activity, cause) -> unindex(activityId, activity))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, heads, "feed.heads");
+        CaffeineCacheMetrics.monitor(meterRegistry, activities, "feed.activities");
+        bus.subscribe(CacheNames.FEED_HEADS, CacheInvalidationBus.Handler.of(
+                userIds -> userIds.forEach(userId -> heads.invalidate(Long.valueOf(userId))),
+                heads::invalidateAll));
+        bus.subscribe(CacheNames.FEED_ACTIVITIES, CacheInvalidationBus.Handler.of(
+                keys -> keys.forEach(this::evictActivities),
+                this::clearActivities));
+    }
+
+    /**
+     * Whether a first page of {@code limit} entries can be served from a head
+     */
+    public boolean coversFirstPage(int limit) {
+        return limit <= headSize;
+    }
+
+    /**
+     * The newest entries of a user's feed, newest first
+     * @param loader reads up to {@code limit} entries from user_feeds on a miss
+     */
+    public List<FeedEntryView> getHead(Long userId, int limit, HeadLoader loader) {
+        List<FeedEntryView> head = heads.get(userId, id -> List.copyOf(loader.load(id, headSize).stream()
+                .map(FeedEntry::of)
+                .toList()));
+        return head.size() > limit ? head.subList(0, limit) : head;
+    }
+
+    /**
+     * Write a new feed entry through to the cached heads of the given users
+     */
+    public void addToHeads(Collection<Long> userIds, FeedEntryView entry) {
+        FeedEntry cached = FeedEntry.of(entry);
+        for (Long userId : userIds) {
+            heads.asMap().computeIfPresent(userId, (id, head) -> insert(head, cached));
+        }
+        bus.publish(CacheNames.FEED_HEADS, userIds.stream().map(String::valueOf).toList());
+    }
+
+    public void evictHead(Long userId) {
+        heads.invalidate(userId);
+        bus.publish(CacheNames.FEED_HEADS, List.of(String.valueOf(userId)));
+    }
+
+    /**
+     * Hydrated activities by id; ids missing from the result no longer exist
+     * @param loader hydrates the activities that are not cached, in one batch
+     */
+    public Map<Long, CachedActivity> getActivities(Collection<Long> activityIds,
+                                                   Function<Set<? extends Long>, Map<Long, CachedActivity>> loader) {
+        Map<Long, CachedActivity> found = activities.getAll(activityIds, loader);
+        // Indexed once cached, so a concurrent removal of an older copy cannot drop the new ids
+        found.forEach(this::index);
+        return found;
+    }
+
+    /**
+     * Cached items embed the pin, so a pin update or delete evicts its activities
+     */
+    @TransactionalEventListener
+    public void onPinChanged(PinChangedEvent event) {
+        if (!event.isCreated()) {
+            evictActivities(PIN_KEY + event.before().id());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void broadcastPinChanged(PinChangedEvent event) {
+        if (!event.isCreated()) {
+            bus.publish(CacheNames.FEED_ACTIVITIES, List.of(PIN_KEY + event.before().id()));
+        }
+    }
+
+    /**
+     * Cached items embed the actor, so a profile change or account deletion evicts their activities
+     */
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        evictActivities(USER_KEY + event.userId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void broadcastUserChanged(UserChangedEvent event) {
+        bus.publish(CacheNames.FEED_ACTIVITIES, List.of(USER_KEY + event.userId()));
+    }
+
+    private void evictActivities(String key) {
+        Set<Long> activityIds = null;
+        if (key.startsWith(PIN_KEY)) {
+            activityIds = activitiesByPin.remove(Long.valueOf(key.substring(PIN_KEY.length())));
+        } else if (key.startsWith(USER_KEY)) {
+            activityIds = activitiesByActor.remove(Long.valueOf(key.substring(USER_KEY.length())));
+        }
+        if (activityIds != null) {
+            activities.invalidateAll(activityIds);
+        }
+    }
+
+    private void clearActivities() {
+        activities.invalidateAll();
+        activitiesByPin.clear();
+        activitiesByActor.clear();
+    }
+
+    private void index(Long activityId, CachedActivity activity) {
+        if (activity.pinId() != null) {
+            activitiesByPin.computeIfAbsent(activity.pinId(), id -> ConcurrentHashMap.newKeySet()).add(activityId);
+        }
+        if (activity.actorId() != null) {
+            activitiesByActor.computeIfAbsent(activity.actorId(), id -> ConcurrentHashMap.newKeySet()).add(activityId);
+        }
+    }
+
+    private void unindex(Long activityId, CachedActivity activity) {
+        if (activityId == null || activity == null) {
+            return;
+        }
+        unindex(activitiesByPin, activity.pinId(), activityId);
+        unindex(activitiesByActor, activity.actorId(), activityId);
+    }
+
+    private void unindex(Map<Long, Set<Long>> index, Long ownerId, Long activityId) {
+        if (ownerId == null) {
+            return;
+        }
+        // Keep the id when the activity was cached again in the meantime
+        index.computeIfPresent(ownerId, (id, activityIds) -> {
+            if (!activities.asMap().containsKey(activityId)) {
+                activityIds.remove(activityId);
+            }
+            return activityIds.isEmpty() ? null : activityIds;
+        });
+    }
+
+    private List<FeedEntryView> insert(List<FeedEntryView> head, FeedEntry entry) {
+        if (head.stream().anyMatch(existing -> existing.getActivityId().equals(entry.getActivityId()))) {
+            return head;
+        }
+        // A full head only holds the newest entries: an older one is not part of it
+        if (head.size() >= headSize && NEWEST_FIRST.compare(entry, head.get(head.size() - 1)) > 0) {
+            return head;
+        }
+        List<FeedEntryView> updated = new ArrayList<>(head.size() + 1);
+        updated.addAll(head);
+        updated.add(entry);
+        updated.sort(NEWEST_FIRST);
+        return List.copyOf(updated.size() > headSize ? updated.subList(0, headSize) : updated);
+    }
+
+    @FunctionalInterface
+    public interface HeadLoader {
+        List<? extends FeedEntryView> load(Long userId, int limit);
+    }
+
+    /**
+     * Detached copy of a user_feeds row
+     */
+    record FeedEntry(Long activityId, Instant feedTimestamp, Boolean seen) implements FeedEntryView {
+
+        static FeedEntry of(FeedEntryView view) {
+            return view instanceof FeedEntry entry
+                    ? entry
+                    : new FeedEntry(view.getActivityId(), view.getFeedTimestamp(), view.getSeen());
+        }
+
+        @Override
+        public Long getActivityId() {
+            return activityId;
+        }
+
+        @Override
+        public Instant getFeedTimestamp() {
+            return feedTimestamp;
+        }
+
+        @Override
+        public Boolean getSeen() {
+            return seen;
+        }
+    }
+
+    /**
+     * A hydrated feed item with the ids it is invalidated by
+     */
+    public record CachedActivity(Long actorId, Long pinId, FeedItemResponse item) {
+    }
+}
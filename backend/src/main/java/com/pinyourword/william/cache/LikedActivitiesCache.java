@@ -0,0 +1,134 @@
+package com.pinyourword.william.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pinyourword.william.repository.ActivityLikeRepository;
+import com.pinyourword.william.util.TransactionCallbacks;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Per-user set of liked activity ids, so the feed can tell which items the viewer liked
+ * without a query.
+ * <p>
+ * A set holds the user's likes on the newest activities: up to {@code app.likes.cache.ids-per-user}
+ * ids, as a sorted {@code long[]}, plus the lowest activity id it is exact from. Only older
+ * activities (rare in a feed) still go to activity_likes. Likes and unlikes are written through
+ * after commit and broadcast so other instances drop their copy.
+ */
+@Component
+public class LikedActivitiesCache {
+
+    private final ActivityLikeRepository activityLikeRepository;
+    private final CacheInvalidationBus bus;
+    private final int idsPerUser;
+    private final Cache<Long, LikedSet> sets;
+
+    public LikedActivitiesCache(ActivityLikeRepository activityLikeRepository,
+                                CacheInvalidationBus bus,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.likes.cache.ids-per-user:500}") int idsPerUser,
+                                @Value("${app.likes.cache.max-ids:2000000}") long maxIds,
+                                @Value("${app.likes.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.activityLikeRepository = activityLikeRepository;
+        this.bus = bus;
+        this.idsPerUser = idsPerUser;
+        this.sets = Caffeine.newBuilder()
+                .maximumWeight(maxIds)
+                .<Long, LikedSet>weigher((userId, set) -> set.ids().length + 1)
+                .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sets, "likes.liked");
+        bus.subscribe(CacheNames.LIKED_ACTIVITIES, CacheInvalidationBus.Handler.of(
+                userIds -> userIds.forEach(userId -> sets.invalidate(Long.valueOf(userId))),
+                sets::invalidateAll));
+    }
+
+    /**
+     * Which of the given activities the user has liked
+     */
+    public Set<Long> likedAmong(Long userId, Collection<Long> activityIds) {
+        LikedSet set = sets.get(userId, this::load);
+        Set<Long> liked = new HashSet<>();
+        List<Long> uncovered = new ArrayList<>();
+        for (Long activityId : activityIds) {
+            if (!set.covers(activityId)) {
+                uncovered.add(activityId);
+            } else if (set.contains(activityId)) {
+                liked.add(activityId);
+            }
+        }
+        if (!uncovered.isEmpty()) {
+            liked.addAll(activityLikeRepository.findLikedActivityIds(userId, uncovered));
+        }
+        return liked;
+    }
+
+    /**
+     * Record a like or unlike once the current transaction commits
+     */
+    public void update(Long userId, Long activityId, boolean liked) {
+        TransactionCallbacks.afterCommit(() ->
+                sets.asMap().computeIfPresent(userId, (id, set) -> set.with(activityId, liked, idsPerUser)));
+        bus.publish(CacheNames.LIKED_ACTIVITIES, List.of(String.valueOf(userId)));
+    }
+
+    private LikedSet load(Long userId) {
+        List<Long> recent = activityLikeRepository.findRecentLikedActivityIds(userId, idsPerUser);
+        long[] ids = recent.stream().mapToLong(Long::longValue).sorted().toArray();
+        // Fewer likes than the limit: the set is complete
+        long floor = ids.length < idsPerUser ? 0 : ids[0];
+        return new LikedSet(ids, floor);
+    }
+
+    /**
+     * Liked activity ids in ascending order; exact for activity ids >= floor
+     */
+    record LikedSet(long[] ids, long floor) {
+
+        boolean covers(long activityId) {
+            return activityId >= floor;
+        }
+
+        boolean contains(long activityId) {
+            return Arrays.binarySearch(ids, activityId) >= 0;
+        }
+
+        LikedSet with(long activityId, boolean liked, int capacity) {
+            if (!covers(activityId)) {
+                return this;
+            }
+            int index = Arrays.binarySearch(ids, activityId);
+            if (liked == index >= 0) {
+                return this;
+            }
+            if (!liked) {
+                long[] updated = new long[ids.length - 1];
+                System.arraycopy(ids, 0, updated, 0, index);
+                System.arraycopy(ids, index + 1, updated, index, ids.length - index - 1);
+                return new LikedSet(updated, floor);
+            }
+            int insertAt = -index - 1;
+            long[] updated = new long[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, insertAt);
+            updated[insertAt] = activityId;
+            System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+            if (updated.length <= capacity) {
+                return new LikedSet(updated, floor);
+            }
+            // Drop the oldest like; the set is now exact only above it
+            return new LikedSet(Arrays.copyOfRange(updated, 1, updated.length), updated[0] + 1);
+        }
+    }
+}
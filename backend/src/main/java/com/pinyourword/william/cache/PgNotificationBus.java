@@ -0,0 +1,203 @@
+package com.pinyourword.william.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache invalidation over PostgreSQL LISTEN/NOTIFY, so instances stay consistent without
+ * any service besides the database.
+ * <p>
+ * Messages are sent with pg_notify on the caller's connection: inside a transaction
+ * PostgreSQL only delivers them at commit, and never after a rollback. They are received on
+ * a dedicated connection, outside the pool, by a single listener thread that reconnects with
+ * backoff. Messages sent while it was disconnected are lost, so every region is fully
+ * invalidated after each (re)connection.
+ * <p>
+ * A message is {@code node\nregion\nkey\nkey...}, or {@code node\nregion} to drop the whole
+ * region; an instance ignores its own messages.
+ * Key lists are split to stay under the 8000 byte payload limit.
+ */
+@Component
+@Slf4j
+public class PgNotificationBus implements CacheInvalidationBus, SmartLifecycle {
+
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean enabled;
+    private final String channel;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int pollTimeoutMs;
+    private final long maxBackoffMs;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PgNotificationBus(JdbcTemplate jdbcTemplate,
+                             @Value("${app.cache.bus.enabled:true}") boolean enabled,
+                             @Value("${app.cache.bus.channel:cache_invalidation}") String channel,
+                             @Value("${spring.datasource.url}") String url,
+                             @Value("${spring.datasource.username}") String username,
+                             @Value("${spring.datasource.password}") String password,
+                             @Value("${app.cache.bus.poll-timeout-ms:500}") int pollTimeoutMs,
+                             @Value("${app.cache.bus.max-backoff-ms:30000}") long maxBackoffMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Override
+    public void publish(String region, Collection<String> keys) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        String header = nodeId + "\n" + region;
+        StringBuilder payload = new StringBuilder(header);
+        int bytes = header.length();
+        for (String key : keys) {
+            int keyBytes = key.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + keyBytes > MAX_PAYLOAD_BYTES && payload.length() > header.length()) {
+                notify(payload.toString());
+                payload.setLength(header.length());
+                bytes = header.length();
+            }
+            payload.append('\n').append(key);
+            bytes += keyBytes;
+        }
+        notify(payload.toString());
+    }
+
+    @Override
+    public void publishInvalidateAll(String region) {
+        if (enabled) {
+            notify(nodeId + "\n" + region);
+        }
+    }
+
+    @Override
+    public void subscribe(String region, Handler handler) {
+        handlers.put(region, handler);
+    }
+
+    private void notify(String payload) {
+        // Runs on the transaction's connection when there is one, so it is sent on commit
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", (RowCallbackHandler) rs -> {
+        }, channel, payload);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-bus");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        long backoffMs = 500;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.info("Listening for cache invalidations on channel {}", channel);
+                backoffMs = 500;
+                handlers.values().forEach(this::invalidateAllQuietly);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        Arrays.stream(notifications).forEach(notification -> dispatch(notification.getParameter()));
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener disconnected, retrying in {}ms: {}", backoffMs, ex.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines.length < 2 || nodeId.equals(lines[0])) {
+            return;
+        }
+        Handler handler = handlers.get(lines[1]);
+        if (handler == null) {
+            return;
+        }
+        if (lines.length == 2) {
+            invalidateAllQuietly(handler);
+            return;
+        }
+        List<String> keys = new ArrayList<>(Arrays.asList(lines).subList(2, lines.length));
+        try {
+            handler.invalidate(keys);
+        } catch (RuntimeException ex) {
+            log.warn("Invalidation of {} failed: {}", lines[1], ex.getMessage());
+        }
+    }
+
+    private void invalidateAllQuietly(Handler handler) {
+        try {
+            handler.invalidateAll();
+        } catch (RuntimeException ex) {
+            log.warn("Cache flush failed: {}", ex.getMessage());
+        }
+    }
+}
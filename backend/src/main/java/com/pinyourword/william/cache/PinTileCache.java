@@ -0,0 +1,311 @@
+package com.pinyourword.william.cache;
+
+import com.pinyourword.william.dto.request.PinScope;
+import com.pinyourword.william.dto.response.TileResponse;
+import com.pinyourword.william.event.FollowChangedEvent;
+import com.pinyourword.william.event.PinChangedEvent;
+import com.pinyourword.william.event.PinSnapshot;
+import com.pinyourword.william.event.UserChangedEvent;
+import com.pinyourword.william.util.GeoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded LRU of encoded pin tiles keyed by (scope, viewer, z, x, y), each kept for
+ * at most app.map.tiles.ttl-ms.
+ * A secondary index by tile coordinate lets a pin write evict every cached
+ * variant of the tiles it falls in, one lookup per zoom level. Changes of who may see pins
+ * evict by viewer instead: a follow or unfollow drops the follower's tiles, and a profile
+ * visibility change or account deletion drops every tile that shows other users' pins.
+ * Pin writes are broadcast as "lat,lon" keys, follows as "viewer:id" and audience changes as
+ * "audience", so the other instances evict the same tiles.
+ * <p>
+ * A tile read from the database while one of its evictions runs may predate the change; fills
+ * carry the {@link #fillStamp} taken before the read and are dropped if an eviction that could
+ * concern the tile happened since.
+ */
+@Component
+@Slf4j
+public class PinTileCache {
+
+    private static final String VIEWER_PREFIX = "viewer:";
+    private static final String AUDIENCE = "audience";
+    // Eviction generations of tiles are striped by tile id, so the counters stay bounded
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final int maxEntries;
+    private final int maxZoom;
+    private final double bufferFraction;
+    private final long ttlMs;
+
+    private final LinkedHashMap<TileKey, Entry> tiles;
+    private final Map<Long, Set<TileKey>> variantsByTile = new HashMap<>();
+    private final Map<Long, Set<TileKey>> variantsByViewer = new HashMap<>();
+    private final long[] tileGenerations = new long[GENERATION_STRIPES];
+    private long audienceGeneration;
+
+    private final CacheInvalidationBus bus;
+
+    public PinTileCache(CacheInvalidationBus bus,
+                        @Value("${app.map.tiles.cache-size:2048}") int maxEntries,
+                        @Value("${app.map.tiles.max-zoom:22}") int maxZoom,
+                        @Value("${app.map.tiles.extent:4096}") int extent,
+                        @Value("${app.map.tiles.buffer:64}") int buffer,
+                        @Value("${app.map.tiles.ttl-ms:300000}") long ttlMs) {
+        this.bus = bus;
+        this.maxEntries = maxEntries;
+        this.maxZoom = maxZoom;
+        this.bufferFraction = (double) buffer / extent;
+        this.ttlMs = ttlMs;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, Entry> eldest) {
+                if (size() > PinTileCache.this.maxEntries) {
+                    unindex(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        bus.subscribe(CacheNames.PIN_TILES, CacheInvalidationBus.Handler.of(this::applyMessages, this::clear));
+    }
+
+    public synchronized TileResponse get(TileKey key) {
+        Entry entry = tiles.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            tiles.remove(key);
+            unindex(key);
+            return null;
+        }
+        return entry.tile();
+    }
+
+    /**
+     * Stamp to take before reading a tile from the database and pass to {@link #put}
+     */
+    public synchronized long fillStamp(TileKey key) {
+        return tileGenerations[stripe(key.tileId())] + audienceGeneration;
+    }
+
+    /**
+     * Cache a tile, unless the tile or its audience was evicted since {@code stamp} was taken
+     */
+    public synchronized void put(TileKey key, TileResponse tile, long stamp) {
+        // Both generations only grow, so an unchanged sum means neither moved
+        if (fillStamp(key) != stamp) {
+            return;
+        }
+        if (tiles.put(key, new Entry(tile, System.currentTimeMillis() + ttlMs)) == null) {
+            variantsByTile.computeIfAbsent(key.tileId(), id -> new HashSet<>()).add(key);
+            if (key.viewerId() != null) {
+                variantsByViewer.computeIfAbsent(key.viewerId(), id -> new HashSet<>()).add(key);
+            }
+        }
+    }
+
+    public synchronized void evictTile(int z, int x, int y) {
+        if (x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            return;
+        }
+        long tileId = tileId(z, x, y);
+        tileGenerations[stripe(tileId)]++;
+        Set<TileKey> variants = variantsByTile.remove(tileId);
+        if (variants != null) {
+            for (TileKey key : variants) {
+                tiles.remove(key);
+                unindexViewer(key);
+            }
+        }
+    }
+
+    /**
+     * Evict every tile variant computed for one viewer
+     */
+    public synchronized void evictViewer(Long viewerId) {
+        audienceGeneration++;
+        Set<TileKey> variants = variantsByViewer.remove(viewerId);
+        if (variants != null) {
+            for (TileKey key : variants) {
+                tiles.remove(key);
+                unindexTile(key);
+            }
+        }
+    }
+
+    /**
+     * Evict every tile that shows pins of users other than the viewer
+     */
+    public synchronized void evictOthersPins() {
+        audienceGeneration++;
+        tiles.keySet().removeIf(key -> {
+            if (PinScope.SELF.getValue().equals(key.scope())) {
+                return false;
+            }
+            unindex(key);
+            return true;
+        });
+    }
+
+    public synchronized void clear() {
+        audienceGeneration++;
+        tiles.clear();
+        variantsByTile.clear();
+        variantsByViewer.clear();
+    }
+
+    @TransactionalEventListener
+    public void onPinChanged(PinChangedEvent event) {
+        evictPoint(event.before());
+        evictPoint(event.after());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void broadcastPinChanged(PinChangedEvent event) {
+        List<String> points = Stream.of(event.before(), event.after())
+                .filter(Objects::nonNull)
+                .map(pin -> pin.latitude() + "," + pin.longitude())
+                .toList();
+        bus.publish(CacheNames.PIN_TILES, points);
+    }
+
+    @TransactionalEventListener
+    public void onFollowChanged(FollowChangedEvent event) {
+        evictViewer(event.followerId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void broadcastFollowChanged(FollowChangedEvent event) {
+        bus.publish(CacheNames.PIN_TILES, List.of(VIEWER_PREFIX + event.followerId()));
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.audienceChanged()) {
+            evictOthersPins();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void broadcastUserChanged(UserChangedEvent event) {
+        if (event.audienceChanged()) {
+            bus.publish(CacheNames.PIN_TILES, List.of(AUDIENCE));
+        }
+    }
+
+    private void applyMessages(Collection<String> keys) {
+        for (String key : keys) {
+            if (AUDIENCE.equals(key)) {
+                evictOthersPins();
+            } else if (key.startsWith(VIEWER_PREFIX)) {
+                evictViewer(Long.valueOf(key.substring(VIEWER_PREFIX.length())));
+            } else {
+                int comma = key.indexOf(',');
+                evictPoint(Double.parseDouble(key.substring(0, comma)), Double.parseDouble(key.substring(comma + 1)));
+            }
+        }
+    }
+
+    /**
+     * Evict the tile holding a point at every zoom level, plus the neighbouring
+     * tiles whose render buffer reaches the point
+     */
+    private void evictPoint(PinSnapshot pin) {
+        if (pin != null) {
+            evictPoint(pin.latitude(), pin.longitude());
+        }
+    }
+
+    private void evictPoint(double latitude, double longitude) {
+        for (int z = 0; z <= maxZoom; z++) {
+            double fx = GeoUtils.tileX(longitude, z);
+            double fy = GeoUtils.tileY(latitude, z);
+            int x = (int) fx;
+            int y = (int) fy;
+            int dx = neighbourOffset(fx - x);
+            int dy = neighbourOffset(fy - y);
+            evictTile(z, x, y);
+            if (dx != 0) {
+                evictTile(z, x + dx, y);
+            }
+            if (dy != 0) {
+                evictTile(z, x, y + dy);
+            }
+            if (dx != 0 && dy != 0) {
+                evictTile(z, x + dx, y + dy);
+            }
+        }
+    }
+
+    private int neighbourOffset(double fraction) {
+        if (fraction < bufferFraction) {
+            return -1;
+        }
+        if (fraction > 1 - bufferFraction) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private void unindex(TileKey key) {
+        unindexTile(key);
+        unindexViewer(key);
+    }
+
+    private void unindexTile(TileKey key) {
+        removeVariant(variantsByTile, key.tileId(), key);
+    }
+
+    private void unindexViewer(TileKey key) {
+        if (key.viewerId() != null) {
+            removeVariant(variantsByViewer, key.viewerId(), key);
+        }
+    }
+
+    private static void removeVariant(Map<Long, Set<TileKey>> index, Long indexKey, TileKey key) {
+        Set<TileKey> variants = index.get(indexKey);
+        if (variants != null) {
+            variants.remove(key);
+            if (variants.isEmpty()) {
+                index.remove(indexKey);
+            }
+        }
+    }
+
+    private static long tileId(int z, int x, int y) {
+        // z <= 22 fits in 5 bits, x and y < 2^22 fit in 29 bits each
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+
+    private static int stripe(long tileId) {
+        return (int) ((tileId ^ (tileId >>> 29) ^ (tileId >>> 58)) & (GENERATION_STRIPES - 1));
+    }
+
+    private record Entry(TileResponse tile, long expiresAt) {
+    }
+
+    /**
+     * Cache key of one tile variant; viewerId is null for tiles shared by every viewer
+     */
+    public record TileKey(String scope, Long viewerId, int z, int x, int y) {
+
+        long tileId() {
+            return PinTileCache.tileId(z, x, y);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.pinyourword.william.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Shared cache tier on a Redis-compatible server.
+ * Entries are JSON under {@code <prefix><cache>::<key>} and expire after {@code ttl}.
+ * An unreachable server only costs the lookups: errors are logged and treated as misses.
+ */
+@Slf4j
+public class RedisSharedTier implements TwoLevelCache.SharedTier {
+
+    private final RedisCacheWriter writer;
+    private final RedisSerializer<Object> serializer;
+    private final String prefix;
+    private final Duration ttl;
+
+    public RedisSharedTier(RedisCacheWriter writer, RedisSerializer<Object> serializer, String prefix, Duration ttl) {
+        this.writer = writer;
+        this.serializer = serializer;
+        this.prefix = prefix;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public Object get(String cacheName, String key) {
+        try {
+            byte[] value = writer.get(cacheName, redisKey(cacheName, key));
+            return value == null ? null : serializer.deserialize(value);
+        } catch (RuntimeException ex) {
+            log.warn("Shared cache read of {}::{} failed: {}", cacheName, key, ex.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String cacheName, String key, Object value) {
+        try {
+            writer.put(cacheName, redisKey(cacheName, key), serializer.serialize(value), ttl);
+        } catch (RuntimeException ex) {
+            log.warn("Shared cache write of {}::{} failed: {}", cacheName, key, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(String cacheName, String key) {
+        try {
+            writer.remove(cacheName, redisKey(cacheName, key));
+        } catch (RuntimeException ex) {
+            // The entry still expires after ttl
+            log.warn("Shared cache eviction of {}::{} failed: {}", cacheName, key, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        try {
+            writer.clean(cacheName, redisKey(cacheName, "*"));
+        } catch (RuntimeException ex) {
+            log.warn("Shared cache clear of {} failed: {}", cacheName, ex.getMessage());
+        }
+    }
+
+    private byte[] redisKey(String cacheName, String key) {
+        return (prefix + cacheName + "::" + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
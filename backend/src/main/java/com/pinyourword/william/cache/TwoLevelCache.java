@@ -0,0 +1,158 @@
+package com.pinyourword.william.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.pinyourword.william.util.TransactionCallbacks;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Spring cache backed by a local Caffeine near cache and an optional shared tier.
+ * <p>
+ * Reads go near cache, then shared tier, then the loader; a value found further down is
+ * copied up. Evictions are broadcast on the {@link CacheInvalidationBus} so every instance
+ * drops its near copy. The shared copy is dropped before the broadcast goes out, so an
+ * instance receiving it cannot copy the old value back from the shared tier. When an eviction
+ * happens inside a transaction, the local and shared copies are dropped again once it
+ * commits: a concurrent reader can load the old row again before the new one is visible.
+ * Receivers drop the shared copy too, covering a reader that put the old row back between
+ * the commit and the writer's second eviction.
+ * <p>
+ * Keys are stored as strings, the form they travel in on the bus. Null values are not cached.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache implements CacheInvalidationBus.Handler {
+
+    private final String name;
+    private final Cache<String, Object> local;
+    private final SharedTier shared;
+    private final CacheInvalidationBus bus;
+
+    /**
+     * @param shared null for a near cache only
+     */
+    public TwoLevelCache(String name, Cache<String, Object> local, SharedTier shared, CacheInvalidationBus bus) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.shared = shared;
+        this.bus = bus;
+        bus.subscribe(name, this);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String cacheKey = String.valueOf(key);
+        Object value = local.getIfPresent(cacheKey);
+        if (value == null && shared != null) {
+            value = shared.get(name, cacheKey);
+            if (value != null) {
+                local.put(cacheKey, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) local.get(String.valueOf(key), cacheKey -> {
+            Object value = shared == null ? null : shared.get(name, cacheKey);
+            if (value == null) {
+                value = load(key, valueLoader);
+                if (value != null && shared != null) {
+                    shared.put(name, cacheKey, value);
+                }
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        String cacheKey = String.valueOf(key);
+        local.put(cacheKey, value);
+        if (shared != null) {
+            shared.put(name, cacheKey, value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        String cacheKey = String.valueOf(key);
+        evictShared(cacheKey);
+        TransactionCallbacks.afterCommit(() -> {
+            local.invalidate(cacheKey);
+            evictShared(cacheKey);
+        });
+        bus.publish(name, List.of(cacheKey));
+    }
+
+    /**
+     * Clears this instance and the shared tier, and tells the other instances to clear
+     * their near caches
+     */
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (shared != null) {
+            shared.clear(name);
+        }
+        bus.publishInvalidateAll(name);
+    }
+
+    @Override
+    public void invalidate(Collection<String> keys) {
+        local.invalidateAll(keys);
+        keys.forEach(this::evictShared);
+    }
+
+    @Override
+    public void invalidateAll() {
+        local.invalidateAll();
+    }
+
+    private void evictShared(String cacheKey) {
+        if (shared != null) {
+            shared.evict(name, cacheKey);
+        }
+    }
+
+    private <T> T load(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+    }
+
+    /**
+     * Cache shared by every instance, e.g. Redis. Implementations treat the tier as
+     * optional: failures behave like misses.
+     */
+    public interface SharedTier {
+
+        Object get(String cacheName, String key);
+
+        void put(String cacheName, String key, Object value);
+
+        void evict(String cacheName, String key);
+
+        void clear(String cacheName);
+    }
+}
@@ -0,0 +1,50 @@
+package com.pinyourword.william.cache;
+
+import com.pinyourword.william.event.PinChangedEvent;
+import com.pinyourword.william.event.UserChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts the cached views of a user when it changes.
+ * Runs before commit so the invalidation is broadcast with the transaction (see TwoLevelCache).
+ * The views are cached by user id, so the ids carried by the events are all it needs.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCacheEvictor {
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onUserChanged(UserChangedEvent event) {
+        evictViews(event.userId());
+        // Only a deleted account frees its username; usernames cannot be changed
+        evict(CacheNames.USER_IDS, event.username());
+    }
+
+    /**
+     * Pin writes update the visited and pin counters shown on the profile
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onPinChanged(PinChangedEvent event) {
+        evictViews(event.userId());
+    }
+
+    private void evictViews(Long userId) {
+        evict(CacheNames.CURRENT_USERS, userId);
+        evict(CacheNames.USER_PROFILES, userId);
+        evict(CacheNames.PUBLIC_PROFILES, userId);
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
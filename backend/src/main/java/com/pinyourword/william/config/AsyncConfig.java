@@ -0,0 +1,95 @@
+package com.pinyourword.william.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded executors for work that must not run on servlet request threads,
+ * and scheduling for the background pollers that feed them
+ */
+@Configuration
+@EnableAsync(proxyTargetClass = true)
+@EnableScheduling
+public class AsyncConfig {
+
+    /**
+     * Starts media uploads and records their outcome. The S3 transfers themselves are
+     * non-blocking, so a small pool is enough; when it is saturated the caller runs the task.
+     */
+    @Bean(name = "mediaTaskExecutor")
+    public ThreadPoolTaskExecutor mediaTaskExecutor(
+            @Value("${app.media.executor.pool-size:4}") int poolSize,
+            @Value("${app.media.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Decodes and resizes images for media jobs. CPU and memory heavy, so it is kept small;
+     * the poller never claims more jobs than there are workers, so the queue stays short.
+     */
+    @Bean(name = "mediaJobExecutor")
+    public ThreadPoolTaskExecutor mediaJobExecutor(
+            @Value("${app.media.jobs.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("media-job-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Pushes activities into followers' feeds after the activity is committed, and checks
+     * milestones after pin writes
+     */
+    @Bean(name = "feedTaskExecutor")
+    public ThreadPoolTaskExecutor feedTaskExecutor(
+            @Value("${app.feed.executor.pool-size:2}") int poolSize,
+            @Value("${app.feed.executor.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("feed-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Hashes and checks passwords. BCrypt is pure CPU, so there is one worker per core and a
+     * short queue; when both are full a sign-in fails fast instead of waiting behind the burst.
+     */
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor(
+            @Value("${app.security.password.workers:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int workers,
+            @Value("${app.security.password.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,87 @@
+package com.pinyourword.william.config;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pinyourword.william.cache.CacheInvalidationBus;
+import com.pinyourword.william.cache.CacheNames;
+import com.pinyourword.william.cache.RedisSharedTier;
+import com.pinyourword.william.cache.TwoLevelCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two-level caches for hot reads: a Caffeine near cache per instance, plus a shared tier
+ * when {@code app.cache.l2=redis}. Instances invalidate each other's near caches over
+ * PostgreSQL LISTEN/NOTIFY, so the default setup needs nothing besides the database.
+ */
+@Configuration
+@EnableCaching
+@Slf4j
+public class CacheConfig {
+
+    private static final String L2_REDIS = "redis";
+
+    @Bean
+    public CacheManager cacheManager(CacheInvalidationBus bus,
+                                     MeterRegistry meterRegistry,
+                                     ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                     ObjectMapper objectMapper,
+                                     @Value("${app.cache.l2:none}") String l2,
+                                     @Value("${app.cache.local.max-size:10000}") long localMaxSize,
+                                     @Value("${app.cache.local.ttl-seconds:60}") long localTtlSeconds,
+                                     @Value("${app.cache.redis.ttl-seconds:600}") long redisTtlSeconds,
+                                     @Value("${app.cache.redis.key-prefix:pyw:}") String redisKeyPrefix) {
+        TwoLevelCache.SharedTier shared = null;
+        if (L2_REDIS.equalsIgnoreCase(l2)) {
+            shared = new RedisSharedTier(
+                    RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory.getObject()),
+                    redisSerializer(objectMapper),
+                    redisKeyPrefix,
+                    Duration.ofSeconds(redisTtlSeconds));
+            log.info("Shared cache tier: redis");
+        }
+
+        List<TwoLevelCache> caches = new ArrayList<>();
+        for (String name : CacheNames.ALL) {
+            // The near cache expires sooner, which bounds staleness if an invalidation is lost
+            Cache<String, Object> local = Caffeine.newBuilder()
+                    .maximumSize(localMaxSize)
+                    .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, local, name);
+            caches.add(new TwoLevelCache(name, local, shared, bus));
+        }
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+
+    /**
+     * JSON with the class name in each value, so entries can be read back without knowing
+     * the cache's value type
+     */
+    private GenericJackson2JsonRedisSerializer redisSerializer(ObjectMapper objectMapper) {
+        ObjectMapper mapper = objectMapper.copy();
+        mapper.activateDefaultTyping(mapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
+}
@@ -0,0 +1,31 @@
+package com.pinyourword.william.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Page size limits shared by every paginated endpoint (app.pagination.*)
+ */
+@Component
+@Getter
+public class PaginationProperties {
+
+    @Value("${app.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    /**
+     * Resolve the page size requested by a client
+     * @param requested size from the query string, may be null
+     * @return default size when missing, otherwise clamped to [1, max-page-size]
+     */
+    public int resolve(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
@@ -0,0 +1,83 @@
+package com.pinyourword.william.config;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+
+@Configuration
+@ConditionalOnProperty(name = "app.media.storage", havingValue = "s3", matchIfMissing = true)
+public class S3Config {
+
+    @Value("${app.aws.s3.region}")
+    private String region;
+
+    @Value("${app.aws.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.aws.s3.secret-key:}")
+    private String secretKey;
+
+    // Set to point at MinIO or another S3-compatible server
+    @Value("${app.aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.aws.s3.max-concurrency:50}")
+    private int maxConcurrency;
+
+    @Value("${app.aws.s3.multipart-threshold-bytes:8388608}")
+    private long multipartThresholdBytes;
+
+    @Bean(destroyMethod = "close")
+    public S3AsyncClient s3AsyncClient() {
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(maxConcurrency))
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .thresholdInBytes(multipartThresholdBytes)
+                        .minimumPartSizeInBytes(multipartThresholdBytes)
+                        .build());
+        if (StringUtils.isNotBlank(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Signs direct-upload URLs locally; no request is made to S3
+     */
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner() {
+        S3Presigner.Builder builder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider());
+        if (StringUtils.isNotBlank(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint))
+                    .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+        }
+        return builder.build();
+    }
+
+    private AwsCredentialsProvider credentialsProvider() {
+        if (StringUtils.isAnyBlank(accessKey, secretKey)) {
+            return DefaultCredentialsProvider.create();
+        }
+        return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+    }
+}
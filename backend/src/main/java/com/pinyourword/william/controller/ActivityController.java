@@ -0,0 +1,89 @@
+package com.pinyourword.william.controller;
+
+import com.pinyourword.william.dto.request.CommentCreateRequest;
+import com.pinyourword.william.dto.response.ApiResponse;
+import com.pinyourword.william.dto.response.CommentResponse;
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.LikeResponse;
+import com.pinyourword.william.service.IActivityCommentService;
+import com.pinyourword.william.service.IActivityLikeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/activities")
+@RequiredArgsConstructor
+@Tag(name = "Activities", description = "Likes and comments on feed activities")
+@SecurityRequirement(name = "bearerAuth")
+public class ActivityController {
+
+    private final IActivityLikeService activityLikeService;
+    private final IActivityCommentService activityCommentService;
+
+    @PostMapping("/{activityId}/like")
+    @Operation(summary = "Like activity", description = "Like an activity; liking it again has no effect")
+    public ResponseEntity<ApiResponse<LikeResponse>> like(
+            Authentication authentication,
+            @PathVariable Long activityId) {
+        return ResponseEntity.ok(ApiResponse.success(activityLikeService.like(authentication, activityId)));
+    }
+
+    @DeleteMapping("/{activityId}/like")
+    @Operation(summary = "Unlike activity", description = "Remove a like; unliking an activity that is not liked has no effect")
+    public ResponseEntity<ApiResponse<LikeResponse>> unlike(
+            Authentication authentication,
+            @PathVariable Long activityId) {
+        return ResponseEntity.ok(ApiResponse.success(activityLikeService.unlike(authentication, activityId)));
+    }
+
+    @GetMapping("/{activityId}/comments")
+    @Operation(summary = "Get comments",
+            description = "Get the top-level comments of an activity, newest first, each with its first replies. "
+                    + "Pass nextCursor from the previous page to continue")
+    public ResponseEntity<ApiResponse<List<CommentResponse>>> getComments(
+            @PathVariable Long activityId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<CommentResponse> page = activityCommentService.getComments(activityId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.page(page.getItems(), page.getNextCursor()));
+    }
+
+    @PostMapping("/{activityId}/comments")
+    @Operation(summary = "Add comment", description = "Comment on an activity, or reply to one of its comments")
+    public ResponseEntity<ApiResponse<CommentResponse>> addComment(
+            Authentication authentication,
+            @PathVariable Long activityId,
+            @Valid @RequestBody CommentCreateRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(
+                activityCommentService.addComment(authentication, activityId, request)));
+    }
+
+    @GetMapping("/comments/{commentId}/replies")
+    @Operation(summary = "Get replies",
+            description = "Get the replies of a top-level comment, oldest first. "
+                    + "Pass repliesCursor from the comment, then nextCursor from the previous page")
+    public ResponseEntity<ApiResponse<List<CommentResponse>>> getReplies(
+            @PathVariable Long commentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<CommentResponse> page = activityCommentService.getReplies(commentId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.page(page.getItems(), page.getNextCursor()));
+    }
+
+    @DeleteMapping("/comments/{commentId}")
+    @Operation(summary = "Delete comment", description = "Delete one of your comments")
+    public ResponseEntity<ApiResponse<Void>> deleteComment(
+            Authentication authentication,
+            @PathVariable Long commentId) {
+        activityCommentService.deleteComment(authentication, commentId);
+        return ResponseEntity.ok(ApiResponse.success("Comment deleted", null));
+    }
+}
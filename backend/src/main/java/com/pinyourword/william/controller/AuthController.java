@@ -4,12 +4,14 @@ package com.pinyourword.william.controller;
 import com.pinyourword.william.dto.request.*;
 import com.pinyourword.william.dto.response.ApiResponse;
 import com.pinyourword.william.dto.response.AuthResponse;
+import com.pinyourword.william.security.AuthenticatedUser;
 import com.pinyourword.william.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -49,12 +51,28 @@ public class AuthController {
         return ResponseEntity.ok(ApiResponse.success("Login successful", response));
     }
     
+    @PostMapping("/refresh")
+    @Operation(summary = "Refresh tokens", description = "Exchange a refresh token for a new access token and refresh token")
+    public ResponseEntity<ApiResponse<AuthResponse>> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        AuthResponse response = authService.refresh(request);
+        return ResponseEntity.ok(ApiResponse.success("Token refreshed", response));
+    }
+    
+    @PostMapping("/logout")
+    @Operation(summary = "Logout", description = "Revoke the refresh token's session and the current access token")
+    public ResponseEntity<ApiResponse<Map<String, String>>> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody(required = false) RefreshTokenRequest request) {
+        authService.logout(authorization, request);
+        return ResponseEntity.ok(ApiResponse.success("Logged out successfully",
+                Map.of("message", "Logged out successfully")));
+    }
+    
     @GetMapping("/me")
     @SecurityRequirement(name = "Bearer Authentication")
     @Operation(summary = "Get current user", description = "Get the authenticated user's profile")
     public ResponseEntity<ApiResponse<AuthResponse.UserResponse>> getCurrentUser(Authentication authentication) {
-        UUID userUuid = (UUID) authentication.getPrincipal();
-        AuthResponse.UserResponse userInfo = authService.getCurrentUser(userUuid);
+        AuthResponse.UserResponse userInfo = authService.getCurrentUser(AuthenticatedUser.from(authentication));
         return ResponseEntity.ok(ApiResponse.success(userInfo));
     }
     
@@ -64,7 +82,7 @@ public class AuthController {
     public ResponseEntity<ApiResponse<AuthResponse.UserResponse>> updateProfile(
             Authentication authentication,
             @Valid @RequestBody UpdateProfileRequest request) {
-        UUID userUuid = (UUID) authentication.getPrincipal();
+        UUID userUuid = AuthenticatedUser.from(authentication).uuid();
         AuthResponse.UserResponse userInfo = authService.updateProfile(userUuid, request);
         return ResponseEntity.ok(ApiResponse.success("Profile updated successfully", userInfo));
     }
@@ -75,7 +93,7 @@ public class AuthController {
     public ResponseEntity<ApiResponse<Map<String, String>>> changePassword(
             Authentication authentication,
             @Valid @RequestBody ChangePasswordRequest request) {
-        UUID userUuid = (UUID) authentication.getPrincipal();
+        UUID userUuid = AuthenticatedUser.from(authentication).uuid();
         authService.changePassword(userUuid, request);
         return ResponseEntity.ok(ApiResponse.success("Password changed successfully", 
                 Map.of("message", "Password changed successfully")));
@@ -85,7 +103,7 @@ public class AuthController {
     @SecurityRequirement(name = "Bearer Authentication")
     @Operation(summary = "Delete account", description = "Soft delete the authenticated user's account")
     public ResponseEntity<ApiResponse<Map<String, String>>> deleteAccount(Authentication authentication) {
-        UUID userUuid = (UUID) authentication.getPrincipal();
+        UUID userUuid = AuthenticatedUser.from(authentication).uuid();
         authService.deleteAccount(userUuid);
         return ResponseEntity.ok(ApiResponse.success("Account deleted successfully", 
                 Map.of("message", "Account deleted successfully")));
@@ -0,0 +1,38 @@
+package com.pinyourword.william.controller;
+
+
+import com.pinyourword.william.dto.response.ApiResponse;
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.FeedItemResponse;
+import com.pinyourword.william.service.IFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/feed")
+@RequiredArgsConstructor
+@Tag(name = "Feed", description = "Activity feed APIs")
+@SecurityRequirement(name = "bearerAuth")
+public class FeedController {
+
+    private final IFeedService feedService;
+
+    @GetMapping
+    @Operation(summary = "Get feed",
+            description = "Get the activities of the current user and the accounts they follow, newest first. "
+                    + "Pass nextCursor from the previous page to continue")
+    public ResponseEntity<ApiResponse<List<FeedItemResponse>>> getFeed(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<FeedItemResponse> page = feedService.getFeed(authentication, cursor, size);
+        return ResponseEntity.ok(ApiResponse.page(page.getItems(), page.getNextCursor()));
+    }
+}
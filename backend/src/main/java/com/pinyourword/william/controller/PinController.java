@@ -1,15 +1,26 @@
 package com.pinyourword.william.controller;
 
 
+import com.pinyourword.william.dto.request.MediaUploadCompleteRequest;
+import com.pinyourword.william.dto.request.MediaUploadRequest;
 import com.pinyourword.william.dto.request.PinCreateRequest;
 import com.pinyourword.william.dto.response.ApiResponse;
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.MediaUploadResponse;
+import com.pinyourword.william.dto.response.PinClustersResponse;
+import com.pinyourword.william.dto.response.PinResponse;
+import com.pinyourword.william.dto.response.PinViewportResponse;
 import com.pinyourword.william.dto.response.UserProfileResponse;
-import com.pinyourword.william.entity.Pin;
+import com.pinyourword.william.dto.response.PinMediaResponse;
+import com.pinyourword.william.service.IPinClusterService;
+import com.pinyourword.william.service.IPinMediaService;
 import com.pinyourword.william.service.IPinService;
 import com.pinyourword.william.service.UserService;
+import com.pinyourword.william.util.BoundingBox;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -29,24 +40,139 @@ import java.util.UUID;
 public class PinController {
     
     private final IPinService pinService;
+    private final IPinClusterService pinClusterService;
+    private final IPinMediaService pinMediaService;
     
     @GetMapping("/pins-by-user")
-    @Operation(summary = "Get pins by user", description = "Get the Pins of user")
-    public ResponseEntity<ApiResponse<List<Pin>>> getCurrentUser(Authentication authentication) {
-        return ResponseEntity.ok(ApiResponse.success(pinService.getAllPinsByUserId(authentication)));
+    @Operation(summary = "Get pins by user",
+            description = "Get the Pins of user, newest first. Pass nextCursor from the previous page to continue")
+    public ResponseEntity<ApiResponse<List<PinResponse>>> getCurrentUser(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<PinResponse> page = pinService.getPinsByUser(authentication, cursor, size);
+        return ResponseEntity.ok(ApiResponse.page(page.getItems(), page.getNextCursor()));
+    }
+
+    @GetMapping("/viewport")
+    @Operation(summary = "Get pins in viewport",
+            description = "Get the pins inside a map bounding box. Scope: self, following or public. "
+                    + "minLon greater than maxLon means the box crosses the antimeridian")
+    public ResponseEntity<ApiResponse<PinViewportResponse>> getPinsInViewport(
+            Authentication authentication,
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam(defaultValue = "self") String scope) {
+        BoundingBox viewport = new BoundingBox(minLat, minLon, maxLat, maxLon);
+        return ResponseEntity.ok(ApiResponse.success(pinService.getPinsInViewport(authentication, viewport, scope)));
+    }
+
+    @GetMapping("/nearby")
+    @Operation(summary = "Get nearby pins",
+            description = "Get pins within radius meters of a point, nearest first, with their distance in meters. "
+                    + "Optional status filter: visited or want_to_go")
+    public ResponseEntity<ApiResponse<List<PinResponse>>> getNearbyPins(
+            Authentication authentication,
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5000") double radius,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "self") String scope) {
+        return ResponseEntity.ok(ApiResponse.success(
+                pinService.getNearbyPins(authentication, lat, lon, radius, limit, status, scope)));
+    }
+
+    @GetMapping("/clusters")
+    @Operation(summary = "Get pin clusters",
+            description = "Get pins inside a map bounding box grouped into clusters for the given zoom level. "
+                    + "Past the configured max zoom the individual pins are returned")
+    public ResponseEntity<ApiResponse<PinClustersResponse>> getPinClusters(
+            Authentication authentication,
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam int zoom,
+            @RequestParam(defaultValue = "self") String scope) {
+        BoundingBox viewport = new BoundingBox(minLat, minLon, maxLat, maxLon);
+        return ResponseEntity.ok(ApiResponse.success(
+                pinClusterService.getClusters(authentication, viewport, zoom, scope)));
     }
 
     @PostMapping(
             value = "/save-pin-user",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "save pins by user")
-    public ResponseEntity<ApiResponse<Pin>> savePin(
+    public ResponseEntity<ApiResponse<PinResponse>> savePin(
             Authentication authentication,
             @RequestPart("data") PinCreateRequest data,
             @RequestPart(value = "images", required = false) List<MultipartFile> images
     ) {
-        Pin pin = pinService.savePin(authentication, data, images);
+        PinResponse pin = pinService.savePin(authentication, data, images);
         return ResponseEntity.ok(ApiResponse.success(pin));
     }
 
+    @PutMapping("/{pinUuid}")
+    @Operation(summary = "Update pin", description = "Replace the place, status and content of one of your pins")
+    public ResponseEntity<ApiResponse<PinResponse>> updatePin(
+            Authentication authentication,
+            @PathVariable UUID pinUuid,
+            @RequestBody PinCreateRequest data) {
+        return ResponseEntity.ok(ApiResponse.success(pinService.updatePin(authentication, pinUuid, data)));
+    }
+
+    @PatchMapping("/{pinUuid}/status")
+    @Operation(summary = "Change pin status", description = "Set a pin to visited, want_to_visit or draft")
+    public ResponseEntity<ApiResponse<PinResponse>> updatePinStatus(
+            Authentication authentication,
+            @PathVariable UUID pinUuid,
+            @RequestParam String status) {
+        return ResponseEntity.ok(ApiResponse.success(pinService.updatePinStatus(authentication, pinUuid, status)));
+    }
+
+    @DeleteMapping("/{pinUuid}")
+    @Operation(summary = "Delete pin", description = "Delete one of your pins with its photos")
+    public ResponseEntity<ApiResponse<Void>> deletePin(
+            Authentication authentication,
+            @PathVariable UUID pinUuid) {
+        pinService.deletePin(authentication, pinUuid);
+        return ResponseEntity.ok(ApiResponse.success("Pin deleted", null));
+    }
+
+    @GetMapping("/{pinUuid}/media")
+    @Operation(summary = "Get pin media",
+            description = "Get the photos of a pin with their upload status: pending, ready or failed")
+    public ResponseEntity<ApiResponse<List<PinMediaResponse>>> getPinMedia(
+            Authentication authentication,
+            @PathVariable UUID pinUuid) {
+        return ResponseEntity.ok(ApiResponse.success(pinMediaService.getPinMedia(authentication, pinUuid)));
+    }
+
+    @PostMapping("/{pinUuid}/media/uploads")
+    @Operation(summary = "Create direct uploads",
+            description = "Get presigned URLs to upload photos of a pin straight to storage. "
+                    + "Send each file with the returned method and headers, then call media/complete with the keys")
+    public ResponseEntity<ApiResponse<List<MediaUploadResponse>>> createMediaUploads(
+            Authentication authentication,
+            @PathVariable UUID pinUuid,
+            @Valid @RequestBody MediaUploadRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(
+                pinMediaService.createUploads(authentication, pinUuid, request)));
+    }
+
+    @PostMapping("/{pinUuid}/media/complete")
+    @Operation(summary = "Complete direct uploads",
+            description = "Attach uploaded photos to a pin. Each key is verified in storage; "
+                    + "completing the same keys again is a no-op")
+    public ResponseEntity<ApiResponse<List<PinMediaResponse>>> completeMediaUploads(
+            Authentication authentication,
+            @PathVariable UUID pinUuid,
+            @Valid @RequestBody MediaUploadCompleteRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(
+                pinMediaService.completeUploads(authentication, pinUuid, request)));
+    }
+
 }
@@ -0,0 +1,60 @@
+package com.pinyourword.william.controller;
+
+
+import com.pinyourword.william.dto.response.TileResponse;
+import com.pinyourword.william.service.IPinTileService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/v1/tiles")
+@RequiredArgsConstructor
+@Tag(name = "Tiles", description = "Vector tile APIs for map rendering")
+@SecurityRequirement(name = "bearerAuth")
+public class TileController {
+
+    public static final MediaType MVT_MEDIA_TYPE = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final IPinTileService tileService;
+
+    @Value("${app.map.tiles.max-age-seconds:60}")
+    private long maxAgeSeconds;
+
+    @GetMapping("/pins/{z}/{x}/{y}.mvt")
+    @Operation(summary = "Get pin tile", description = "Get pins of one map tile as a Mapbox Vector Tile. Scope: self, following or public")
+    public ResponseEntity<byte[]> getPinTile(
+            Authentication authentication,
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(defaultValue = "self") String scope,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        TileResponse tile = tileService.getPinTile(authentication, z, x, y, scope);
+
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS);
+        cacheControl = tile.shared() ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+
+        if (tile.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(tile.etag())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MVT_MEDIA_TYPE)
+                .cacheControl(cacheControl)
+                .eTag(tile.etag())
+                .body(tile.data());
+    }
+}
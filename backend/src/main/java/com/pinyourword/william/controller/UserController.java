@@ -2,7 +2,10 @@ package com.pinyourword.william.controller;
 
 
 import com.pinyourword.william.dto.response.ApiResponse;
+import com.pinyourword.william.dto.response.FollowResponse;
 import com.pinyourword.william.dto.response.UserProfileResponse;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IFollowService;
 import com.pinyourword.william.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -23,12 +26,12 @@ import java.util.UUID;
 public class UserController {
     
     private final UserService userService;
+    private final IFollowService followService;
     
     @GetMapping("/me")
     @Operation(summary = "Get current user profile", description = "Get the profile of the authenticated user")
     public ResponseEntity<ApiResponse<UserProfileResponse>> getCurrentUser(Authentication authentication) {
-        UUID userId = (UUID) authentication.getPrincipal();
-        UserProfileResponse profile = userService.getCurrentUserProfile(userId);
+        UserProfileResponse profile = userService.getCurrentUserProfile(AuthenticatedUser.from(authentication));
         return ResponseEntity.ok(ApiResponse.success(profile));
     }
     
@@ -37,7 +40,7 @@ public class UserController {
     public ResponseEntity<ApiResponse<UserProfileResponse>> updateProfile(
             Authentication authentication,
             @RequestBody Map<String, String> updates) {
-        UUID userId = (UUID) authentication.getPrincipal();
+        UUID userId = AuthenticatedUser.from(authentication).uuid();
         String displayName = updates.get("display_name");
         String bio = updates.get("bio");
         
@@ -48,7 +51,7 @@ public class UserController {
     @DeleteMapping("/me")
     @Operation(summary = "Delete account", description = "Soft delete the user account")
     public ResponseEntity<ApiResponse<Void>> deleteAccount(Authentication authentication) {
-        UUID userId = (UUID) authentication.getPrincipal();
+        UUID userId = AuthenticatedUser.from(authentication).uuid();
         userService.deleteAccount(userId);
         return ResponseEntity.noContent().build();
     }
@@ -59,4 +62,20 @@ public class UserController {
         UserProfileResponse profile = userService.getUserProfileByUsername(username);
         return ResponseEntity.ok(ApiResponse.success(profile));
     }
+
+    @PostMapping("/{username}/follow")
+    @Operation(summary = "Follow user", description = "Follow a user; their recent activities appear in the feed shortly after")
+    public ResponseEntity<ApiResponse<FollowResponse>> follow(
+            Authentication authentication,
+            @PathVariable String username) {
+        return ResponseEntity.ok(ApiResponse.success(followService.follow(authentication, username)));
+    }
+
+    @DeleteMapping("/{username}/follow")
+    @Operation(summary = "Unfollow user", description = "Unfollow a user; their activities leave the feed shortly after")
+    public ResponseEntity<ApiResponse<FollowResponse>> unfollow(
+            Authentication authentication,
+            @PathVariable String username) {
+        return ResponseEntity.ok(ApiResponse.success(followService.unfollow(authentication, username)));
+    }
 }
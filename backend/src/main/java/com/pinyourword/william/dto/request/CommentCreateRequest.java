@@ -0,0 +1,22 @@
+package com.pinyourword.william.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentCreateRequest {
+
+    @NotBlank(message = "Content is required")
+    @Size(max = 2000, message = "Content must not exceed 2000 characters")
+    private String content;
+
+    // Set to reply to a comment; a reply to a reply joins the thread of its top-level comment
+    private Long parentCommentId;
+}
@@ -0,0 +1,22 @@
+package com.pinyourword.william.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Storage keys of finished direct uploads, in display order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaUploadCompleteRequest {
+
+    @NotEmpty(message = "At least one key is required")
+    private List<String> keys;
+}
@@ -0,0 +1,42 @@
+package com.pinyourword.william.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Files a client is about to upload straight to storage
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaUploadRequest {
+
+    @NotEmpty(message = "At least one file is required")
+    @Valid
+    private List<FileInfo> files;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FileInfo {
+
+        @NotBlank(message = "Content type is required")
+        private String contentType;
+
+        // Signed into the URL, so the upload must be exactly this size
+        @NotNull(message = "Size is required")
+        @Positive(message = "Size must be positive")
+        private Long sizeBytes;
+    }
+}
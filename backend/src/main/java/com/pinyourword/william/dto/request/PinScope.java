@@ -0,0 +1,34 @@
+package com.pinyourword.william.dto.request;
+
+import com.pinyourword.william.exception.BadRequestException;
+
+/**
+ * Whose pins a map query returns
+ */
+public enum PinScope {
+    SELF("self"),               // the authenticated user's own pins
+    FOLLOWING("following"),     // pins of the users the authenticated user follows
+    PUBLIC("public");           // pins of every user with a public profile
+
+    private final String value;
+
+    PinScope(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static PinScope fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return SELF;
+        }
+        for (PinScope scope : values()) {
+            if (scope.value.equalsIgnoreCase(value)) {
+                return scope;
+            }
+        }
+        throw new BadRequestException("Invalid scope: " + value);
+    }
+}
@@ -1,5 +1,6 @@
 package com.pinyourword.william.dto.request;
 
+import com.pinyourword.william.validation.ValidRegistration;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,6 +10,7 @@ import lombok.NoArgsConstructor;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@ValidRegistration
 public class RegisterRequest {
     private String email;
     private String password;
@@ -1,5 +1,7 @@
 package com.pinyourword.william.dto.request;
 
+import com.pinyourword.william.entity.user.User.Visibility;
+import com.pinyourword.william.validation.AllowedVisibility;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,9 +24,12 @@ public class UpdateProfileRequest {
     
     private String coverUrl;
     
-    private String profileVisibility; // public, private
+    @AllowedVisibility({Visibility.PUBLIC, Visibility.PRIVATE})
+    private String profileVisibility;
     
-    private String notesVisibility; // private, followers, public
+    @AllowedVisibility({Visibility.PRIVATE, Visibility.FOLLOWERS, Visibility.PUBLIC})
+    private String notesVisibility;
     
-    private String bucketlistVisibility; // private, followers, public
+    @AllowedVisibility({Visibility.PRIVATE, Visibility.FOLLOWERS, Visibility.PUBLIC})
+    private String bucketlistVisibility;
 }
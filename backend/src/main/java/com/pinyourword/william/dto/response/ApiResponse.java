@@ -1,5 +1,6 @@
 package com.pinyourword.william.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,18 +11,22 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ApiResponse<T> {
-    
+
     private boolean success;
     private String message;
     private T data;
-    
+
+    // Opaque cursor for the next page; only present on paginated responses
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
     public static <T> ApiResponse<T> success(T data) {
         return ApiResponse.<T>builder()
                 .success(true)
                 .data(data)
                 .build();
     }
-    
+
     public static <T> ApiResponse<T> success(String message, T data) {
         return ApiResponse.<T>builder()
                 .success(true)
@@ -29,7 +34,15 @@ public class ApiResponse<T> {
                 .data(data)
                 .build();
     }
-    
+
+    public static <T> ApiResponse<T> page(T data, String nextCursor) {
+        return ApiResponse.<T>builder()
+                .success(true)
+                .data(data)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     public static <T> ApiResponse<T> error(String message) {
         return ApiResponse.<T>builder()
                 .success(false)
@@ -17,6 +17,8 @@ public class AuthResponse {
     private String accessToken;
     private String tokenType;
     private Long expiresIn; // in seconds
+    private String refreshToken;
+    private Long refreshExpiresIn; // in seconds
     
     @Data
     @Builder
@@ -0,0 +1,36 @@
+package com.pinyourword.william.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentResponse {
+
+    private Long id;
+    private Long activityId;
+
+    // Only set for replies
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long parentCommentId;
+
+    private String content;
+    private FeedActorResponse author;
+    private Instant createdAt;
+
+    // Only set for top-level comments in a thread listing: the first replies, oldest first
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CommentResponse> replies;
+
+    // Cursor for the replies endpoint when the thread has more replies than shown
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String repliesCursor;
+}
@@ -0,0 +1,20 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedActorResponse {
+
+    private UUID uuid;
+    private String username;
+    private String displayName;
+    private String avatarUrl;
+}
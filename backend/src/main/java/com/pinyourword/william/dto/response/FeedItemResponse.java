@@ -0,0 +1,32 @@
+package com.pinyourword.william.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedItemResponse {
+
+    private Long activityId;
+    private String activityType;
+    private String caption;
+    private Map<String, Object> metadata;
+    private int likesCount;
+    private int commentsCount;
+    private boolean likedByMe;
+    private boolean seen;
+    private Instant createdAt;
+    private FeedActorResponse actor;
+
+    // Only set for pin activities
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private FeedPinResponse pin;
+}
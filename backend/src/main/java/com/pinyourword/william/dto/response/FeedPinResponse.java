@@ -0,0 +1,31 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The pin of a pin activity, with its cover photo
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedPinResponse {
+
+    private UUID uuid;
+    private String placeName;
+    private String addressCity;
+    private String addressCountry;
+    private String status;
+    private Short rating;
+    private LocalDate visitedDate;
+    private Double latitude;
+    private Double longitude;
+    private String photoUrl;    // thumbnail of the first photo, null if none
+    private long photosCount;
+}
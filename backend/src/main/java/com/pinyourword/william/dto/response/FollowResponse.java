@@ -0,0 +1,19 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowResponse {
+
+    private UUID userUuid;
+    private String username;
+    private boolean following;
+}
@@ -0,0 +1,16 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeResponse {
+
+    private Long activityId;
+    private boolean liked;
+}
@@ -0,0 +1,26 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Presigned request the client sends the file with, then reports {@code key} back on completion
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaUploadResponse {
+
+    private String key;
+    private String method;
+    private String url;
+    // Headers the client must send unchanged, they are part of the signature
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
@@ -0,0 +1,21 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PinClusterResponse {
+
+    private Double latitude;   // centroid of the pins in the cluster
+    private Double longitude;
+    private Long count;
+    private UUID pinUuid;      // set only when the cluster is a single pin
+    private String status;     // set only when the cluster is a single pin
+}
@@ -0,0 +1,20 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PinClustersResponse {
+
+    private int zoom;
+    private boolean clustered;   // false once zoom is past app.map.cluster.max-zoom
+    private List<PinClusterResponse> clusters;
+    private boolean truncated;
+}
@@ -0,0 +1,27 @@
+package com.pinyourword.william.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PinMediaResponse {
+
+    private UUID uuid;
+    private Short uploadOrder;
+    private String status;      // pending, ready, failed
+    private String url;
+    private String thumbnailUrl;
+
+    // Resized copies by width in pixels, once generated
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, String> variants;
+}
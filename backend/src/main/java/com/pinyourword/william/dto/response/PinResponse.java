@@ -1,10 +1,14 @@
 package com.pinyourword.william.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Data
@@ -12,25 +16,28 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PinResponse {
-    
+
     private UUID uuid;
-    private String username;
-    private String displayName;
-    private String bio;
-    private String avatarUrl;
-    private String coverUrl;
-    private String email;
-    private UserStatsResponse stats;
-    
-    @Data
-    @Builder
-    @NoArgsConstructor
-    @AllArgsConstructor
-    public static class UserStatsResponse {
-        private Long visitedCountriesCount;
-        private Long visitedCitiesCount;
-        private Long totalPinsCount;
-        private Long followersCount;
-        private Long followingCount;
-    }
+    private String placeName;
+    private String placeIdGoogle;
+    private Double latitude;
+    private Double longitude;
+    private String addressFormatted;
+    private String addressCity;
+    private String addressCountry;
+    private String addressCountryCode;
+    private String status;
+    private String notes;
+    private LocalDate visitedDate;
+    private Short rating;
+    private Boolean isFavorite;
+    private LocalDateTime createdAt;
+
+    // Only set by the nearby search
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double distanceMeters;
+
+    // Only set when the pin is returned with its photos
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<PinMediaResponse> media;
 }
@@ -0,0 +1,18 @@
+package com.pinyourword.william.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PinViewportResponse {
+
+    private List<PinMarkerResponse> pins;
+    private boolean truncated; // true when the viewport holds more pins than the row cap
+}
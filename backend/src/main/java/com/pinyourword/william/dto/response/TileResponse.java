@@ -0,0 +1,7 @@
+package com.pinyourword.william.dto.response;
+
+/**
+ * Encoded vector tile plus the ETag clients revalidate it with
+ */
+public record TileResponse(byte[] data, String etag, boolean shared) {
+}
@@ -1,8 +1,10 @@
 package com.pinyourword.william.entity;
 
+import com.pinyourword.william.entity.converter.ActivityTypeConverter;
 import com.pinyourword.william.entity.user.User;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -10,6 +12,7 @@ import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,7 +39,9 @@ public class Activity {
     @JoinColumn(name = "actor_id", nullable = false)
     private User actor;
     
-    @Enumerated(EnumType.STRING)
+    // Postgres enum activity_type, stored with the lowercase values below
+    @Convert(converter = ActivityTypeConverter.class)
+    @ColumnTransformer(write = "CAST(? AS activity_type)")
     @Column(name = "activity_type", nullable = false, length = 30)
     private ActivityType activityType;
     
@@ -125,5 +130,34 @@ public class Activity {
         public String getValue() {
             return value;
         }
+
+        /**
+         * Whether activities of this type are shown in followers' feeds
+         */
+        public boolean isFeedVisible() {
+            return this != NEW_FOLLOW && this != UPDATE_PIN;
+        }
+
+        /**
+         * Database values of the types shown in followers' feeds
+         */
+        public static List<String> feedVisibleValues() {
+            return Arrays.stream(values())
+                    .filter(ActivityType::isFeedVisible)
+                    .map(ActivityType::getValue)
+                    .toList();
+        }
+
+        /**
+         * @return the type with this database value, or null if unknown
+         */
+        public static ActivityType fromValue(String value) {
+            for (ActivityType type : values()) {
+                if (type.value.equals(value)) {
+                    return type;
+                }
+            }
+            return null;
+        }
     }
 }
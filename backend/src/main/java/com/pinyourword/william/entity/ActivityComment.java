@@ -14,7 +14,9 @@ import java.util.List;
 @Table(name = "activity_comments", indexes = {
     @Index(name = "idx_activity_comments_activity", columnList = "activity_id, created_at"),
     @Index(name = "idx_activity_comments_user", columnList = "user_id, created_at"),
-    @Index(name = "idx_activity_comments_parent", columnList = "parent_comment_id, created_at"),
+    // Partial in the database: visible top-level comments / visible replies only (V1.15)
+    @Index(name = "idx_activity_comments_top_level", columnList = "activity_id, created_at, id"),
+    @Index(name = "idx_activity_comments_parent", columnList = "parent_comment_id, created_at, id"),
     @Index(name = "idx_activity_comments_deleted", columnList = "deleted_at")
 })
 @Getter
@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
     indexes = {
         @Index(name = "idx_activity_likes_activity", columnList = "activity_id"),
         @Index(name = "idx_activity_likes_user", columnList = "user_id, created_at"),
-        @Index(name = "idx_activity_likes_activity_created", columnList = "activity_id, created_at")
+        @Index(name = "idx_activity_likes_activity_created", columnList = "activity_id, created_at"),
+        @Index(name = "idx_activity_likes_user_activity", columnList = "user_id, activity_id DESC")
     }
 )
 @Getter
@@ -0,0 +1,90 @@
+package com.pinyourword.william.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Feed maintenance job written in the same transaction as a follow or unfollow,
+ * claimed by workers with FOR UPDATE SKIP LOCKED
+ */
+@Entity
+@Table(name = "feed_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeedJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_type", nullable = false, length = 20)
+    private String jobType;
+
+    @Column(name = "follower_id", nullable = false)
+    private Long followerId;
+
+    @Column(name = "following_id", nullable = false)
+    private Long followingId;
+
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String status = Status.QUEUED.getValue();
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "run_after", nullable = false, insertable = false)
+    private Instant runAfter;
+
+    @Column(name = "locked_at")
+    private Instant lockedAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false, insertable = false)
+    private Instant updatedAt;
+
+    public enum JobType {
+        // Copy recent activities of a newly followed account into the follower's feed
+        BACKFILL("backfill"),
+        // Remove an unfollowed account's activities from the follower's feed
+        CLEANUP("cleanup");
+
+        private final String value;
+
+        JobType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public enum Status {
+        QUEUED("queued"),
+        RUNNING("running"),
+        DONE("done"),
+        FAILED("failed");
+
+        private final String value;
+
+        Status(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
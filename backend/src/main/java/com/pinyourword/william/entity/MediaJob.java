@@ -0,0 +1,84 @@
+package com.pinyourword.william.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Durable background job on a PinMedia row, claimed by workers with FOR UPDATE SKIP LOCKED
+ */
+@Entity
+@Table(name = "media_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "media_id", nullable = false)
+    private Long mediaId;
+
+    @Column(name = "job_type", nullable = false, length = 30)
+    @Builder.Default
+    private String jobType = JobType.VARIANTS.getValue();
+
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String status = Status.QUEUED.getValue();
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "run_after", nullable = false, insertable = false)
+    private Instant runAfter;
+
+    @Column(name = "locked_at")
+    private Instant lockedAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false, insertable = false)
+    private Instant updatedAt;
+
+    public enum JobType {
+        VARIANTS("variants");
+
+        private final String value;
+
+        JobType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public enum Status {
+        QUEUED("queued"),
+        RUNNING("running"),
+        DONE("done"),
+        FAILED("failed");
+
+        private final String value;
+
+        Status(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
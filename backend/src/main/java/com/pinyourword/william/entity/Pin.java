@@ -100,4 +100,36 @@ public class Pin {
         }
     }
 
+    public enum PinStatus {
+        VISITED("visited"),
+        WANT_TO_VISIT("want_to_visit"),
+        DRAFT("draft");
+
+        private final String value;
+
+        PinStatus(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Parse a status filter; "want_to_go" (the feed wording) is accepted for want_to_visit
+         * @return the matching status, or null if the value is not a known status
+         */
+        public static PinStatus fromValue(String value) {
+            if ("want_to_go".equalsIgnoreCase(value)) {
+                return WANT_TO_VISIT;
+            }
+            for (PinStatus status : values()) {
+                if (status.value.equalsIgnoreCase(value)) {
+                    return status;
+                }
+            }
+            return null;
+        }
+    }
+
 }
@@ -5,8 +5,11 @@ import com.pinyourword.william.entity.user.User;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Entity
@@ -51,6 +54,29 @@ public class PinMedia {
     @Column(name = "upload_order", nullable = false)
     @Builder.Default
     private Short uploadOrder = 0;
+
+    // Upload state (see UploadStatus)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String status = UploadStatus.READY.getValue();
+
+    @Column(name = "storage_key", length = 512)
+    private String storageKey;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    // Instance whose staging directory holds the file of a pending upload
+    @Column(name = "staging_node")
+    private String stagingNode;
+
+    // Resized copies by width in pixels, e.g. {"320": url, "640": url}
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, String> variants;
     
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -63,6 +89,22 @@ public class PinMedia {
         }
     }
     
+    public enum UploadStatus {
+        PENDING("pending"),
+        READY("ready"),
+        FAILED("failed");
+
+        private final String value;
+
+        UploadStatus(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
     public enum MediaType {
         IMAGE("image"),
         VIDEO("video");
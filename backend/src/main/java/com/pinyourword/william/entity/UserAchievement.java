@@ -0,0 +1,38 @@
+package com.pinyourword.william.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A milestone a user has reached; awarded at most once per user and code
+ */
+@Entity
+@Table(name = "user_achievements", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "code"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserAchievement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // e.g. countries_10
+    @Column(nullable = false, length = 50)
+    private String code;
+
+    @Column(name = "activity_id")
+    private Long activityId;
+
+    @Column(name = "achieved_at", nullable = false, insertable = false, updatable = false)
+    private Instant achievedAt;
+}
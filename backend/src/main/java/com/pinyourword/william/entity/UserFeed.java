@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
         @UniqueConstraint(name = "uk_user_feeds_user_activity", columnNames = {"user_id", "activity_id"})
     },
     indexes = {
-        @Index(name = "idx_user_feeds_user_timestamp", columnList = "user_id, feed_timestamp"),
+        @Index(name = "idx_user_feeds_user_ts_activity", columnList = "user_id, feed_timestamp, activity_id"),
         @Index(name = "idx_user_feeds_user_seen", columnList = "user_id, is_seen, feed_timestamp"),
         @Index(name = "idx_user_feeds_activity", columnList = "activity_id")
     }
@@ -0,0 +1,30 @@
+package com.pinyourword.william.entity.converter;
+
+import com.pinyourword.william.entity.Activity;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * JPA Converter for the activity_type Postgres enum
+ * Maps ActivityType to its lowercase database label and back
+ */
+@Converter
+public class ActivityTypeConverter implements AttributeConverter<Activity.ActivityType, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Activity.ActivityType type) {
+        return type == null ? null : type.getValue();
+    }
+
+    @Override
+    public Activity.ActivityType convertToEntityAttribute(String value) {
+        if (value == null) {
+            return null;
+        }
+        Activity.ActivityType type = Activity.ActivityType.fromValue(value);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown activity type: " + value);
+        }
+        return type;
+    }
+}
@@ -65,6 +65,14 @@ public class User {
     @Column(name = "total_pins_count", nullable = false)
     private Integer totalPinsCount ;
 
+    // Maintained in SQL by the feed fan-out, never written through the entity
+    @Column(name = "followers_count", insertable = false, updatable = false)
+    private Integer followersCount;
+
+    // Access tokens carry the epoch they were issued at; raising it revokes them all
+    @Column(name = "token_epoch", insertable = false, updatable = false)
+    private Integer tokenEpoch;
+
     // Privacy settings
     @Column(name = "profile_visibility", nullable = false, length = 20)
     private String profileVisibility ;
@@ -104,4 +112,38 @@ public class User {
     public boolean isDeleted() {
         return deletedAt != null;
     }
+
+    /**
+     * Who can see a profile, notes or a bucket list
+     */
+    public enum Visibility {
+        PUBLIC("public"),
+        FOLLOWERS("followers"),
+        PRIVATE("private");
+
+        private final String value;
+
+        Visibility(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return the matching visibility, or null if the value is not one
+         */
+        public static Visibility fromValue(String value) {
+            if (value == null) {
+                return null;
+            }
+            return switch (value) {
+                case "public" -> PUBLIC;
+                case "followers" -> FOLLOWERS;
+                case "private" -> PRIVATE;
+                default -> null;
+            };
+        }
+    }
 }
@@ -0,0 +1,9 @@
+package com.pinyourword.william.event;
+
+import com.pinyourword.william.entity.Activity;
+
+/**
+ * Published when an activity is recorded; handled after the transaction commits
+ */
+public record ActivityCreatedEvent(Long activityId, Long actorId, Activity.ActivityType type) {
+}
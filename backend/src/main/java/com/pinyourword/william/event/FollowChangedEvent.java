@@ -0,0 +1,7 @@
+package com.pinyourword.william.event;
+
+/**
+ * Published when a follow relationship is created or removed
+ */
+public record FollowChangedEvent(Long followerId, Long followingId, boolean following) {
+}
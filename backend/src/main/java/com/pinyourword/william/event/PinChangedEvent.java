@@ -0,0 +1,32 @@
+package com.pinyourword.william.event;
+
+/**
+ * Published whenever a pin is written.
+ * {@code before} is null for a new pin and {@code after} is null for a deleted pin.
+ */
+public record PinChangedEvent(PinSnapshot before, PinSnapshot after) {
+
+    public static PinChangedEvent created(PinSnapshot pin) {
+        return new PinChangedEvent(null, pin);
+    }
+
+    public static PinChangedEvent updated(PinSnapshot before, PinSnapshot after) {
+        return new PinChangedEvent(before, after);
+    }
+
+    public static PinChangedEvent deleted(PinSnapshot pin) {
+        return new PinChangedEvent(pin, null);
+    }
+
+    public boolean isCreated() {
+        return before == null;
+    }
+
+    public boolean isDeleted() {
+        return after == null;
+    }
+
+    public Long userId() {
+        return after != null ? after.userId() : before.userId();
+    }
+}
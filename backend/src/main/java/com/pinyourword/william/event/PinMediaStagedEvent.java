@@ -0,0 +1,14 @@
+package com.pinyourword.william.event;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Published when uploaded images have been written to the staging directory
+ * and their pending PinMedia rows saved. Uploads start once the transaction commits.
+ */
+public record PinMediaStagedEvent(List<StagedUpload> uploads) {
+
+    public record StagedUpload(Long mediaId, String storageKey, Path file, String contentType) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.pinyourword.william.event;
+
+import com.pinyourword.william.entity.Pin;
+
+/**
+ * Immutable copy of the pin fields that listeners react to.
+ * Taken inside the writing transaction so listeners never touch a managed entity.
+ */
+public record PinSnapshot(
+        Long id,
+        Long userId,
+        String status,
+        double latitude,
+        double longitude,
+        String addressCity,
+        String addressCountryCode
+) {
+
+    public static PinSnapshot of(Pin pin) {
+        return new PinSnapshot(
+                pin.getId(),
+                pin.getUserId(),
+                pin.getStatus(),
+                pin.getLocation().getY(),
+                pin.getLocation().getX(),
+                pin.getAddressCity(),
+                pin.getAddressCountryCode());
+    }
+}
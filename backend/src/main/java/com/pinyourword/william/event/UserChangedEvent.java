@@ -0,0 +1,21 @@
+package com.pinyourword.william.event;
+
+import com.pinyourword.william.entity.user.User;
+
+import java.util.UUID;
+
+/**
+ * Published when a user's profile changes or the account is deleted.
+ * {@code audienceChanged} is set when who may see the user's pins changed: the profile
+ * visibility was changed or the account was deleted.
+ */
+public record UserChangedEvent(Long userId, UUID userUuid, String username, boolean audienceChanged) {
+
+    public static UserChangedEvent of(User user) {
+        return new UserChangedEvent(user.getId(), user.getUuid(), user.getUsername(), false);
+    }
+
+    public static UserChangedEvent audienceChanged(User user) {
+        return new UserChangedEvent(user.getId(), user.getUuid(), user.getUsername(), true);
+    }
+}
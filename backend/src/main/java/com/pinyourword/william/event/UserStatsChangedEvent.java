@@ -0,0 +1,10 @@
+package com.pinyourword.william.event;
+
+/**
+ * Published when a pin write changes a user's travel counters; handled after commit
+ */
+public record UserStatsChangedEvent(Long userId, Stats before, Stats after) {
+
+    public record Stats(int visitedCountries, int visitedCities, int totalPins) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.pinyourword.william.exception;
+
+import lombok.Getter;
+
+/**
+ * The server is too busy to take the request now; the client may retry after a short wait
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,78 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.ActivityComment;
+import com.pinyourword.william.repository.projection.CommentView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ActivityCommentRepository extends JpaRepository<ActivityComment, Long> {
+
+    /**
+     * Top-level comments of an activity strictly before a position, newest first.
+     * Reads idx_activity_comments_top_level, which only holds visible top-level comments.
+     */
+    @Query(value = """
+            SELECT c.id AS "id",
+                   c.activity_id AS "activityId",
+                   c.parent_comment_id AS "parentCommentId",
+                   c.user_id AS "authorId",
+                   c.content AS "content",
+                   c.created_at AS "createdAt"
+            FROM activity_comments c
+            WHERE c.activity_id = :activityId
+              AND c.parent_comment_id IS NULL
+              AND c.deleted_at IS NULL
+              AND (c.created_at, c.id) < (:before, :beforeId)
+            ORDER BY c.created_at DESC, c.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<CommentView> findTopLevelPage(Long activityId, Instant before, long beforeId, int limit);
+
+    /**
+     * The first {@code perParent} replies of each given comment, oldest first, in one query.
+     * Rows come grouped by parent.
+     */
+    @Query(value = """
+            SELECT r."id", r."activityId", r."parentCommentId", r."authorId", r."content", r."createdAt"
+            FROM (
+                SELECT c.id AS "id",
+                       c.activity_id AS "activityId",
+                       c.parent_comment_id AS "parentCommentId",
+                       c.user_id AS "authorId",
+                       c.content AS "content",
+                       c.created_at AS "createdAt",
+                       ROW_NUMBER() OVER (PARTITION BY c.parent_comment_id ORDER BY c.created_at, c.id) AS rn
+                FROM activity_comments c
+                WHERE c.parent_comment_id IN (:parentIds)
+                  AND c.deleted_at IS NULL
+            ) r
+            WHERE r.rn <= :perParent
+            ORDER BY r."parentCommentId", r.rn
+            """, nativeQuery = true)
+    List<CommentView> findFirstReplies(Collection<Long> parentIds, int perParent);
+
+    /**
+     * Replies of a comment strictly after a position, oldest first
+     */
+    @Query(value = """
+            SELECT c.id AS "id",
+                   c.activity_id AS "activityId",
+                   c.parent_comment_id AS "parentCommentId",
+                   c.user_id AS "authorId",
+                   c.content AS "content",
+                   c.created_at AS "createdAt"
+            FROM activity_comments c
+            WHERE c.parent_comment_id = :parentId
+              AND c.deleted_at IS NULL
+              AND (c.created_at, c.id) > (:after, :afterId)
+            ORDER BY c.created_at, c.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<CommentView> findReplyPage(Long parentId, Instant after, long afterId, int limit);
+}
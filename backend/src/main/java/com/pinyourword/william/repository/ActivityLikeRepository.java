@@ -0,0 +1,60 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.ActivityLike;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ActivityLikeRepository extends JpaRepository<ActivityLike, Long> {
+
+    /**
+     * Which of the given activities the user has liked (unique (activity_id, user_id) index)
+     */
+    @Query(value = """
+            SELECT al.activity_id FROM activity_likes al
+            WHERE al.user_id = :userId AND al.activity_id IN (:activityIds)
+            """, nativeQuery = true)
+    List<Long> findLikedActivityIds(Long userId, Collection<Long> activityIds);
+
+    /**
+     * Like an activity in one statement, whether or not it is already liked
+     * @return 1 if a like was added, 0 if it already existed, -1 if there is no such activity
+     */
+    @Query(value = """
+            WITH target AS (
+                SELECT a.id FROM activities a WHERE a.id = :activityId
+            ),
+            inserted AS (
+                INSERT INTO activity_likes (activity_id, user_id)
+                SELECT t.id, :userId FROM target t
+                ON CONFLICT (activity_id, user_id) DO NOTHING
+                RETURNING 1
+            )
+            SELECT CASE WHEN EXISTS (SELECT 1 FROM target) THEN (SELECT COUNT(*) FROM inserted)::int ELSE -1 END
+            """, nativeQuery = true)
+    int upsertLike(Long activityId, Long userId);
+
+    /**
+     * The user's likes on the newest activities, as activity ids in descending order
+     * (idx_activity_likes_user_activity)
+     */
+    @Query(value = """
+            SELECT al.activity_id FROM activity_likes al
+            WHERE al.user_id = :userId
+            ORDER BY al.activity_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findRecentLikedActivityIds(Long userId, int limit);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM activity_likes WHERE activity_id = :activityId AND user_id = :userId",
+            nativeQuery = true)
+    int deleteLike(Long activityId, Long userId);
+}
@@ -0,0 +1,95 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.Activity;
+import com.pinyourword.william.repository.projection.CounterDriftView;
+import com.pinyourword.william.repository.projection.FeedActivityView;
+import com.pinyourword.william.repository.projection.FeedEntryView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ActivityRepository extends JpaRepository<Activity, Long> {
+
+    /**
+     * Activities of a feed page with their actors, in one query.
+     * activity_type is a Postgres enum, so it is read back as text.
+     */
+    @Query(value = """
+            SELECT a.id AS "id",
+                   a.activity_type::text AS "activityType",
+                   a.object_id AS "objectId",
+                   a.object_type AS "objectType",
+                   a.caption AS "caption",
+                   a.metadata::text AS "metadata",
+                   a.likes_count AS "likesCount",
+                   a.comments_count AS "commentsCount",
+                   a.created_at AS "createdAt",
+                   u.id AS "actorId",
+                   u.uuid AS "actorUuid",
+                   u.username AS "actorUsername",
+                   u.display_name AS "actorDisplayName",
+                   u.avatar_url AS "actorAvatarUrl"
+            FROM activities a
+            JOIN users u ON u.id = a.actor_id
+            WHERE a.id IN (:ids)
+              AND u.deleted_at IS NULL
+            """, nativeQuery = true)
+    List<FeedActivityView> findFeedActivities(Collection<Long> ids);
+
+    /**
+     * An activity as a feed entry, i.e. at the position it takes in every feed it is pushed to
+     */
+    @Query(value = """
+            SELECT a.id AS "activityId",
+                   a.created_at AS "feedTimestamp",
+                   false AS "seen"
+            FROM activities a
+            WHERE a.id = :activityId
+            """, nativeQuery = true)
+    Optional<FeedEntryView> findFeedEntry(Long activityId);
+
+    /**
+     * Recent feed activities of the given actors strictly before a feed position, as feed
+     * entries. Used to merge in, at read time, actors whose activities are not pushed.
+     */
+    @Query(value = """
+            SELECT a.id AS "activityId",
+                   a.created_at AS "feedTimestamp",
+                   false AS "seen"
+            FROM activities a
+            WHERE a.actor_id IN (:actorIds)
+              AND a.activity_type::text IN (:types)
+              AND (a.created_at, a.id) < (:before, :beforeId)
+            ORDER BY a.created_at DESC, a.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FeedEntryView> findFeedEntriesByActors(Collection<Long> actorIds, Collection<String> types,
+                                                Instant before, Long beforeId, int limit);
+
+    @Query(value = "SELECT COALESCE(MAX(a.id), 0) FROM activities a", nativeQuery = true)
+    long findMaxId();
+
+    /**
+     * Activities with id in (fromId, toId] whose stored like or comment count differs from
+     * the exact count
+     */
+    @Query(value = """
+            SELECT r.id AS "id", r.likes - r.likes_count AS "likes", r.comments - r.comments_count AS "comments"
+            FROM (
+                SELECT x.id, x.likes_count, x.comments_count,
+                       (SELECT COUNT(*) FROM activity_likes l WHERE l.activity_id = x.id) AS likes,
+                       (SELECT COUNT(*) FROM activity_comments c
+                        WHERE c.activity_id = x.id AND c.deleted_at IS NULL) AS comments
+                FROM activities x
+                WHERE x.id > :fromId AND x.id <= :toId
+            ) r
+            WHERE r.likes <> r.likes_count OR r.comments <> r.comments_count
+            """, nativeQuery = true)
+    List<CounterDriftView> findCounterDrift(long fromId, long toId);
+}
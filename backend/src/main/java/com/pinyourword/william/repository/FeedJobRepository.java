@@ -0,0 +1,92 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.FeedJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface FeedJobRepository extends JpaRepository<FeedJob, Long> {
+
+    /**
+     * Lock up to {@code limit} due jobs, skipping rows locked by other workers.
+     * Must run in the caller's transaction, followed by {@link #markRunning}.
+     */
+    @Query(value = """
+            SELECT * FROM feed_jobs
+            WHERE status = 'queued' AND run_after <= NOW()
+            ORDER BY run_after, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<FeedJob> lockDueJobs(int limit);
+
+    @Modifying
+    @Query(value = """
+            UPDATE feed_jobs
+            SET status = 'running', attempts = attempts + 1, locked_at = NOW(), updated_at = NOW()
+            WHERE id IN (:ids)
+            """, nativeQuery = true)
+    int markRunning(List<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE feed_jobs
+            SET status = 'done', locked_at = NULL, last_error = NULL, updated_at = NOW()
+            WHERE id = :id
+            """, nativeQuery = true)
+    int markDone(Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE feed_jobs
+            SET status = 'queued', locked_at = NULL, last_error = :error,
+                run_after = NOW() + make_interval(secs => :delaySeconds), updated_at = NOW()
+            WHERE id = :id
+            """, nativeQuery = true)
+    int reschedule(Long id, String error, double delaySeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE feed_jobs
+            SET status = 'failed', locked_at = NULL, last_error = :error, updated_at = NOW()
+            WHERE id = :id
+            """, nativeQuery = true)
+    int markFailed(Long id, String error);
+
+    /**
+     * Put back jobs whose worker died mid-run so they are picked up again
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE feed_jobs
+            SET status = 'queued', locked_at = NULL, updated_at = NOW()
+            WHERE status = 'running' AND locked_at < NOW() - make_interval(secs => :timeoutSeconds)
+            """, nativeQuery = true)
+    int releaseStaleJobs(double timeoutSeconds);
+
+    /**
+     * Delete up to {@code limit} jobs in {@code status} last touched before {@code before}
+     * (idx_feed_jobs_finished)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM feed_jobs
+            WHERE id IN (
+                SELECT id FROM feed_jobs
+                WHERE status = :status AND updated_at < :before
+                LIMIT :limit
+            )
+            """, nativeQuery = true)
+    int deleteFinished(String status, Instant before, int limit);
+}
@@ -0,0 +1,63 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.FollowRelationship;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FollowRelationshipRepository
+        extends JpaRepository<FollowRelationship, FollowRelationship.FollowRelationshipId> {
+
+    /**
+     * @return 1 if the follow was created, 0 if it already existed
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO follow_relationships (follower_id, following_id)
+            VALUES (:followerId, :followingId)
+            ON CONFLICT (follower_id, following_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertFollow(Long followerId, Long followingId);
+
+    /**
+     * @return 1 if the follow was removed, 0 if there was none
+     */
+    @Modifying
+    @Query(value = "DELETE FROM follow_relationships WHERE follower_id = :followerId AND following_id = :followingId",
+            nativeQuery = true)
+    int deleteFollow(Long followerId, Long followingId);
+
+    @Query(value = """
+            SELECT EXISTS (SELECT 1 FROM follow_relationships
+                           WHERE follower_id = :followerId AND following_id = :followingId)
+            """, nativeQuery = true)
+    boolean existsFollow(Long followerId, Long followingId);
+
+    /**
+     * Next batch of a user's follower ids after {@code afterId}, ascending (idx_follow_following_follower)
+     */
+    @Query(value = """
+            SELECT fr.follower_id FROM follow_relationships fr
+            WHERE fr.following_id = :userId AND fr.follower_id > :afterId
+            ORDER BY fr.follower_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findFollowerIdsAfter(Long userId, Long afterId, int limit);
+
+    /**
+     * Accounts the user follows that have at least {@code threshold} followers;
+     * their activities are not pushed and must be pulled at read time
+     */
+    @Query(value = """
+            SELECT fr.following_id FROM follow_relationships fr
+            JOIN users u ON u.id = fr.following_id
+            WHERE fr.follower_id = :followerId
+              AND u.followers_count >= :threshold
+              AND u.deleted_at IS NULL
+            """, nativeQuery = true)
+    List<Long> findFollowedCelebrityIds(Long followerId, int threshold);
+}
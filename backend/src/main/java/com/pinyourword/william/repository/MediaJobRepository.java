@@ -0,0 +1,88 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.MediaJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface MediaJobRepository extends JpaRepository<MediaJob, Long> {
+
+    /**
+     * Queue a job; a media item has at most one job of each type
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO media_jobs (media_id, job_type)
+            VALUES (:mediaId, :jobType)
+            ON CONFLICT (media_id, job_type) DO NOTHING
+            """, nativeQuery = true)
+    int enqueue(Long mediaId, String jobType);
+
+    /**
+     * Lock up to {@code limit} due jobs. Rows locked by other workers are skipped,
+     * so concurrent pollers never receive the same job. Must run in the caller's
+     * transaction, followed by {@link #markRunning}.
+     */
+    @Query(value = """
+            SELECT * FROM media_jobs
+            WHERE status = 'queued' AND run_after <= NOW()
+            ORDER BY run_after, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<MediaJob> lockDueJobs(int limit);
+
+    @Modifying
+    @Query(value = """
+            UPDATE media_jobs
+            SET status = 'running', attempts = attempts + 1, locked_at = NOW(), updated_at = NOW()
+            WHERE id IN (:ids)
+            """, nativeQuery = true)
+    int markRunning(List<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE media_jobs
+            SET status = 'done', locked_at = NULL, last_error = NULL, updated_at = NOW()
+            WHERE id = :id
+            """, nativeQuery = true)
+    int markDone(Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE media_jobs
+            SET status = 'queued', locked_at = NULL, last_error = :error,
+                run_after = NOW() + make_interval(secs => :delaySeconds), updated_at = NOW()
+            WHERE id = :id
+            """, nativeQuery = true)
+    int reschedule(Long id, String error, double delaySeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE media_jobs
+            SET status = 'failed', locked_at = NULL, last_error = :error, updated_at = NOW()
+            WHERE id = :id
+            """, nativeQuery = true)
+    int markFailed(Long id, String error);
+
+    /**
+     * Put back jobs whose worker died mid-run (crash, restart) so they are picked up again
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE media_jobs
+            SET status = 'queued', locked_at = NULL, updated_at = NOW()
+            WHERE status = 'running' AND locked_at < NOW() - make_interval(secs => :timeoutSeconds)
+            """, nativeQuery = true)
+    int releaseStaleJobs(double timeoutSeconds);
+}
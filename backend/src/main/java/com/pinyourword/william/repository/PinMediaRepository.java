@@ -0,0 +1,79 @@
+package com.pinyourword.william.repository;
+
+
+import com.pinyourword.william.entity.PinMedia;
+import com.pinyourword.william.repository.projection.PinPhotoView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Repository
+public interface PinMediaRepository extends JpaRepository<PinMedia, Long> {
+
+    @Query("SELECT m FROM PinMedia m WHERE m.pin.id = :pinId ORDER BY m.uploadOrder ASC")
+    List<PinMedia> findAllByPinIdOrdered(Long pinId);
+
+    long countByPinId(Long pinId);
+
+    /**
+     * Cover photo (thumbnail when generated) and photo count of each pin, in one pass
+     * over idx_pin_media_pin_order
+     */
+    @Query(value = """
+            SELECT DISTINCT ON (pm.pin_id)
+                   pm.pin_id AS "pinId",
+                   COALESCE(pm.thumbnail_url, pm.storage_url) AS "url",
+                   COUNT(*) OVER (PARTITION BY pm.pin_id) AS "photoCount"
+            FROM pin_media pm
+            WHERE pm.pin_id IN (:pinIds) AND pm.status = 'ready'
+            ORDER BY pm.pin_id, pm.upload_order
+            """, nativeQuery = true)
+    List<PinPhotoView> findCoverPhotos(Collection<Long> pinIds);
+
+    /**
+     * Oldest rows staged on {@code stagingNode} and still pending since before {@code cutoff}
+     * (idx_pin_media_staging_node)
+     */
+    @Query(value = """
+            SELECT * FROM pin_media
+            WHERE status = 'pending' AND staging_node = :stagingNode AND created_at < :cutoff
+            ORDER BY created_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<PinMedia> findPendingCreatedBefore(String stagingNode, LocalDateTime cutoff, int limit);
+
+    /**
+     * Mark failed every row, whichever instance staged it, still pending since before
+     * {@code cutoff} (idx_pin_media_status)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE pin_media SET status = 'failed' WHERE status = 'pending' AND created_at < :cutoff",
+            nativeQuery = true)
+    int failPendingCreatedBefore(LocalDateTime cutoff);
+
+    @Query("SELECT m.uuid FROM PinMedia m WHERE m.status = 'pending' AND m.uuid IN :uuids")
+    Set<UUID> findPendingUuids(Collection<UUID> uuids);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PinMedia m SET m.status = :status WHERE m.id = :id")
+    int updateStatus(Long id, String status);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE pin_media
+            SET thumbnail_url = :thumbnailUrl, variants = CAST(:variants AS jsonb)
+            WHERE id = :id
+            """, nativeQuery = true)
+    int updateVariants(Long id, String thumbnailUrl, String variants);
+}
@@ -1,12 +1,19 @@
 package com.pinyourword.william.repository;
 
 
+import com.pinyourword.william.dto.request.PinScope;
 import com.pinyourword.william.entity.Pin;
-import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.repository.projection.PinClusterView;
+import com.pinyourword.william.repository.projection.PinMarkerView;
+import com.pinyourword.william.repository.projection.PinSummaryView;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,6 +21,277 @@ import java.util.UUID;
 @Repository
 public interface PinRepository extends JpaRepository<Pin, Long> {
 
-    List<Pin> findAllByUserId(Long user);
+    String PIN_SUMMARY_COLUMNS = """
+            p.id AS "id",
+            p.uuid AS "uuid",
+            p.place_name AS "placeName",
+            p.place_id_google AS "placeIdGoogle",
+            ST_Y(p.location::geometry) AS "latitude",
+            ST_X(p.location::geometry) AS "longitude",
+            p.address_formatted AS "addressFormatted",
+            p.address_city AS "addressCity",
+            p.address_country AS "addressCountry",
+            p.address_country_code AS "addressCountryCode",
+            p.status AS "status",
+            p.notes AS "notes",
+            p.visited_date AS "visitedDate",
+            p.rating AS "rating",
+            p.is_favorite AS "isFavorite",
+            p.created_at AS "createdAt"
+            """;
 
+    /*
+     * Scope filters. Each scope has its own queries rather than one query switching on a
+     * :scope parameter, so the planner gets a plan per scope. Drafts are only visible to
+     * their owner; other users' pins only while the owner is not deleted and, for
+     * 'following', not private.
+     */
+    String SELF_FILTER = """
+            AND p.user_id = :viewerId
+            """;
+
+    String FOLLOWING_FILTER = """
+            AND p.status <> 'draft'
+            AND p.user_id IN (
+                SELECT fr.following_id
+                FROM follow_relationships fr
+                JOIN users u ON u.id = fr.following_id
+                WHERE fr.follower_id = :viewerId
+                  AND u.deleted_at IS NULL
+                  AND u.profile_visibility <> 'private')
+            """;
+
+    String PUBLIC_FILTER = """
+            AND p.status <> 'draft'
+            AND p.user_id IN (
+                SELECT u.id FROM users u WHERE u.profile_visibility = 'public' AND u.deleted_at IS NULL)
+            """;
+
+    String MARKERS_IN_ENVELOPE = """
+            SELECT p.uuid AS "uuid",
+                   ST_Y(p.location::geometry) AS "latitude",
+                   ST_X(p.location::geometry) AS "longitude",
+                   p.status AS "status"
+            FROM pins p
+            WHERE (p.location::geometry && ST_MakeEnvelope(:westMinLon, :minLat, :westMaxLon, :maxLat, 4326)
+                OR p.location::geometry && ST_MakeEnvelope(:eastMinLon, :minLat, :eastMaxLon, :maxLat, 4326))
+            """;
+
+    // Newest first, so a truncated viewport shows the same pins on every request
+    String MARKERS_ORDER = """
+            ORDER BY p.created_at DESC, p.id DESC
+            LIMIT :limit
+            """;
+
+    String CLUSTERS_IN_ENVELOPE = """
+            SELECT COUNT(*) AS "count",
+                   AVG(ST_Y(p.location::geometry)) AS "latitude",
+                   AVG(ST_X(p.location::geometry)) AS "longitude",
+                   MIN(p.uuid::text) AS "pinUuid",
+                   MIN(p.status) AS "status"
+            FROM pins p
+            WHERE (p.location::geometry && ST_MakeEnvelope(:westMinLon, :minLat, :westMaxLon, :maxLat, 4326)
+                OR p.location::geometry && ST_MakeEnvelope(:eastMinLon, :minLat, :eastMaxLon, :maxLat, 4326))
+            """;
+
+    String CLUSTERS_ORDER = """
+            GROUP BY ST_SnapToGrid(p.location::geometry, :cellSize)
+            ORDER BY COUNT(*) DESC, MIN(p.id)
+            LIMIT :limit
+            """;
+
+    String NEARBY = "SELECT " + PIN_SUMMARY_COLUMNS + """
+            FROM pins p
+            WHERE ST_DWithin(p.location, ST_SetSRID(ST_MakePoint(:lon, :lat), 4326)::geography, :radius, false)
+              AND (CAST(:status AS varchar) IS NULL OR p.status = CAST(:status AS varchar))
+            """;
+
+    String NEARBY_ORDER = """
+            ORDER BY p.location <-> ST_SetSRID(ST_MakePoint(:lon, :lat), 4326)::geography
+            LIMIT :limit
+            """;
+
+    String TILE = """
+            WITH bounds AS (
+                SELECT ST_TileEnvelope(:z, :x, :y) AS tile,
+                       ST_Transform(ST_TileEnvelope(:z, :x, :y, margin => :margin), 4326) AS filter
+            ),
+            tile_pins AS (
+                SELECT ST_AsMVTGeom(ST_Transform(p.location::geometry, 3857), b.tile, :extent, :buffer, true) AS geom,
+                       p.uuid::text AS uuid,
+                       p.status AS status
+                FROM pins p, bounds b
+                WHERE p.location::geometry && b.filter
+            """;
+
+    String TILE_ORDER = """
+                ORDER BY p.created_at DESC, p.id DESC
+                LIMIT :limit
+            )
+            SELECT ST_AsMVT(tile_pins, 'pins', :extent, 'geom') FROM tile_pins
+            """;
+
+    Optional<Pin> findByUuid(UUID uuid);
+
+    /**
+     * The pin with this uuid, locked so two writes to it cannot both take a snapshot of the
+     * same old state and count the change twice
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Pin p WHERE p.uuid = :uuid")
+    Optional<Pin> findByUuidForUpdate(UUID uuid);
+
+    /**
+     * First page of a user's pins, newest first (idx_pins_user_created)
+     */
+    @Query(value = "SELECT " + PIN_SUMMARY_COLUMNS + """
+            FROM pins p
+            WHERE p.user_id = :userId
+            ORDER BY p.created_at DESC, p.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<PinSummaryView> findPinSummariesByUser(Long userId, int limit);
+
+    /**
+     * Next page of a user's pins, strictly after the (created_at, id) cursor
+     */
+    @Query(value = "SELECT " + PIN_SUMMARY_COLUMNS + """
+            FROM pins p
+            WHERE p.user_id = :userId
+              AND (p.created_at, p.id) < (:createdAt, :id)
+            ORDER BY p.created_at DESC, p.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<PinSummaryView> findPinSummariesByUserBefore(Long userId, LocalDateTime createdAt, Long id, int limit);
+
+    @Query(value = "SELECT " + PIN_SUMMARY_COLUMNS + """
+            FROM pins p
+            WHERE p.id IN (:ids)
+            """, nativeQuery = true)
+    List<PinSummaryView> findPinSummariesByIds(Collection<Long> ids);
+
+    /**
+     * Pins of a scope inside a viewport, as one bounding-box scan of idx_pins_location_geom_gist.
+     * The viewport is passed as two envelopes so that a box crossing the antimeridian
+     * can be split in half; callers pass the same envelope twice otherwise.
+     */
+    default List<PinMarkerView> findMarkersInEnvelope(double minLat, double maxLat,
+                                                      double westMinLon, double westMaxLon,
+                                                      double eastMinLon, double eastMaxLon,
+                                                      PinScope scope, Long viewerId, int limit) {
+        return switch (scope) {
+            case SELF -> findOwnMarkersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                    eastMinLon, eastMaxLon, viewerId, limit);
+            case FOLLOWING -> findFollowedMarkersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                    eastMinLon, eastMaxLon, viewerId, limit);
+            case PUBLIC -> findPublicMarkersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                    eastMinLon, eastMaxLon, limit);
+        };
+    }
+
+    @Query(value = MARKERS_IN_ENVELOPE + SELF_FILTER + MARKERS_ORDER, nativeQuery = true)
+    List<PinMarkerView> findOwnMarkersInEnvelope(double minLat, double maxLat,
+                                                 double westMinLon, double westMaxLon,
+                                                 double eastMinLon, double eastMaxLon,
+                                                 Long viewerId, int limit);
+
+    @Query(value = MARKERS_IN_ENVELOPE + FOLLOWING_FILTER + MARKERS_ORDER, nativeQuery = true)
+    List<PinMarkerView> findFollowedMarkersInEnvelope(double minLat, double maxLat,
+                                                      double westMinLon, double westMaxLon,
+                                                      double eastMinLon, double eastMaxLon,
+                                                      Long viewerId, int limit);
+
+    @Query(value = MARKERS_IN_ENVELOPE + PUBLIC_FILTER + MARKERS_ORDER, nativeQuery = true)
+    List<PinMarkerView> findPublicMarkersInEnvelope(double minLat, double maxLat,
+                                                    double westMinLon, double westMaxLon,
+                                                    double eastMinLon, double eastMaxLon,
+                                                    int limit);
+
+    /**
+     * Pins of a scope inside a viewport aggregated on a square lon/lat grid of {@code cellSize}
+     * degrees. Each row is one non-empty cell with its pin count and centroid; the biggest cells
+     * come first so that the row cap drops the least significant ones.
+     */
+    default List<PinClusterView> findClustersInEnvelope(double minLat, double maxLat,
+                                                        double westMinLon, double westMaxLon,
+                                                        double eastMinLon, double eastMaxLon,
+                                                        PinScope scope, Long viewerId,
+                                                        double cellSize, int limit) {
+        return switch (scope) {
+            case SELF -> findOwnClustersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                    eastMinLon, eastMaxLon, viewerId, cellSize, limit);
+            case FOLLOWING -> findFollowedClustersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                    eastMinLon, eastMaxLon, viewerId, cellSize, limit);
+            case PUBLIC -> findPublicClustersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                    eastMinLon, eastMaxLon, cellSize, limit);
+        };
+    }
+
+    @Query(value = CLUSTERS_IN_ENVELOPE + SELF_FILTER + CLUSTERS_ORDER, nativeQuery = true)
+    List<PinClusterView> findOwnClustersInEnvelope(double minLat, double maxLat,
+                                                   double westMinLon, double westMaxLon,
+                                                   double eastMinLon, double eastMaxLon,
+                                                   Long viewerId, double cellSize, int limit);
+
+    @Query(value = CLUSTERS_IN_ENVELOPE + FOLLOWING_FILTER + CLUSTERS_ORDER, nativeQuery = true)
+    List<PinClusterView> findFollowedClustersInEnvelope(double minLat, double maxLat,
+                                                        double westMinLon, double westMaxLon,
+                                                        double eastMinLon, double eastMaxLon,
+                                                        Long viewerId, double cellSize, int limit);
+
+    @Query(value = CLUSTERS_IN_ENVELOPE + PUBLIC_FILTER + CLUSTERS_ORDER, nativeQuery = true)
+    List<PinClusterView> findPublicClustersInEnvelope(double minLat, double maxLat,
+                                                      double westMinLon, double westMaxLon,
+                                                      double eastMinLon, double eastMaxLon,
+                                                      double cellSize, int limit);
+
+    /**
+     * Pins of a scope within {@code radius} meters of a point, nearest first.
+     * ST_DWithin on geography and the KNN {@code <->} ordering both run on idx_pins_location_gist.
+     * The radius is measured on the sphere (use_spheroid false), like the KNN ordering and
+     * {@link com.pinyourword.william.util.GeoUtils#haversineMeters}, so callers can compute
+     * distances in the JVM without disagreeing with the filter.
+     */
+    default List<PinSummaryView> findNearby(double lat, double lon, double radius, String status,
+                                            PinScope scope, Long viewerId, int limit) {
+        return switch (scope) {
+            case SELF -> findOwnNearby(lat, lon, radius, status, viewerId, limit);
+            case FOLLOWING -> findFollowedNearby(lat, lon, radius, status, viewerId, limit);
+            case PUBLIC -> findPublicNearby(lat, lon, radius, status, limit);
+        };
+    }
+
+    @Query(value = NEARBY + SELF_FILTER + NEARBY_ORDER, nativeQuery = true)
+    List<PinSummaryView> findOwnNearby(double lat, double lon, double radius, String status,
+                                       Long viewerId, int limit);
+
+    @Query(value = NEARBY + FOLLOWING_FILTER + NEARBY_ORDER, nativeQuery = true)
+    List<PinSummaryView> findFollowedNearby(double lat, double lon, double radius, String status,
+                                            Long viewerId, int limit);
+
+    @Query(value = NEARBY + PUBLIC_FILTER + NEARBY_ORDER, nativeQuery = true)
+    List<PinSummaryView> findPublicNearby(double lat, double lon, double radius, String status, int limit);
+
+    /**
+     * Mapbox Vector Tile with a single "pins" layer for tile z/x/y and a scope.
+     * Points are filtered on the tile envelope grown by the render buffer, so markers
+     * sitting on a tile edge are drawn on both neighbours.
+     */
+    default byte[] findPinTile(int z, int x, int y, int extent, int buffer, double margin,
+                               PinScope scope, Long viewerId, int limit) {
+        return switch (scope) {
+            case SELF -> findOwnPinTile(z, x, y, extent, buffer, margin, viewerId, limit);
+            case FOLLOWING -> findFollowedPinTile(z, x, y, extent, buffer, margin, viewerId, limit);
+            case PUBLIC -> findPublicPinTile(z, x, y, extent, buffer, margin, limit);
+        };
+    }
+
+    @Query(value = TILE + SELF_FILTER + TILE_ORDER, nativeQuery = true)
+    byte[] findOwnPinTile(int z, int x, int y, int extent, int buffer, double margin, Long viewerId, int limit);
+
+    @Query(value = TILE + FOLLOWING_FILTER + TILE_ORDER, nativeQuery = true)
+    byte[] findFollowedPinTile(int z, int x, int y, int extent, int buffer, double margin, Long viewerId, int limit);
+
+    @Query(value = TILE + PUBLIC_FILTER + TILE_ORDER, nativeQuery = true)
+    byte[] findPublicPinTile(int z, int x, int y, int extent, int buffer, double margin, int limit);
 }
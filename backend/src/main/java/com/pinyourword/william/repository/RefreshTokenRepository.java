@@ -0,0 +1,40 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * The token with this hash, locked so two refreshes with it cannot both rotate it
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t WHERE t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHashForUpdate(String tokenHash);
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    @Modifying
+    @Query(value = "UPDATE refresh_tokens SET revoked_at = now() WHERE family_id = :familyId AND revoked_at IS NULL",
+            nativeQuery = true)
+    int revokeFamily(UUID familyId);
+
+    @Modifying
+    @Query(value = "UPDATE refresh_tokens SET revoked_at = now() WHERE user_id = :userId AND revoked_at IS NULL",
+            nativeQuery = true)
+    int revokeAllOfUser(Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE expires_at < :before", nativeQuery = true)
+    int deleteExpired(Instant before);
+}
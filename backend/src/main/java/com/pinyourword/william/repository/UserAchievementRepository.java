@@ -0,0 +1,28 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.UserAchievement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserAchievementRepository extends JpaRepository<UserAchievement, Long> {
+
+    /**
+     * Claim an achievement for a user.
+     * @return 1 if it was claimed now, 0 if the user already had it
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_achievements (user_id, code)
+            VALUES (:userId, :code)
+            ON CONFLICT (user_id, code) DO NOTHING
+            """, nativeQuery = true)
+    int claim(Long userId, String code);
+
+    @Modifying
+    @Query(value = "UPDATE user_achievements SET activity_id = :activityId WHERE user_id = :userId AND code = :code",
+            nativeQuery = true)
+    int attachActivity(Long userId, String code, Long activityId);
+}
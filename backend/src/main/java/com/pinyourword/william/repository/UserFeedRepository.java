@@ -0,0 +1,116 @@
+package com.pinyourword.william.repository;
+
+import com.pinyourword.william.entity.UserFeed;
+import com.pinyourword.william.repository.projection.FeedEntryView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserFeedRepository extends JpaRepository<UserFeed, Long> {
+
+    /**
+     * First page of a user's feed, newest first (idx_user_feeds_user_ts_activity)
+     */
+    @Query(value = """
+            SELECT uf.activity_id AS "activityId",
+                   uf.feed_timestamp AS "feedTimestamp",
+                   uf.is_seen AS "seen"
+            FROM user_feeds uf
+            WHERE uf.user_id = :userId
+            ORDER BY uf.feed_timestamp DESC, uf.activity_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FeedEntryView> findFeedPage(Long userId, int limit);
+
+    /**
+     * Next page of a user's feed, strictly after the (feed_timestamp, activity_id) cursor
+     */
+    @Query(value = """
+            SELECT uf.activity_id AS "activityId",
+                   uf.feed_timestamp AS "feedTimestamp",
+                   uf.is_seen AS "seen"
+            FROM user_feeds uf
+            WHERE uf.user_id = :userId
+              AND (uf.feed_timestamp, uf.activity_id) < (:feedTimestamp, :activityId)
+            ORDER BY uf.feed_timestamp DESC, uf.activity_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FeedEntryView> findFeedPageBefore(Long userId, Instant feedTimestamp, Long activityId, int limit);
+
+    /**
+     * Put an activity in one user's feed, at the activity's creation time
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO user_feeds (user_id, activity_id, feed_timestamp)
+            SELECT :userId, a.id, a.created_at FROM activities a WHERE a.id = :activityId
+            ON CONFLICT (user_id, activity_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertEntry(Long userId, Long activityId);
+
+    /**
+     * Push an activity to the followers of its actor whose id is in (fromFollowerId, toFollowerId].
+     * One bounded statement per batch, each in its own short transaction.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO user_feeds (user_id, activity_id, feed_timestamp)
+            SELECT fr.follower_id, a.id, a.created_at
+            FROM follow_relationships fr
+            JOIN activities a ON a.id = :activityId
+            WHERE fr.following_id = a.actor_id
+              AND fr.follower_id > :fromFollowerId
+              AND fr.follower_id <= :toFollowerId
+            ON CONFLICT (user_id, activity_id) DO NOTHING
+            """, nativeQuery = true)
+    int fanOutToFollowers(Long activityId, Long fromFollowerId, Long toFollowerId);
+
+    /**
+     * Copy the latest feed activities of an account into a follower's feed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO user_feeds (user_id, activity_id, feed_timestamp)
+            SELECT :followerId, a.id, a.created_at
+            FROM activities a
+            WHERE a.actor_id = :followingId
+              AND a.activity_type::text IN (:types)
+            ORDER BY a.created_at DESC, a.id DESC
+            LIMIT :limit
+            ON CONFLICT (user_id, activity_id) DO NOTHING
+            """, nativeQuery = true)
+    int backfill(Long followerId, Long followingId, Collection<String> types, int limit);
+
+    /**
+     * Remove up to {@code limit} of an account's activities from a follower's feed.
+     * Walks the follower's feed rows rather than the account's whole history.
+     * Deletes nothing once the follow exists again, so a chunk cannot race a re-follow
+     * that commits after the job checked the follow state.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM user_feeds
+            WHERE id IN (
+                SELECT uf.id FROM user_feeds uf
+                JOIN activities a ON a.id = uf.activity_id
+                WHERE uf.user_id = :followerId AND a.actor_id = :followingId
+                LIMIT :limit
+            )
+            AND NOT EXISTS (
+                SELECT 1 FROM follow_relationships fr
+                WHERE fr.follower_id = :followerId AND fr.following_id = :followingId
+            )
+            """, nativeQuery = true)
+    int deleteChunk(Long followerId, Long followingId, int limit);
+}
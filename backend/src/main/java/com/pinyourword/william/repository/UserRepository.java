@@ -2,10 +2,16 @@ package com.pinyourword.william.repository;
 
 
 import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.repository.projection.AccountTakenView;
+import com.pinyourword.william.repository.projection.UserSummaryView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -40,4 +46,57 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByGoogleId(String googleId);
     
     Optional<User> findByAppleId(String appleId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE users SET hashed_password = :hashedPassword, updated_at = now() WHERE id = :id",
+            nativeQuery = true)
+    int updateHashedPassword(Long id, String hashedPassword);
+
+    @Query(value = "SELECT COALESCE((SELECT followers_count FROM users WHERE id = :id), 0)", nativeQuery = true)
+    int findFollowersCount(Long id);
+
+    @Modifying
+    @Query(value = "UPDATE users SET followers_count = GREATEST(followers_count + :delta, 0) WHERE id = :id",
+            nativeQuery = true)
+    int addFollowersCount(Long id, int delta);
+
+    /**
+     * Public identities of the given users in one query; deleted users are left out
+     */
+    @Query(value = """
+            SELECT u.id AS "id",
+                   u.uuid AS "uuid",
+                   u.username AS "username",
+                   u.display_name AS "displayName",
+                   u.avatar_url AS "avatarUrl"
+            FROM users u
+            WHERE u.id IN (:ids)
+              AND u.deleted_at IS NULL
+            """, nativeQuery = true)
+    List<UserSummaryView> findSummariesByIds(Collection<Long> ids);
+
+    /**
+     * Both uniqueness checks of a registration in one round trip; a null value is not checked
+     */
+    @Query(value = """
+            SELECT EXISTS (SELECT 1 FROM users WHERE email = CAST(:email AS VARCHAR)) AS "emailTaken",
+                   EXISTS (SELECT 1 FROM users WHERE username = CAST(:username AS VARCHAR)) AS "usernameTaken"
+            """, nativeQuery = true)
+    AccountTakenView findTaken(String email, String username);
+
+    /**
+     * Usernames starting with {@code prefix}, a LIKE pattern escaped with a backslash
+     */
+    @Query(value = "SELECT username FROM users WHERE username LIKE CONCAT(:prefix, '%') ESCAPE '\\'",
+            nativeQuery = true)
+    List<String> findUsernamesStartingWith(String prefix);
+
+    /**
+     * Invalidate every access token issued to the user so far
+     * @return the user's new epoch
+     */
+    @Query(value = "UPDATE users SET token_epoch = token_epoch + 1 WHERE id = :id RETURNING token_epoch",
+            nativeQuery = true)
+    int incrementTokenEpoch(Long id);
 }
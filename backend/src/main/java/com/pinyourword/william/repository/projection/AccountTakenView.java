@@ -0,0 +1,11 @@
+package com.pinyourword.william.repository.projection;
+
+/**
+ * Whether an email and a username already belong to an account, deleted ones included
+ */
+public interface AccountTakenView {
+
+    Boolean getEmailTaken();
+
+    Boolean getUsernameTaken();
+}
@@ -0,0 +1,21 @@
+package com.pinyourword.william.repository.projection;
+
+import java.time.Instant;
+
+/**
+ * A comment without its author, who is loaded in a batch for the whole page
+ */
+public interface CommentView {
+
+    Long getId();
+
+    Long getActivityId();
+
+    Long getParentCommentId();
+
+    Long getAuthorId();
+
+    String getContent();
+
+    Instant getCreatedAt();
+}
@@ -0,0 +1,14 @@
+package com.pinyourword.william.repository.projection;
+
+/**
+ * How far an activity's stored like and comment counts are from the exact counts
+ * (exact minus stored)
+ */
+public interface CounterDriftView {
+
+    Long getId();
+
+    Long getLikes();
+
+    Long getComments();
+}
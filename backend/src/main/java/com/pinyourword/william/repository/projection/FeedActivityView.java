@@ -0,0 +1,39 @@
+package com.pinyourword.william.repository.projection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An activity joined with its actor, as shown in the feed
+ */
+public interface FeedActivityView {
+
+    Long getId();
+
+    String getActivityType();
+
+    Long getObjectId();
+
+    String getObjectType();
+
+    String getCaption();
+
+    // JSON text of the metadata column
+    String getMetadata();
+
+    Integer getLikesCount();
+
+    Integer getCommentsCount();
+
+    Instant getCreatedAt();
+
+    Long getActorId();
+
+    UUID getActorUuid();
+
+    String getActorUsername();
+
+    String getActorDisplayName();
+
+    String getActorAvatarUrl();
+}
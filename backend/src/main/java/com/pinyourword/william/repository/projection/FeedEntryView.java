@@ -0,0 +1,15 @@
+package com.pinyourword.william.repository.projection;
+
+import java.time.Instant;
+
+/**
+ * One user_feeds row: the position of an activity in a user's feed
+ */
+public interface FeedEntryView {
+
+    Long getActivityId();
+
+    Instant getFeedTimestamp();
+
+    Boolean getSeen();
+}
@@ -0,0 +1,17 @@
+package com.pinyourword.william.repository.projection;
+
+/**
+ * One grid cell of clustered pins
+ */
+public interface PinClusterView {
+
+    Long getCount();
+
+    Double getLatitude();
+
+    Double getLongitude();
+
+    String getPinUuid();
+
+    String getStatus();
+}
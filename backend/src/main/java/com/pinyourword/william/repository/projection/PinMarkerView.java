@@ -0,0 +1,17 @@
+package com.pinyourword.william.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Minimal pin projection for drawing a map marker
+ */
+public interface PinMarkerView {
+
+    UUID getUuid();
+
+    Double getLatitude();
+
+    Double getLongitude();
+
+    String getStatus();
+}
@@ -0,0 +1,13 @@
+package com.pinyourword.william.repository.projection;
+
+/**
+ * First ready photo of a pin and the pin's number of ready photos
+ */
+public interface PinPhotoView {
+
+    Long getPinId();
+
+    String getUrl();
+
+    Long getPhotoCount();
+}
@@ -0,0 +1,43 @@
+package com.pinyourword.william.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Column projection of a pin row, read without hydrating the Pin entity
+ */
+public interface PinSummaryView {
+
+    Long getId();
+
+    UUID getUuid();
+
+    String getPlaceName();
+
+    String getPlaceIdGoogle();
+
+    Double getLatitude();
+
+    Double getLongitude();
+
+    String getAddressFormatted();
+
+    String getAddressCity();
+
+    String getAddressCountry();
+
+    String getAddressCountryCode();
+
+    String getStatus();
+
+    String getNotes();
+
+    LocalDate getVisitedDate();
+
+    Short getRating();
+
+    Boolean getIsFavorite();
+
+    LocalDateTime getCreatedAt();
+}
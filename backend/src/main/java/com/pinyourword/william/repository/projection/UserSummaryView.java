@@ -0,0 +1,19 @@
+package com.pinyourword.william.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * The public identity of a user, as shown next to their content
+ */
+public interface UserSummaryView {
+
+    Long getId();
+
+    UUID getUuid();
+
+    String getUsername();
+
+    String getDisplayName();
+
+    String getAvatarUrl();
+}
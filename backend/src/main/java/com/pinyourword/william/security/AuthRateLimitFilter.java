@@ -0,0 +1,246 @@
+package com.pinyourword.william.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pinyourword.william.dto.response.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throttles the anonymous auth endpoints before they reach the database or the password hasher.
+ * <p>
+ * Every call takes a token from the bucket of its client IP, and login and registration also
+ * from the bucket of the account they name, so one address cannot hammer many accounts and many
+ * addresses cannot hammer one. The account is read from the JSON body, which is then replayed
+ * to the controller; it is keyed by digest so identifiers are not kept in memory or in the
+ * shared table. Refused calls get 429 with Retry-After. A login or registration whose account
+ * can't be read is refused before the controller (413 over the inspected size, else 400), so
+ * no call gets past the account bucket.
+ * <p>
+ * The client IP is the remote address. It is the caller's only when the proxies in front are
+ * trusted explicitly (server.forward-headers-strategy and server.tomcat.remoteip.internal-proxies).
+ */
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    // Login and registration bodies are small; larger ones are refused
+    private static final int MAX_INSPECTED_BODY = 16 * 1024;
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<String, Rule> rules;
+
+    public AuthRateLimitFilter(RateLimiter rateLimiter,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                               @Value("${app.rate-limit.login.ip:20,10}") String loginIp,
+                               @Value("${app.rate-limit.login.account:5,5}") String loginAccount,
+                               @Value("${app.rate-limit.register.ip:5,2}") String registerIp,
+                               @Value("${app.rate-limit.register.account:3,1}") String registerAccount,
+                               @Value("${app.rate-limit.social-login.ip:20,10}") String socialLoginIp,
+                               @Value("${app.rate-limit.check.ip:30,30}") String checkIp) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        RateLimiter.Limit check = RateLimiter.Limit.parse(checkIp);
+        this.rules = Map.of(
+                "POST /v1/auth/login", new Rule("login", RateLimiter.Limit.parse(loginIp),
+                        RateLimiter.Limit.parse(loginAccount), "emailOrUsername"),
+                "POST /v1/auth/register", new Rule("register", RateLimiter.Limit.parse(registerIp),
+                        RateLimiter.Limit.parse(registerAccount), "email"),
+                "POST /v1/auth/social-login", new Rule("social-login", RateLimiter.Limit.parse(socialLoginIp),
+                        null, null),
+                // Both checks share one bucket: they probe the same user list
+                "GET /v1/auth/check-email", new Rule("check", check, null, null),
+                "GET /v1/auth/check-username", new Rule("check", check, null, null));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || ruleFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Rule rule = ruleFor(request);
+        long wait = rateLimiter.tryAcquire(rule.name() + ":ip:" + request.getRemoteAddr(), rule.ipLimit());
+        if (wait > 0) {
+            reject(response, rule, "ip", wait);
+            return;
+        }
+
+        HttpServletRequest forwarded = request;
+        if (rule.accountLimit() != null) {
+            if (request.getContentLengthLong() > MAX_INSPECTED_BODY) {
+                refuse(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+                return;
+            }
+            BodyReplayingRequest replaying = new BodyReplayingRequest(request);
+            if (!replaying.complete) {
+                refuse(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+                return;
+            }
+            String account = replaying.accountField(rule.accountField());
+            if (account == null) {
+                refuse(response, HttpStatus.BAD_REQUEST, "Missing " + rule.accountField());
+                return;
+            }
+            wait = rateLimiter.tryAcquire(rule.name() + ":account:" + digest(account), rule.accountLimit());
+            if (wait > 0) {
+                reject(response, rule, "account", wait);
+                return;
+            }
+            forwarded = replaying;
+        }
+        filterChain.doFilter(forwarded, response);
+    }
+
+    private Rule ruleFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return rules.get(request.getMethod() + " " + path);
+    }
+
+    private void reject(HttpServletResponse response, Rule rule, String scope, long waitSeconds) throws IOException {
+        meterRegistry.counter("auth.rate_limited", "endpoint", rule.name(), "scope", scope).increment();
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(waitSeconds));
+        refuse(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests, please retry later");
+    }
+
+    private void refuse(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiResponse.error(message));
+    }
+
+    private static String digest(String account) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(account.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record Rule(String name, RateLimiter.Limit ipLimit, RateLimiter.Limit accountLimit, String accountField) {
+    }
+
+    /**
+     * Reads the start of the body once and hands it, followed by the rest, to the controller
+     */
+    private final class BodyReplayingRequest extends HttpServletRequestWrapper {
+
+        private final byte[] head;
+        final boolean complete;
+        private ReplayStream replay;
+
+        BodyReplayingRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            head = request.getInputStream().readNBytes(MAX_INSPECTED_BODY + 1);
+            complete = head.length <= MAX_INSPECTED_BODY;
+        }
+
+        /**
+         * A text field of the JSON body, or null when it is missing or the body can't be read
+         */
+        String accountField(String field) {
+            if (head.length == 0) {
+                return null;
+            }
+            try {
+                JsonNode value = objectMapper.readTree(head).get(field);
+                return value != null && value.isTextual() && !value.asText().isBlank() ? value.asText() : null;
+            } catch (IOException ex) {
+                // Malformed bodies are rejected by the controller
+                return null;
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (replay == null) {
+                replay = new ReplayStream(head, super.getInputStream());
+            }
+            return replay;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8.name() : encoding));
+        }
+    }
+
+    /**
+     * The bytes already read, then the rest of the request's own stream
+     */
+    private static final class ReplayStream extends ServletInputStream {
+
+        private final ByteArrayInputStream head;
+        private final ServletInputStream rest;
+
+        ReplayStream(byte[] head, ServletInputStream rest) {
+            this.head = new ByteArrayInputStream(head);
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = head.read();
+            return read >= 0 ? read : rest.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (head.available() > 0) {
+                return head.read(buffer, offset, length);
+            }
+            return rest.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return head.available() == 0 && rest.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return head.available() > 0 || rest.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            rest.setReadListener(listener);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.pinyourword.william.security;
+
+import com.pinyourword.william.exception.UnauthorizedException;
+import org.springframework.security.core.Authentication;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * The principal of a request authenticated with an access token.
+ * <p>
+ * Both ids come from signed claims of the token, so services that only need to know who is
+ * calling use {@link #id()} directly instead of loading the user by uuid first. Built once per
+ * token and cached with it.
+ *
+ * @param id users.id
+ * @param uuid users.uuid, the token's subject
+ */
+public record AuthenticatedUser(Long id, UUID uuid) implements Principal {
+
+    /**
+     * The principal of an authenticated request
+     * @throws UnauthorizedException when the request was not authenticated with an access token
+     */
+    public static AuthenticatedUser from(Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        throw new UnauthorizedException("Authentication required");
+    }
+
+    @Override
+    public String getName() {
+        return uuid.toString();
+    }
+}
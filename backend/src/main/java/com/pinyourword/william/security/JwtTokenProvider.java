@@ -1,90 +1,252 @@
 package com.pinyourword.william.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies access tokens.
+ * <p>
+ * The signing key and the parser are built once; the parser is immutable and shared by all
+ * request threads. A verified token is remembered, by SHA-256 digest, with its user and expiry,
+ * so later requests with the same token skip signature checking and claims parsing: they cost
+ * one digest of the header and a cache lookup. Entries leave the cache when their token expires.
+ * <p>
+ * Tokens carry an id and the user's token epoch, and are checked against the
+ * {@link TokenRevocationList} on every request, cached or not. They also carry the numeric
+ * user id, so a request's {@link AuthenticatedUser} is known without reading users.
+ */
 @Component
 @Slf4j
 public class JwtTokenProvider {
 
-    @Value("${app.jwt.secret}")
-    private String jwtSecret;
+    private static final String AUDIENCE = "pinyourword-app";
+    private static final String EPOCH_CLAIM = "epc";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String BEARER_PREFIX = "Bearer ";
 
-    @Value("${app.jwt.expiration}")
-    private long jwtExpiration;
+    // Per thread: SHA-256 state and scratch buffers, so hashing a header only allocates its result
+    private static final ThreadLocal<Digester> DIGESTERS = ThreadLocal.withInitial(Digester::new);
 
-    @Value("${app.jwt.issuer:pinyourword-api}")
-    private String jwtIssuer;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+    private final String jwtIssuer;
+    private final Cache<TokenDigest, AccessToken> verifiedTokens;
+    private final TokenRevocationList revocationList;
 
-    private SecretKey getSigningKey() {
+    public JwtTokenProvider(@Value("${app.jwt.secret}") String jwtSecret,
+                            @Value("${app.jwt.expiration}") long jwtExpiration,
+                            @Value("${app.jwt.issuer:pinyourword-api}") String jwtIssuer,
+                            @Value("${app.jwt.cache.max-size:100000}") long cacheMaxSize,
+                            TokenRevocationList revocationList,
+                            MeterRegistry meterRegistry) {
         byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
         if (keyBytes.length < 32) {
             throw new IllegalStateException("JWT secret must be at least 256 bits (32 bytes)");
         }
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .requireIssuer(jwtIssuer)
+                .requireAudience(AUDIENCE)
+                .build();
+        this.jwtExpiration = jwtExpiration;
+        this.jwtIssuer = jwtIssuer;
+        this.revocationList = revocationList;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
     }
 
-    public String generateToken(UUID userId) {
+    /**
+     * @param userUuid the subject
+     * @param userId users.id, signed into the token as {@code uid}
+     * @param epoch the user's current token epoch
+     */
+    public String generateToken(UUID userUuid, Long userId, int epoch) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
         return Jwts.builder()
-                .setSubject(userId.toString())
+                .setId(UUID.randomUUID().toString())
+                .setSubject(userUuid.toString())
+                .claim(USER_ID_CLAIM, userId)
+                .claim(EPOCH_CLAIM, epoch)
                 .setIssuer(jwtIssuer)
-                .setAudience("pinyourword-app")
+                .setAudience(AUDIENCE)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public UUID getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .requireIssuer(jwtIssuer)
-                .requireAudience("pinyourword-app")
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Resolve the user of an {@code Authorization: Bearer} header
+     * @return the user, or null when the header is missing or the token is not valid
+     */
+    public AuthenticatedUser authenticate(String authorizationHeader) {
+        AccessToken token = inspect(authorizationHeader);
+        return token == null ? null : token.user();
+    }
 
-        return UUID.fromString(claims.getSubject());
+    /**
+     * The valid, unrevoked access token of an {@code Authorization: Bearer} header, or null
+     */
+    public AccessToken inspect(String authorizationHeader) {
+        if (authorizationHeader == null
+                || authorizationHeader.length() <= BEARER_PREFIX.length()
+                || !authorizationHeader.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        TokenDigest digest = DIGESTERS.get().digest(authorizationHeader, BEARER_PREFIX.length());
+        if (digest == null) {
+            return null;
+        }
+        AccessToken token = verifiedTokens.getIfPresent(digest);
+        if (token == null) {
+            Claims claims = parseClaims(authorizationHeader.substring(BEARER_PREFIX.length()));
+            if (claims == null) {
+                return null;
+            }
+            Long userId = claims.get(USER_ID_CLAIM, Long.class);
+            if (userId == null) {
+                // Issued before tokens carried the user id; the client signs in again
+                log.debug("JWT token without {} claim", USER_ID_CLAIM);
+                return null;
+            }
+            Integer epoch = claims.get(EPOCH_CLAIM, Integer.class);
+            token = new AccessToken(new AuthenticatedUser(userId, UUID.fromString(claims.getSubject())),
+                    claims.getExpiration().getTime(), epoch == null ? 0 : epoch, claims.getId());
+            verifiedTokens.put(digest, token);
+        } else if (token.expiresAt() <= System.currentTimeMillis()) {
+            // Expiry of the entry is not exact to the millisecond
+            return null;
+        }
+        return revocationList.isRevoked(token.user().uuid(), token.epoch(), token.tokenId()) ? null : token;
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verify a token's signature, issuer, audience and expiry
+     * @return its claims, or null if it is not valid
+     */
+    private Claims parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .requireIssuer(jwtIssuer)
-                    .requireAudience("pinyourword-app")
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException ex) {
             log.warn("JWT token expired: {}", ex.getMessage());
-            return false;
         } catch (UnsupportedJwtException ex) {
             log.error("Unsupported JWT token: {}", ex.getMessage());
-            return false;
         } catch (MalformedJwtException ex) {
             log.error("Malformed JWT token: {}", ex.getMessage());
-            return false;
         } catch (io.jsonwebtoken.security.SignatureException ex) {
             log.error("Invalid JWT signature: {}", ex.getMessage());
-            return false;
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty: {}", ex.getMessage());
-            return false;
         } catch (Exception ex) {
             log.error("JWT validation error: {}", ex.getMessage());
-            return false;
+        }
+        return null;
+    }
+
+    /**
+     * A verified access token
+     * @param user its principal
+     * @param expiresAt epoch ms
+     * @param epoch the user's token epoch when it was issued
+     * @param tokenId its jti
+     */
+    public record AccessToken(AuthenticatedUser user, long expiresAt, int epoch, String tokenId) {
+    }
+
+    /**
+     * Keeps an entry until its token expires; reads and re-puts do not extend it
+     */
+    private static final class UntilTokenExpiry implements Expiry<TokenDigest, AccessToken> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest digest, AccessToken token, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAt() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest digest, AccessToken token, long currentTime,
+                                      long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest digest, AccessToken token, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * SHA-256 of a token, held as four longs so it can key a map without a byte[] wrapper
+     */
+    private record TokenDigest(long a, long b, long c, long d) {
+    }
+
+    private static final class Digester {
+
+        private final MessageDigest sha256;
+        private final byte[] hash = new byte[32];
+        private final ByteBuffer hashView = ByteBuffer.wrap(hash);
+        private byte[] input = new byte[512];
+
+        Digester() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        /**
+         * Digest {@code value} from {@code offset} without copying it into a new string
+         * @return null if it holds characters a token cannot contain
+         */
+        TokenDigest digest(String value, int offset) {
+            int length = value.length() - offset;
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(offset + i);
+                // Tokens are base64url and dots; anything else would alias another token's bytes
+                if (c > 0x7F) {
+                    return null;
+                }
+                input[i] = (byte) c;
+            }
+            sha256.update(input, 0, length);
+            try {
+                sha256.digest(hash, 0, hash.length);
+            } catch (DigestException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return new TokenDigest(hashView.getLong(0), hashView.getLong(8), hashView.getLong(16), hashView.getLong(24));
         }
     }
 }
@@ -0,0 +1,74 @@
+package com.pinyourword.william.security;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets kept in this instance's memory.
+ * <p>
+ * A bucket is a single {@link AtomicLong}: the time at which it would be full again
+ * (the generic cell rate algorithm). Taking a token is a read and a compare-and-set, with
+ * no lock and no allocation once the key is known. A bucket whose refill time has passed is
+ * full, which is the same as having no bucket, so the sweep drops those; the map only holds
+ * keys seen within the last few minutes. Keys are spread over shards that are swept one
+ * after the other.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final ConcurrentHashMap<String, AtomicLong>[] shards;
+    private final LongSupplier nanoClock;
+
+    public LocalRateLimiter(int shardCount) {
+        this(shardCount, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    LocalRateLimiter(int shardCount, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        shards = new ConcurrentHashMap[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    @Override
+    public long tryAcquire(String key, Limit limit) {
+        long now = nanoClock.getAsLong();
+        ConcurrentHashMap<String, AtomicLong> shard = shards[Math.floorMod(key.hashCode(), shards.length)];
+        AtomicLong fullAt = shard.get(key);
+        if (fullAt == null) {
+            fullAt = shard.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long interval = limit.refillInterval().toNanos();
+        long tolerance = limit.tolerance().toNanos();
+        while (true) {
+            long current = fullAt.get();
+            long from = current - now > 0 ? current : now;
+            long ahead = from - now;
+            if (ahead > tolerance) {
+                // Rounded up to whole seconds for Retry-After
+                return (ahead - tolerance + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+            }
+            if (fullAt.compareAndSet(current, from + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drop the buckets that are full again. A request racing with the removal may have its
+     * token forgotten; the bucket was full anyway.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:60000}")
+    public void evictFull() {
+        for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            long now = nanoClock.getAsLong();
+            shard.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+        }
+    }
+}
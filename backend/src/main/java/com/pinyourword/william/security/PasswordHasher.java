@@ -0,0 +1,127 @@
+package com.pinyourword.william.security;
+
+import com.pinyourword.william.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Hashes and checks passwords on the passwordHashExecutor instead of the request thread.
+ * <p>
+ * A BCrypt call at strength 12 takes about 250ms of CPU. The executor has one worker per core
+ * and a short queue, so a burst of sign-ins can use the CPUs but cannot pile up behind them:
+ * when the queue is full, or a call waits longer than the timeout, the request fails at once
+ * with 503 and Retry-After and the servlet threads stay free for other endpoints.
+ * <p>
+ * Queue depth and pool usage are reported by the executor metrics ({@code executor.*} with
+ * {@code name=passwordHashExecutor}), hashing time by {@code auth.password.hash} and fast
+ * failures by {@code auth.password.rejected}.
+ */
+@Component
+@Slf4j
+public class PasswordHasher {
+
+    private static final String BUSY_MESSAGE = "Too many sign-in requests, please retry shortly";
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+    private final int strength;
+    private final boolean rehashOnLogin;
+    private final long timeoutMs;
+    private final long retryAfterSeconds;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor executor,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.security.password.bcrypt-strength:12}") int strength,
+                          @Value("${app.security.password.rehash-on-login:false}") boolean rehashOnLogin,
+                          @Value("${app.security.password.timeout-ms:5000}") long timeoutMs,
+                          @Value("${app.security.password.retry-after-seconds:2}") long retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hash").tag("operation", "matches").register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected").register(meterRegistry);
+        this.strength = strength;
+        this.rehashOnLogin = rehashOnLogin;
+        this.timeoutMs = timeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword), encodeTimer);
+    }
+
+    public boolean matches(CharSequence rawPassword, String hashedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, hashedPassword), matchesTimer);
+    }
+
+    /**
+     * A new hash for a password that was just verified against {@code hashedPassword}, when
+     * rehashing is on and that hash was made with another strength than the configured one
+     * @return the new hash, or null when the stored one can stay
+     */
+    public String rehashIfNeeded(CharSequence rawPassword, String hashedPassword) {
+        if (!rehashOnLogin || strengthOf(hashedPassword) == strength) {
+            return null;
+        }
+        return encode(rawPassword);
+    }
+
+    private <T> T run(Supplier<T> task, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.record(task));
+        } catch (TaskRejectedException ex) {
+            rejected.increment();
+            throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfterSeconds);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            rejected.increment();
+            log.warn("Password hashing did not finish within {}ms", timeoutMs);
+            throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfterSeconds);
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(BUSY_MESSAGE, retryAfterSeconds);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Cost factor of a BCrypt hash ({@code $2a$12$...}), or -1 if it is not one
+     */
+    private static int strengthOf(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(3) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.pinyourword.william.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * Token buckets shared by all instances through the rate_limit_buckets table.
+ * <p>
+ * Same algorithm as {@link LocalRateLimiter}, in one upsert on the database clock. Every key
+ * is checked against this instance's buckets first: they see a subset of the key's traffic,
+ * so whatever they refuse the shared bucket would refuse too, and those requests never reach
+ * the database. If the table cannot be reached the local decision stands.
+ */
+@Slf4j
+public class PgRateLimiter implements RateLimiter {
+
+    private static final String NOW_MS = "(EXTRACT(EPOCH FROM clock_timestamp()) * 1000)::bigint";
+
+    // The row is only updated when a token is granted; no row back means refused
+    private static final String ACQUIRE_SQL = """
+            INSERT INTO rate_limit_buckets (bucket_key, full_at_ms)
+            VALUES (?, %1$s + ?)
+            ON CONFLICT (bucket_key) DO UPDATE
+            SET full_at_ms = GREATEST(rate_limit_buckets.full_at_ms, %1$s) + ?
+            WHERE rate_limit_buckets.full_at_ms - %1$s <= ?
+            RETURNING full_at_ms
+            """.formatted(NOW_MS);
+    private static final String EVICT_SQL = "DELETE FROM rate_limit_buckets WHERE full_at_ms < " + NOW_MS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LocalRateLimiter local;
+
+    public PgRateLimiter(JdbcTemplate jdbcTemplate, LocalRateLimiter local) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.local = local;
+    }
+
+    @Override
+    public long tryAcquire(String key, Limit limit) {
+        long wait = local.tryAcquire(key, limit);
+        if (wait > 0) {
+            return wait;
+        }
+        long interval = limit.refillInterval().toMillis();
+        try {
+            List<Long> granted = jdbcTemplate.queryForList(ACQUIRE_SQL, Long.class,
+                    key, interval, interval, limit.tolerance().toMillis());
+            // A refused bucket gains its next token within one interval
+            return granted.isEmpty() ? Math.max(1, (interval + 999) / 1000) : 0;
+        } catch (DataAccessException ex) {
+            log.warn("Shared rate limit unavailable, using local buckets: {}", ex.getMessage());
+            return 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:60000}")
+    public void evictFull() {
+        local.evictFull();
+        try {
+            jdbcTemplate.update(EVICT_SQL);
+        } catch (DataAccessException ex) {
+            log.warn("Could not evict shared rate limit buckets: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.pinyourword.william.security;
+
+import java.time.Duration;
+
+/**
+ * Token buckets by key. A bucket holds up to {@code capacity} tokens and gains one every
+ * {@code refillInterval}; each request takes one.
+ */
+public interface RateLimiter {
+
+    /**
+     * Take a token from the bucket of {@code key}
+     * @return 0 when the request may go on, otherwise the seconds to wait before retrying
+     */
+    long tryAcquire(String key, Limit limit);
+
+    record Limit(int capacity, Duration refillInterval) {
+
+        /**
+         * Parse {@code "capacity,perMinute"}, e.g. {@code "20,10"}: bursts of 20, then 10 a minute
+         */
+        public static Limit parse(String spec) {
+            String[] parts = spec.split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Rate limit must be 'capacity,perMinute': " + spec);
+            }
+            int capacity = Integer.parseInt(parts[0].trim());
+            int perMinute = Integer.parseInt(parts[1].trim());
+            if (capacity < 1 || perMinute < 1) {
+                throw new IllegalArgumentException("Rate limit values must be positive: " + spec);
+            }
+            return new Limit(capacity, Duration.ofMinutes(1).dividedBy(perMinute));
+        }
+
+        /**
+         * How far ahead of now a bucket's next refill may be and still grant a token
+         */
+        public Duration tolerance() {
+            return refillInterval.multipliedBy(capacity - 1L);
+        }
+    }
+}
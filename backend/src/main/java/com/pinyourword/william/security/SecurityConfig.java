@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -29,6 +30,7 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final AuthRateLimitFilter authRateLimitFilter;
 
     @Value("${app.cors.allowed-origins:http://localhost:3000,http://localhost:19006}")
     private String allowedOrigins;
@@ -45,7 +47,8 @@ public class SecurityConfig {
                         .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(authRateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -86,9 +89,22 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        // BCrypt with strength 12 for better security
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(@Value("${app.security.password.bcrypt-strength:12}") int strength) {
+        // Hashes made with another strength still verify; see PasswordHasher for rehashing them
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    /**
+     * Buckets for {@link AuthRateLimitFilter}: in memory, or shared by all instances through
+     * PostgreSQL when {@code app.rate-limit.store=postgres}. Static: the filter that uses them
+     * is a dependency of this class
+     */
+    @Bean
+    public static RateLimiter authRateLimiter(JdbcTemplate jdbcTemplate,
+                                              @Value("${app.rate-limit.store:local}") String store,
+                                              @Value("${app.rate-limit.shards:16}") int shards) {
+        LocalRateLimiter local = new LocalRateLimiter(shards);
+        return "postgres".equalsIgnoreCase(store) ? new PgRateLimiter(jdbcTemplate, local) : local;
     }
 
     @Bean
@@ -0,0 +1,166 @@
+package com.pinyourword.william.security;
+
+import com.pinyourword.william.cache.CacheInvalidationBus;
+import com.pinyourword.william.cache.CacheNames;
+import com.pinyourword.william.util.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access tokens that must no longer be accepted although they have not expired.
+ * <p>
+ * Two kinds of entries: a user's minimum token epoch (raised when the account is deleted or
+ * its password changes, so every older token of the user is refused) and single token ids
+ * (logout). An entry is only needed until the last token it refuses has expired, at most one
+ * access token lifetime, so the set stays small and lives in memory: checking a request is
+ * one or two hash lookups, without allocating.
+ * <p>
+ * Entries are written to token_revocations in the caller's transaction, applied here after
+ * commit and sent to the other instances over the {@link CacheInvalidationBus}. The set is
+ * reloaded from the table at startup and whenever the bus may have missed messages.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    private static final String KIND_USER = "user";
+    private static final String KIND_TOKEN = "token";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO token_revocations (kind, subject, epoch, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String LOAD_SQL =
+            "SELECT kind, subject, epoch, expires_at FROM token_revocations WHERE expires_at > now()";
+    private static final String PURGE_SQL = "DELETE FROM token_revocations WHERE expires_at <= now()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBus bus;
+    private final long accessTokenTtlMs;
+
+    // user -> (lowest valid epoch, entry expiry)
+    private final ConcurrentHashMap<UUID, UserRevocation> users = new ConcurrentHashMap<>();
+    // token id -> entry expiry (epoch ms)
+    private final ConcurrentHashMap<String, Long> tokens = new ConcurrentHashMap<>();
+
+    public TokenRevocationList(JdbcTemplate jdbcTemplate,
+                               CacheInvalidationBus bus,
+                               @Value("${app.jwt.expiration}") long accessTokenTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bus = bus;
+        this.accessTokenTtlMs = accessTokenTtlMs;
+        bus.subscribe(CacheNames.TOKEN_REVOCATIONS, CacheInvalidationBus.Handler.of(
+                entries -> entries.forEach(this::applyMessage),
+                this::reload));
+    }
+
+    /**
+     * Whether a verified access token has been revoked
+     */
+    public boolean isRevoked(UUID userId, int epoch, String tokenId) {
+        if (!users.isEmpty()) {
+            UserRevocation revocation = users.get(userId);
+            if (revocation != null && epoch < revocation.minEpoch()) {
+                return true;
+            }
+        }
+        return tokenId != null && !tokens.isEmpty() && tokens.containsKey(tokenId);
+    }
+
+    /**
+     * Refuse every access token of the user issued before {@code minEpoch}
+     */
+    public void revokeUser(UUID userId, int minEpoch) {
+        long expiresAt = System.currentTimeMillis() + accessTokenTtlMs;
+        jdbcTemplate.update(INSERT_SQL, KIND_USER, userId.toString(), minEpoch, Timestamp.from(Instant.ofEpochMilli(expiresAt)));
+        publish(KIND_USER + ":" + userId + ":" + minEpoch + ":" + expiresAt);
+    }
+
+    /**
+     * Refuse one access token until it expires
+     */
+    public void revokeToken(String tokenId, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_SQL, KIND_TOKEN, tokenId, 0, Timestamp.from(Instant.ofEpochMilli(expiresAt)));
+        publish(KIND_TOKEN + ":" + tokenId + ":0:" + expiresAt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        try {
+            ConcurrentHashMap<UUID, UserRevocation> loadedUsers = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, Long> loadedTokens = new ConcurrentHashMap<>();
+            jdbcTemplate.query(LOAD_SQL, (RowCallbackHandler) rs -> {
+                long expiresAt = rs.getTimestamp("expires_at").getTime();
+                if (KIND_USER.equals(rs.getString("kind"))) {
+                    loadedUsers.merge(UUID.fromString(rs.getString("subject")),
+                            new UserRevocation(rs.getInt("epoch"), expiresAt), UserRevocation::max);
+                } else {
+                    loadedTokens.merge(rs.getString("subject"), expiresAt, Math::max);
+                }
+            });
+            // Entries applied while loading are kept; the loaded ones are merged in
+            loadedUsers.forEach((userId, revocation) -> users.merge(userId, revocation, UserRevocation::max));
+            loadedTokens.forEach((tokenId, expiresAt) -> tokens.merge(tokenId, expiresAt, Math::max));
+            log.info("Loaded {} user and {} token revocations", loadedUsers.size(), loadedTokens.size());
+        } catch (DataAccessException ex) {
+            log.warn("Could not load token revocations: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocations.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        users.values().removeIf(revocation -> revocation.expiresAt() <= now);
+        tokens.values().removeIf(expiresAt -> expiresAt <= now);
+        try {
+            jdbcTemplate.update(PURGE_SQL);
+        } catch (DataAccessException ex) {
+            log.warn("Could not purge token revocations: {}", ex.getMessage());
+        }
+    }
+
+    private void publish(String entry) {
+        // The bus sends on commit; this instance is not sent its own messages
+        bus.publish(CacheNames.TOKEN_REVOCATIONS, List.of(entry));
+        TransactionCallbacks.afterCommit(() -> applyMessage(entry));
+    }
+
+    /**
+     * Apply {@code kind:subject:epoch:expiresAtMs}
+     */
+    private void applyMessage(String entry) {
+        String[] parts = entry.split(":");
+        if (parts.length != 4) {
+            log.warn("Ignoring malformed token revocation: {}", entry);
+            return;
+        }
+        long expiresAt = Long.parseLong(parts[3]);
+        if (KIND_USER.equals(parts[0])) {
+            users.merge(UUID.fromString(parts[1]), new UserRevocation(Integer.parseInt(parts[2]), expiresAt),
+                    UserRevocation::max);
+        } else if (KIND_TOKEN.equals(parts[0])) {
+            tokens.merge(parts[1], expiresAt, Math::max);
+        }
+    }
+
+    private record UserRevocation(int minEpoch, long expiresAt) {
+
+        static UserRevocation max(UserRevocation a, UserRevocation b) {
+            return new UserRevocation(Math.max(a.minEpoch, b.minEpoch), Math.max(a.expiresAt, b.expiresAt));
+        }
+    }
+}
@@ -3,18 +3,24 @@ package com.pinyourword.william.service;
 
 import com.pinyourword.william.dto.request.*;
 import com.pinyourword.william.dto.response.AuthResponse;
+import com.pinyourword.william.cache.CacheNames;
 import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.event.UserChangedEvent;
 import com.pinyourword.william.exception.BadRequestException;
 import com.pinyourword.william.exception.BadRequestRegisterException;
 import com.pinyourword.william.exception.ResourceNotFoundException;
 import com.pinyourword.william.exception.UnauthorizedException;
 import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.security.AuthenticatedUser;
 import com.pinyourword.william.security.JwtTokenProvider;
+import com.pinyourword.william.security.PasswordHasher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,7 +28,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
@@ -30,13 +35,22 @@ import java.util.regex.Pattern;
 public class AuthService {
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final IAccountAvailabilityService accountAvailabilityService;
     private final JwtTokenProvider tokenProvider;
+    private final IAuthTokenService authTokenService;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // Usernames tried for a first social login before giving up on a race
+    private static final int SOCIAL_SIGNUP_ATTEMPTS = 3;
     
     @Value("${app.jwt.expiration}")
     private long jwtExpiration;
     
-    @Transactional
+    @Value("${app.jwt.refresh-expiration:2592000000}")
+    private long refreshExpiration;
+    
+    // Not transactional: no connection is held while the password is hashed
     public AuthResponse register(RegisterRequest request) {
         log.info("Registering new user with email: {}", request.getEmail());
         Map<String, String> errors = validateRegisterRequest(request);
@@ -49,26 +63,32 @@ public class AuthService {
                 .email(request.getEmail())
                 .username(request.getUsername())
                 .displayName(request.getDisplayName() != null ? request.getDisplayName() : request.getUsername())
-                .hashedPassword(passwordEncoder.encode(request.getPassword()))
+                .hashedPassword(passwordHasher.encode(request.getPassword()))
                 .visitedCountriesCount(0)
                 .visitedCitiesCount(0)
                 .totalPinsCount(0)
-                .profileVisibility("public")
-                .bucketlistVisibility("public")
-                .notesVisibility("private")
+                .profileVisibility(User.Visibility.PUBLIC.getValue())
+                .bucketlistVisibility(User.Visibility.PUBLIC.getValue())
+                .notesVisibility(User.Visibility.PRIVATE.getValue())
                 .subscriptionStatus("free")
                 .build();
         
-        user = userRepository.save(user);
+        try {
+            user = userRepository.save(user);
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent registration took the email or username after the check above
+            Map<String, String> taken = takenFields(request.getEmail(), request.getUsername());
+            if (taken.isEmpty()) {
+                throw ex;
+            }
+            throw new BadRequestRegisterException("Lỗi", taken);
+        }
+        accountAvailabilityService.recordTaken(user.getEmail(), user.getUsername());
         log.info("User registered successfully: {}", user.getUuid());
         
-        // Generate JWT token
-        String token = tokenProvider.generateToken(user.getUuid());
-        
-        return buildAuthResponse(token, user);
+        return buildAuthResponse(user, authTokenService.issueRefreshToken(user.getId()));
     }
     
-    @Transactional(readOnly = true)
     public AuthResponse login(LoginRequest request) {
         log.info("User attempting to login: {}", request.getEmailOrUsername());
         
@@ -82,18 +102,22 @@ public class AuthService {
         }
         
         // Check password
-        if (user.getHashedPassword() == null || !passwordEncoder.matches(request.getPassword(), user.getHashedPassword())) {
+        if (user.getHashedPassword() == null || !passwordHasher.matches(request.getPassword(), user.getHashedPassword())) {
             throw new UnauthorizedException("Invalid credentials");
         }
         
-        log.info("User logged in successfully: {}", user.getUuid());
+        // Move the stored hash to the configured cost while the plain password is at hand
+        String rehashed = passwordHasher.rehashIfNeeded(request.getPassword(), user.getHashedPassword());
+        if (rehashed != null) {
+            userRepository.updateHashedPassword(user.getId(), rehashed);
+        }
         
-        String token = tokenProvider.generateToken(user.getUuid());
+        log.info("User logged in successfully: {}", user.getUuid());
         
-        return buildAuthResponse(token, user);
+        return buildAuthResponse(user, authTokenService.issueRefreshToken(user.getId()));
     }
     
-    @Transactional
+    // Not transactional: an insert that loses a race is retried in a fresh transaction
     public AuthResponse socialLogin(SocialLoginRequest request) {
         log.info("Social login attempt with provider: {}", request.getProvider());
         
@@ -101,65 +125,100 @@ public class AuthService {
         String providerId = extractProviderIdFromToken(request);
         String email = request.getEmail();
         
-        User user;
-        
-        // Check if user exists with this provider ID
-        Optional<User> existingUser = findUserByProviderId(request.getProvider(), providerId);
-        
-        if (existingUser.isPresent()) {
-            user = existingUser.get();
+        User user = null;
+        for (int attempt = 1; user == null; attempt++) {
+            // Check if user exists with this provider ID
+            Optional<User> existingUser = findUserByProviderId(request.getProvider(), providerId);
             
-            if (user.isDeleted()) {
-                throw new UnauthorizedException("Account has been deleted");
+            if (existingUser.isPresent()) {
+                user = existingUser.get();
+                
+                if (user.isDeleted()) {
+                    throw new UnauthorizedException("Account has been deleted");
+                }
+                
+                log.info("Existing social user logged in: {}", user.getUuid());
+            } else {
+                try {
+                    user = createSocialUser(request, providerId);
+                } catch (DataIntegrityViolationException ex) {
+                    // The same account created concurrently is found on the next attempt, a
+                    // taken email is reported, and a taken username is retried with the next one
+                    if (findUserByProviderId(request.getProvider(), providerId).isPresent()) {
+                        continue;
+                    }
+                    if (email != null && userRepository.existsByEmail(email)) {
+                        throw new BadRequestRegisterException("Lỗi", Map.of("email", "validation.emailExists"));
+                    }
+                    if (attempt >= SOCIAL_SIGNUP_ATTEMPTS) {
+                        throw new BadRequestRegisterException("Lỗi", Map.of("username", "validation.usernameExists"));
+                    }
+                }
             }
-            
-            log.info("Existing social user logged in: {}", user.getUuid());
-        } else {
-            // Create new user
-            String username = generateUsernameFromEmail(email);
-            
-            // Ensure username is unique
-            int suffix = 1;
-            String finalUsername = username;
-            while (userRepository.existsByUsername(finalUsername)) {
-                finalUsername = username + suffix;
-                suffix++;
-            }
-            
-            User newUser = User.builder()
-                    .email(email)
-                    .username(finalUsername)
-                    .displayName(request.getDisplayName() != null ? request.getDisplayName() : finalUsername)
-                    .avatarUrl(request.getAvatarUrl())
-                    .profileVisibility("public")
-                    .notesVisibility("private")
-                    .bucketlistVisibility("public")
-                    .subscriptionStatus("free")
-                    .visitedCountriesCount(0)
-                    .visitedCitiesCount(0)
-                    .totalPinsCount(0)
-                    .build();
-            
-            // Set provider ID
-            if (request.getProvider() == SocialLoginRequest.SocialProvider.GOOGLE) {
-                newUser.setGoogleId(providerId);
-            } else if (request.getProvider() == SocialLoginRequest.SocialProvider.APPLE) {
-                newUser.setAppleId(providerId);
-            }
-            
-            user = userRepository.save(newUser);
-            log.info("New social user registered: {}", user.getUuid());
         }
         
-        String token = tokenProvider.generateToken(user.getUuid());
+        return buildAuthResponse(user, authTokenService.issueRefreshToken(user.getId()));
+    }
+    
+    private User createSocialUser(SocialLoginRequest request, String providerId) {
+        String email = request.getEmail();
+        String username = generateUsernameFromEmail(email);
         
-        return buildAuthResponse(token, user);
+        // Ensure username is unique
+        String finalUsername = accountAvailabilityService.uniqueUsername(username);
+        
+        User newUser = User.builder()
+                .email(email)
+                .username(finalUsername)
+                .displayName(request.getDisplayName() != null ? request.getDisplayName() : finalUsername)
+                .avatarUrl(request.getAvatarUrl())
+                .profileVisibility(User.Visibility.PUBLIC.getValue())
+                .notesVisibility(User.Visibility.PRIVATE.getValue())
+                .bucketlistVisibility(User.Visibility.PUBLIC.getValue())
+                .subscriptionStatus("free")
+                .visitedCountriesCount(0)
+                .visitedCitiesCount(0)
+                .totalPinsCount(0)
+                .build();
+        
+        // Set provider ID
+        if (request.getProvider() == SocialLoginRequest.SocialProvider.GOOGLE) {
+            newUser.setGoogleId(providerId);
+        } else if (request.getProvider() == SocialLoginRequest.SocialProvider.APPLE) {
+            newUser.setAppleId(providerId);
+        }
+        
+        User user = userRepository.save(newUser);
+        accountAvailabilityService.recordTaken(user.getEmail(), user.getUsername());
+        log.info("New social user registered: {}", user.getUuid());
+        return user;
+    }
+    
+    /**
+     * Exchange a refresh token for a new access token and the next refresh token
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        IAuthTokenService.Rotation rotation = authTokenService.rotate(request.getRefreshToken());
+        User user = userRepository.findById(rotation.userId())
+                .filter(found -> !found.isDeleted())
+                .orElseThrow(() -> new UnauthorizedException("Invalid refresh token"));
+        return buildAuthResponse(user, rotation.refreshToken());
+    }
+    
+    /**
+     * End the session of a refresh token and of the access token in the Authorization header
+     */
+    public void logout(String authorizationHeader, RefreshTokenRequest request) {
+        authTokenService.logout(request == null ? null : request.getRefreshToken(),
+                tokenProvider.inspect(authorizationHeader));
     }
     
     @Transactional(readOnly = true)
-    public AuthResponse.UserResponse getCurrentUser(UUID userUuid) {
-        User user = userRepository.findActiveByUuid(userUuid)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "uuid", userUuid));
+    @Cacheable(cacheNames = CacheNames.CURRENT_USERS, key = "#principal.id()")
+    public AuthResponse.UserResponse getCurrentUser(AuthenticatedUser principal) {
+        User user = userRepository.findActiveByUuid(principal.uuid())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "uuid", principal.uuid()));
         
         return mapToUserResponse(user);
     }
@@ -182,26 +241,26 @@ public class AuthService {
         if (request.getCoverUrl() != null) {
             user.setCoverUrl(request.getCoverUrl());
         }
+        boolean audienceChanged = request.getProfileVisibility() != null
+                && !request.getProfileVisibility().equals(user.getProfileVisibility());
         if (request.getProfileVisibility() != null) {
-            validateVisibility(request.getProfileVisibility(), "public", "private");
             user.setProfileVisibility(request.getProfileVisibility());
         }
         if (request.getNotesVisibility() != null) {
-            validateVisibility(request.getNotesVisibility(), "private", "followers", "public");
             user.setNotesVisibility(request.getNotesVisibility());
         }
         if (request.getBucketlistVisibility() != null) {
-            validateVisibility(request.getBucketlistVisibility(), "private", "followers", "public");
             user.setBucketlistVisibility(request.getBucketlistVisibility());
         }
         
         user = userRepository.save(user);
+        eventPublisher.publishEvent(audienceChanged ? UserChangedEvent.audienceChanged(user) : UserChangedEvent.of(user));
         log.info("User profile updated: {}", user.getUuid());
         
         return mapToUserResponse(user);
     }
     
-    @Transactional
+    // Not transactional: no connection is held while the passwords are hashed
     public void changePassword(UUID userUuid, ChangePasswordRequest request) {
         User user = userRepository.findActiveByUuid(userUuid)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "uuid", userUuid));
@@ -212,13 +271,13 @@ public class AuthService {
         }
         
         // Verify current password
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getHashedPassword())) {
+        if (!passwordHasher.matches(request.getCurrentPassword(), user.getHashedPassword())) {
             throw new UnauthorizedException("Current password is incorrect");
         }
         
-        // Update password
-        user.setHashedPassword(passwordEncoder.encode(request.getNewPassword()));
-        userRepository.save(user);
+        // Update password; every session, this one included, has to log in with the new one
+        String hashedPassword = passwordHasher.encode(request.getNewPassword());
+        authTokenService.replacePassword(user.getId(), user.getUuid(), hashedPassword);
         
         log.info("Password changed for user: {}", user.getUuid());
     }
@@ -231,16 +290,18 @@ public class AuthService {
         // Soft delete
         user.setDeletedAt(java.time.LocalDateTime.now());
         userRepository.save(user);
+        authTokenService.revokeAll(user.getId(), user.getUuid());
+        eventPublisher.publishEvent(UserChangedEvent.audienceChanged(user));
         
         log.info("User account deleted (soft delete): {}", user.getUuid());
     }
     
     public boolean isEmailTaken(String email) {
-        return userRepository.existsByEmail(email);
+        return accountAvailabilityService.isEmailTaken(email);
     }
     
     public boolean isUsernameTaken(String username) {
-        return userRepository.existsByUsername(username);
+        return accountAvailabilityService.isUsernameTaken(username);
     }
     
     // Helper methods
@@ -274,23 +335,18 @@ public class AuthService {
         }
         String username = email.split("@")[0];
         username = username.replaceAll("[^a-zA-Z0-9_]", "");
-        return username;
+        // Local parts made only of other characters
+        return username.isEmpty() ? "user" : username;
     }
     
-    private void validateVisibility(String value, String... allowedValues) {
-        for (String allowed : allowedValues) {
-            if (allowed.equals(value)) {
-                return;
-            }
-        }
-        throw new BadRequestException("Invalid visibility value: " + value);
-    }
-    
-    private AuthResponse buildAuthResponse(String token, User user) {
+    private AuthResponse buildAuthResponse(User user, String refreshToken) {
+        int epoch = user.getTokenEpoch() == null ? 0 : user.getTokenEpoch();
         return AuthResponse.builder()
-                .accessToken(token)
+                .accessToken(tokenProvider.generateToken(user.getUuid(), user.getId(), epoch))
                 .tokenType("Bearer")
                 .expiresIn(jwtExpiration / 1000)
+                .refreshToken(refreshToken)
+                .refreshExpiresIn(refreshExpiration / 1000)
                 .user(mapToUserResponse(user))
                 .build();
     }
@@ -314,47 +370,39 @@ public class AuthService {
                 .build();
     }
 
-    public  Map<String, String> validateRegisterRequest(RegisterRequest request) {
+    /**
+     * Which of an email and username are in the database, whatever the availability filters say
+     * @return field -> i18n key of its error
+     */
+    private Map<String, String> takenFields(String email, String username) {
         Map<String, String> errors = new HashMap<>();
-        // Check if email already exists
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (email != null && userRepository.existsByEmail(email)) {
             errors.put("email", "validation.emailExists");
         }
-
-        // Check if username already exists
-        if (userRepository.existsByUsername(request.getUsername())) {
+        if (username != null && userRepository.existsByUsername(username)) {
             errors.put("username", "validation.usernameExists");
         }
-        // Email
-        if (request.getEmail() == null || request.getEmail().isBlank()) {
-            errors.put("email", "validation.emailRequired");
-        } else if (!Pattern.compile("^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$").matcher(request.getEmail()).matches()) {
-            errors.put("email", "validation.emailValid");
-        }
+        return errors;
+    }
 
-        // Password
-        if (request.getPassword() == null || request.getPassword().isBlank()) {
-            errors.put("password", "validation.passwordRequired");
-        } else if (request.getPassword().length() < 8 || request.getPassword().length() > 100) {
-            errors.put("password", "validation.passwordLength");
-        } else if (!Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).*$").matcher(request.getPassword()).matches()) {
-            errors.put("password", "validation.passwordFormat");
+    /**
+     * Uniqueness checks of a registration; formats are checked by {@code @ValidRegistration}
+     * before the request gets here
+     * @return field -> i18n key of its error, empty when the email and username are free
+     */
+    public Map<String, String> validateRegisterRequest(RegisterRequest request) {
+        IAccountAvailabilityService.Availability availability =
+                accountAvailabilityService.check(request.getEmail(), request.getUsername());
+        if (!availability.emailTaken() && !availability.usernameTaken()) {
+            return Map.of();
         }
-
-        // Username
-        if (request.getUsername() == null || request.getUsername().isBlank()) {
-            errors.put("username", "validation.usernameRequired");
-        } else if (request.getUsername().length() < 3 || request.getUsername().length() > 50) {
-            errors.put("username", "validation.usernameLength");
-        } else if (!Pattern.compile("^[a-zA-Z0-9_]+$").matcher(request.getUsername()).matches()) {
-            errors.put("username", "validation.usernameFormat");
+        Map<String, String> errors = new HashMap<>();
+        if (availability.emailTaken()) {
+            errors.put("email", "validation.emailExists");
         }
-
-        // Display Name (optional)
-        if (request.getDisplayName() != null && request.getDisplayName().length() > 100) {
-            errors.put("displayName", "validation.displayNameLength");
+        if (availability.usernameTaken()) {
+            errors.put("username", "validation.usernameExists");
         }
-
-        return errors; // trả về map field -> message
+        return errors;
     }
 }
@@ -0,0 +1,29 @@
+package com.pinyourword.william.service;
+
+public interface IAccountAvailabilityService {
+
+    boolean isEmailTaken(String email);
+
+    boolean isUsernameTaken(String username);
+
+    /**
+     * Check an email and a username together, with at most one query
+     * @param email may be null
+     * @param username may be null
+     */
+    Availability check(String email, String username);
+
+    /**
+     * {@code base}, or {@code base} followed by the smallest number that makes it free
+     * @throws IllegalArgumentException when {@code base} is empty
+     */
+    String uniqueUsername(String base);
+
+    /**
+     * Note a new account, so its email and username read as taken from now on
+     */
+    void recordTaken(String email, String username);
+
+    record Availability(boolean emailTaken, boolean usernameTaken) {
+    }
+}
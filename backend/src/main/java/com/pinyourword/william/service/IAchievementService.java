@@ -0,0 +1,12 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.event.UserStatsChangedEvent;
+
+public interface IAchievementService {
+
+    /**
+     * Award every milestone passed between two values of a user's counters, posting each
+     * to the feed; milestones the user already has are skipped
+     */
+    void checkMilestones(Long userId, UserStatsChangedEvent.Stats before, UserStatsChangedEvent.Stats after);
+}
@@ -0,0 +1,21 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.dto.request.CommentCreateRequest;
+import com.pinyourword.william.dto.response.CommentResponse;
+import com.pinyourword.william.dto.response.CursorPage;
+import org.springframework.security.core.Authentication;
+
+public interface IActivityCommentService {
+    CommentResponse addComment(Authentication authentication, Long activityId, CommentCreateRequest request);
+    void deleteComment(Authentication authentication, Long commentId);
+
+    /**
+     * Top-level comments of an activity, newest first, each with its first replies
+     */
+    CursorPage<CommentResponse> getComments(Long activityId, String cursor, Integer size);
+
+    /**
+     * Replies of a top-level comment, oldest first
+     */
+    CursorPage<CommentResponse> getReplies(Long commentId, String cursor, Integer size);
+}
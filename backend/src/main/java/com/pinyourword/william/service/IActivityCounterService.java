@@ -0,0 +1,24 @@
+package com.pinyourword.william.service;
+
+public interface IActivityCounterService {
+
+    /**
+     * Add to an activity's like count once the current transaction commits
+     */
+    void addLikes(Long activityId, int delta);
+
+    /**
+     * Add to an activity's comment count once the current transaction commits
+     */
+    void addComments(Long activityId, int delta);
+
+    /**
+     * Write the pending deltas to activities
+     */
+    void flush();
+
+    /**
+     * Correct every activity's counts that drifted from activity_likes and activity_comments
+     */
+    void reconcile();
+}
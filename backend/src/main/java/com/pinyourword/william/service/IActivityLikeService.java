@@ -0,0 +1,17 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.dto.response.LikeResponse;
+import org.springframework.security.core.Authentication;
+
+public interface IActivityLikeService {
+
+    /**
+     * Like an activity; liking it again is a no-op
+     */
+    LikeResponse like(Authentication authentication, Long activityId);
+
+    /**
+     * Remove a like; unliking an activity that is not liked is a no-op
+     */
+    LikeResponse unlike(Authentication authentication, Long activityId);
+}
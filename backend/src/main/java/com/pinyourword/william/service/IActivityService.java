@@ -0,0 +1,14 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.entity.Activity;
+
+import java.util.Map;
+
+public interface IActivityService {
+
+    /**
+     * Record an activity in the caller's transaction; it reaches feeds once that transaction commits
+     */
+    Activity record(Long actorId, Activity.ActivityType type, Long objectId, String objectType,
+                    String caption, Map<String, Object> metadata);
+}
@@ -0,0 +1,43 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.security.JwtTokenProvider;
+
+import java.util.UUID;
+
+/**
+ * Refresh tokens and revocation of access tokens
+ */
+public interface IAuthTokenService {
+
+    /**
+     * Start a new refresh token family for a login
+     * @return the token to hand to the client; only its hash is stored
+     */
+    String issueRefreshToken(Long userId);
+
+    /**
+     * Exchange a refresh token for the next one of its family. Presenting a token that was
+     * already exchanged revokes the whole family.
+     * @throws com.pinyourword.william.exception.UnauthorizedException if the token is not valid
+     */
+    Rotation rotate(String refreshToken);
+
+    /**
+     * End one session: revoke the family of the refresh token and the access token, either
+     * of which may be null
+     */
+    void logout(String refreshToken, JwtTokenProvider.AccessToken accessToken);
+
+    /**
+     * End every session of a user: all refresh tokens and all access tokens issued so far
+     */
+    void revokeAll(Long userId, UUID userUuid);
+
+    /**
+     * Store a user's new password hash and end every session of the user, both or neither
+     */
+    void replacePassword(Long userId, UUID userUuid, String hashedPassword);
+
+    record Rotation(Long userId, String refreshToken) {
+    }
+}
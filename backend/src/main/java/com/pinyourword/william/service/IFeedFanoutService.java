@@ -0,0 +1,10 @@
+package com.pinyourword.william.service;
+
+public interface IFeedFanoutService {
+
+    /**
+     * Put an activity in its actor's feed and, unless the actor is above the celebrity
+     * threshold, in the feed of every follower
+     */
+    void fanOut(Long activityId, Long actorId);
+}
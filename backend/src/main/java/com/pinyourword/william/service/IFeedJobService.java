@@ -0,0 +1,11 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.entity.FeedJob;
+
+public interface IFeedJobService {
+
+    /**
+     * Queue feed maintenance for a follow change, in the caller's transaction
+     */
+    void enqueue(FeedJob.JobType type, Long followerId, Long followingId);
+}
@@ -0,0 +1,14 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.FeedItemResponse;
+import org.springframework.security.core.Authentication;
+
+public interface IFeedService {
+    CursorPage<FeedItemResponse> getFeed(Authentication authentication, String cursor, Integer size);
+
+    /**
+     * Hydrate an activity into the shared feed cache ahead of the first read
+     */
+    void cacheActivity(Long activityId);
+}
@@ -0,0 +1,9 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.dto.response.FollowResponse;
+import org.springframework.security.core.Authentication;
+
+public interface IFollowService {
+    FollowResponse follow(Authentication authentication, String username);
+    FollowResponse unfollow(Authentication authentication, String username);
+}
@@ -0,0 +1,9 @@
+package com.pinyourword.william.service;
+
+public interface IMediaJobService {
+
+    /**
+     * Queue thumbnail and size-variant generation for an uploaded image; no-op if already queued
+     */
+    void enqueueVariants(Long mediaId);
+}
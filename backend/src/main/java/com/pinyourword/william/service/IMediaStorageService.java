@@ -0,0 +1,55 @@
+package com.pinyourword.william.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Object storage for pin media.
+ * Implementations must not block the calling thread on network I/O.
+ */
+public interface IMediaStorageService {
+
+    /**
+     * Stream a local file to storage
+     * @return a future completed once the object is durably stored
+     */
+    CompletableFuture<Void> upload(String key, Path file, String contentType);
+
+    /**
+     * Store an in-memory object, e.g. a generated image variant
+     */
+    CompletableFuture<Void> upload(String key, byte[] data, String contentType);
+
+    /**
+     * Open an object for reading; the stream pulls from storage as it is consumed
+     * and must be closed by the caller
+     */
+    CompletableFuture<InputStream> openStream(String key);
+
+    /**
+     * Metadata of a stored object
+     * @return a future of the metadata, or of {@code null} when there is no such object
+     */
+    CompletableFuture<ObjectInfo> head(String key);
+
+    /**
+     * Presign a PUT so the client uploads straight to storage.
+     * Content type and length are part of the signature.
+     */
+    PresignedUpload presignPut(String key, String contentType, long sizeBytes, Duration ttl);
+
+    /**
+     * URL clients use to download the object
+     */
+    String publicUrl(String key);
+
+    record ObjectInfo(String contentType, long sizeBytes) {
+    }
+
+    record PresignedUpload(String method, String url, Map<String, String> headers, Instant expiresAt) {
+    }
+}
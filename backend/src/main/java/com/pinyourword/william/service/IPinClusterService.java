@@ -0,0 +1,9 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.dto.response.PinClustersResponse;
+import com.pinyourword.william.util.BoundingBox;
+import org.springframework.security.core.Authentication;
+
+public interface IPinClusterService {
+    PinClustersResponse getClusters(Authentication authentication, BoundingBox viewport, int zoom, String scope);
+}
@@ -0,0 +1,22 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.dto.request.MediaUploadCompleteRequest;
+import com.pinyourword.william.dto.request.MediaUploadRequest;
+import com.pinyourword.william.dto.response.MediaUploadResponse;
+import com.pinyourword.william.dto.response.PinMediaResponse;
+import com.pinyourword.william.entity.Pin;
+import com.pinyourword.william.entity.PinMedia;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface IPinMediaService {
+    List<PinMedia> stageUploads(Pin pin, List<MultipartFile> images);
+    List<PinMediaResponse> getPinMedia(Authentication authentication, UUID pinUuid);
+    List<MediaUploadResponse> createUploads(Authentication authentication, UUID pinUuid, MediaUploadRequest request);
+    List<PinMediaResponse> completeUploads(Authentication authentication, UUID pinUuid,
+                                           MediaUploadCompleteRequest request);
+    PinMediaResponse mapToMediaResponse(PinMedia media);
+}
@@ -1,14 +1,24 @@
 package com.pinyourword.william.service;
 
 import com.pinyourword.william.dto.request.PinCreateRequest;
-import com.pinyourword.william.entity.Pin;
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.PinResponse;
+import com.pinyourword.william.dto.response.PinViewportResponse;
+import com.pinyourword.william.util.BoundingBox;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.UUID;
 
 public interface IPinService {
-    List<Pin> getAllPinsByUserId(Authentication authentication);
-    Pin savePin(Authentication authentication, PinCreateRequest data, List<MultipartFile> images);
+    CursorPage<PinResponse> getPinsByUser(Authentication authentication, String cursor, Integer size);
+    PinViewportResponse getPinsInViewport(Authentication authentication, BoundingBox viewport, String scope);
+    List<PinResponse> getNearbyPins(Authentication authentication, double latitude, double longitude,
+                                    double radiusMeters, Integer limit, String status, String scope);
+    PinResponse savePin(Authentication authentication, PinCreateRequest data, List<MultipartFile> images);
+    PinResponse updatePin(Authentication authentication, UUID pinUuid, PinCreateRequest data);
+    PinResponse updatePinStatus(Authentication authentication, UUID pinUuid, String status);
+    void deletePin(Authentication authentication, UUID pinUuid);
 
 }
@@ -0,0 +1,8 @@
+package com.pinyourword.william.service;
+
+import com.pinyourword.william.dto.response.TileResponse;
+import org.springframework.security.core.Authentication;
+
+public interface IPinTileService {
+    TileResponse getPinTile(Authentication authentication, int z, int x, int y, String scope);
+}
@@ -0,0 +1,9 @@
+package com.pinyourword.william.service;
+
+public interface IUserStatsService {
+
+    /**
+     * Recompute every user's visited countries, visited cities and pin counts from pins
+     */
+    void rebuild();
+}
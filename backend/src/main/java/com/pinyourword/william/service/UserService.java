@@ -1,15 +1,23 @@
 package com.pinyourword.william.service;
 
 
+import com.pinyourword.william.cache.CacheNames;
 import com.pinyourword.william.dto.response.UserProfileResponse;
 import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.event.UserChangedEvent;
 import com.pinyourword.william.exception.ResourceNotFoundException;
 import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
@@ -17,22 +25,38 @@ import java.util.UUID;
 public class UserService {
     
     private final UserRepository userRepository;
+    private final IAuthTokenService authTokenService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
 //    private final FollowRelationshipRepository followRepository;
     
     @Transactional(readOnly = true)
-    public UserProfileResponse getCurrentUserProfile(UUID userUuid) {
-        User user = userRepository.findByUuid(userUuid)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "uuid", userUuid));
+    @Cacheable(cacheNames = CacheNames.USER_PROFILES, key = "#user.id()")
+    public UserProfileResponse getCurrentUserProfile(AuthenticatedUser user) {
+        User found = userRepository.findByUuid(user.uuid())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "uuid", user.uuid()));
         
-        return mapToProfileResponse(user, true);
+        return mapToProfileResponse(found, true);
     }
     
+    /**
+     * Public profile by username. The username is resolved to an id through its own cache,
+     * so the profile is cached by user id like the other views and evicted by id on pin writes.
+     */
     @Transactional(readOnly = true)
     public UserProfileResponse getUserProfileByUsername(String username) {
-        User user = userRepository.findByUsernameAndNotDeleted(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
-        
-        return mapToProfileResponse(user, false);
+        // Ids read back from the shared tier may come back as Integer
+        Number userId = cache(CacheNames.USER_IDS).get(username, () ->
+                userRepository.findByUsernameAndNotDeleted(username).map(User::getId).orElse(null));
+        UserProfileResponse profile = userId == null ? null : cache(CacheNames.PUBLIC_PROFILES).get(userId.longValue(), () ->
+                userRepository.findById(userId.longValue())
+                        .filter(user -> user.getDeletedAt() == null)
+                        .map(user -> mapToProfileResponse(user, false))
+                        .orElse(null));
+        if (profile == null) {
+            throw new ResourceNotFoundException("User", "username", username);
+        }
+        return profile;
     }
     
     @Transactional
@@ -48,6 +72,7 @@ public class UserService {
         }
         
         user = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.of(user));
         return mapToProfileResponse(user, true);
     }
     
@@ -58,6 +83,9 @@ public class UserService {
         
         user.setDeletedAt(LocalDateTime.now());
         userRepository.save(user);
+        // Requests are not checked against users any more; the account's tokens must stop working
+        authTokenService.revokeAll(user.getId(), user.getUuid());
+        eventPublisher.publishEvent(UserChangedEvent.audienceChanged(user));
     }
     
     private UserProfileResponse mapToProfileResponse(User user, boolean includeEmail) {
@@ -84,4 +112,8 @@ public class UserService {
                 .stats(stats)
                 .build();
     }
+
+    private Cache cache(String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name), name);
+    }
 }
@@ -0,0 +1,195 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.repository.projection.AccountTakenView;
+import com.pinyourword.william.service.IAccountAvailabilityService;
+import com.pinyourword.william.util.BloomFilter;
+import com.pinyourword.william.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers whether emails and usernames are taken, mostly without the database.
+ * <p>
+ * Every email and username in users is held in a Bloom filter, loaded on the first refresh.
+ * A value the filter has never seen is free for sure and is answered from memory; only
+ * possible hits go to the database, both fields in one query. Deleted accounts keep their
+ * email and username, so the filters only ever grow.
+ * <p>
+ * Accounts created here are added once their transaction commits. Accounts created by other
+ * instances are picked up by the refresh, which reads users added since the refresh before
+ * last, so a row that commits a little after a refresh is still seen by the next one. Until
+ * the first load, and whenever the filters have outgrown their size and are being rebuilt,
+ * every check goes to the database.
+ */
+@Service
+@Slf4j
+public class AccountAvailabilityServiceImpl implements IAccountAvailabilityService {
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM users";
+    private static final String MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM users";
+    private static final String LOAD_SQL = "SELECT id, email, username FROM users WHERE id > ?";
+
+    private final UserRepository userRepository;
+    // Same data source; a fetch size makes the driver read users through a cursor
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter answeredFromFilter;
+    private final Counter answeredFromDatabase;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+
+    private volatile Filters filters;
+    // Filters being loaded, so accounts committed during the load are not lost
+    private volatile Filters loading;
+    // Refreshes read ids above scanFrom; it trails the highest id seen by one refresh
+    private long scanFrom;
+    private long lastMaxId;
+
+    public AccountAvailabilityServiceImpl(UserRepository userRepository,
+                                          JdbcTemplate jdbcTemplate,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${app.availability.expected-users:1000000}") long expectedUsers,
+                                          @Value("${app.availability.false-positive-rate:0.01}") double falsePositiveRate,
+                                          @Value("${app.availability.fetch-size:5000}") int fetchSize) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.answeredFromFilter = Counter.builder("auth.availability.checks").tag("source", "filter").register(meterRegistry);
+        this.answeredFromDatabase = Counter.builder("auth.availability.checks").tag("source", "database").register(meterRegistry);
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @Override
+    public boolean isEmailTaken(String email) {
+        return check(email, null).emailTaken();
+    }
+
+    @Override
+    public boolean isUsernameTaken(String username) {
+        return check(null, username).usernameTaken();
+    }
+
+    @Override
+    public Availability check(String email, String username) {
+        Filters current = filters;
+        String maybeEmail = email != null && (current == null || current.emails().mightContain(email)) ? email : null;
+        String maybeUsername = username != null && (current == null || current.usernames().mightContain(username))
+                ? username : null;
+        if (maybeEmail == null && maybeUsername == null) {
+            answeredFromFilter.increment();
+            return new Availability(false, false);
+        }
+        answeredFromDatabase.increment();
+        AccountTakenView taken = userRepository.findTaken(maybeEmail, maybeUsername);
+        return new Availability(Boolean.TRUE.equals(taken.getEmailTaken()), Boolean.TRUE.equals(taken.getUsernameTaken()));
+    }
+
+    @Override
+    public String uniqueUsername(String base) {
+        if (base == null || base.isEmpty()) {
+            // An empty prefix would read every username
+            throw new IllegalArgumentException("Username base must not be empty");
+        }
+        Filters current = filters;
+        if (current != null && !current.usernames().mightContain(base)) {
+            answeredFromFilter.increment();
+            return base;
+        }
+        answeredFromDatabase.increment();
+        String prefix = base.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        Set<String> taken = new HashSet<>(userRepository.findUsernamesStartingWith(prefix));
+        if (!taken.contains(base)) {
+            return base;
+        }
+        int suffix = 1;
+        while (taken.contains(base + suffix)) {
+            suffix++;
+        }
+        return base + suffix;
+    }
+
+    @Override
+    public void recordTaken(String email, String username) {
+        // After commit: a load that starts later reads the row, one already running gets it here
+        TransactionCallbacks.afterCommit(() -> {
+            add(filters, email, username);
+            add(loading, email, username);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.availability.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        try {
+            Filters current = filters;
+            if (current == null || current.added().get() > current.capacity()) {
+                load();
+            } else {
+                long from = scanFrom;
+                scanFrom = lastMaxId;
+                lastMaxId = Math.max(lastMaxId, scan(current, from));
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Could not refresh account availability filters: {}", ex.getMessage());
+        }
+    }
+
+    private void load() {
+        Long users = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        long capacity = Math.max(expectedUsers, users == null ? 0 : users * 2);
+        Filters fresh = new Filters(new BloomFilter(capacity, falsePositiveRate),
+                new BloomFilter(capacity, falsePositiveRate), capacity, new AtomicLong());
+        loading = fresh;
+        try {
+            Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+            scan(fresh, 0);
+            filters = fresh;
+            scanFrom = maxId == null ? 0 : maxId;
+            lastMaxId = scanFrom;
+            log.info("Loaded account availability filters: {} users, sized for {}", fresh.added().get(), capacity);
+        } finally {
+            loading = null;
+        }
+    }
+
+    /**
+     * Add users with id above {@code fromId} to {@code target}
+     * @return the highest id read, or {@code fromId} if there were none
+     */
+    private long scan(Filters target, long fromId) {
+        long[] maxId = {fromId};
+        streamingJdbcTemplate.query(LOAD_SQL, rs -> {
+            add(target, rs.getString("email"), rs.getString("username"));
+            maxId[0] = Math.max(maxId[0], rs.getLong("id"));
+        }, fromId);
+        return maxId[0];
+    }
+
+    private static void add(Filters target, String email, String username) {
+        if (target == null) {
+            return;
+        }
+        if (email != null) {
+            target.emails().add(email);
+        }
+        if (username != null) {
+            target.usernames().add(username);
+        }
+        target.added().incrementAndGet();
+    }
+
+    private record Filters(BloomFilter emails, BloomFilter usernames, long capacity, AtomicLong added) {
+    }
+}
@@ -0,0 +1,216 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.entity.Activity;
+import com.pinyourword.william.event.UserStatsChangedEvent;
+import com.pinyourword.william.repository.UserAchievementRepository;
+import com.pinyourword.william.service.IAchievementService;
+import com.pinyourword.william.service.IActivityService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Posts travel milestones (visited countries, visited cities, pins) to the feed.
+ * <p>
+ * A rule is a list of thresholds on one of the counters kept by {@link UserStatsServiceImpl}.
+ * A stats change carries the counters before and after the pin write, so a milestone is
+ * reached exactly when {@code before < threshold <= after}: checking costs a few comparisons
+ * and never reads pins. Checks run on the feed executor once the pin's transaction has
+ * committed, so saving a pin does not wait for them.
+ * <p>
+ * A stats change that passes a milestone is first written to achievement_checks in the pin's
+ * transaction (outbox), and the check deletes its row in the transaction that awards the
+ * milestone. A check lost with its instance, or one that failed, is left in the table and
+ * picked up by the retry job, so a milestone is never missed.
+ * <p>
+ * A milestone is claimed in user_achievements, unique per user and code, in the same
+ * transaction as its activity. Concurrent saves, or a user who drops below a milestone and
+ * reaches it again, therefore never post it twice.
+ */
+@Service
+@Slf4j
+public class AchievementServiceImpl implements IAchievementService {
+
+    private static final String ENQUEUE_SQL = """
+            INSERT INTO achievement_checks (user_id, before_countries, before_cities, before_pins,
+                                            after_countries, after_cities, after_pins)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+    // Rows another transaction is running are skipped; they are removed when it commits
+    private static final String TAKE_USER_CHECKS_SQL = """
+            DELETE FROM achievement_checks
+            WHERE id IN (
+                SELECT id FROM achievement_checks
+                WHERE user_id = ?
+                ORDER BY id
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING before_countries, before_cities, before_pins, after_countries, after_cities, after_pins
+            """;
+    private static final String STALE_USERS_SQL = """
+            SELECT user_id
+            FROM achievement_checks
+            WHERE created_at < ?
+            GROUP BY user_id
+            ORDER BY MIN(id)
+            LIMIT ?
+            """;
+
+    private final UserAchievementRepository userAchievementRepository;
+    private final IActivityService activityService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<MilestoneRule> rules;
+
+    @Value("${app.achievements.retry-after-seconds:60}")
+    private long retryAfterSeconds;
+
+    @Value("${app.achievements.retry-batch-size:100}")
+    private int retryBatchSize;
+
+    public AchievementServiceImpl(UserAchievementRepository userAchievementRepository,
+                                  IActivityService activityService,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.achievements.countries:1,5,10,25,50,100}") int[] countries,
+                                  @Value("${app.achievements.cities:1,10,25,50,100,250}") int[] cities,
+                                  @Value("${app.achievements.pins:1,10,50,100,500,1000}") int[] pins) {
+        this.userAchievementRepository = userAchievementRepository;
+        this.activityService = activityService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rules = List.of(
+                new MilestoneRule("countries", Activity.ActivityType.ACHIEVEMENT_COUNTRIES,
+                        UserStatsChangedEvent.Stats::visitedCountries, sorted(countries)),
+                new MilestoneRule("cities", Activity.ActivityType.ACHIEVEMENT_CITIES,
+                        UserStatsChangedEvent.Stats::visitedCities, sorted(cities)),
+                new MilestoneRule("pins", Activity.ActivityType.ACHIEVEMENT_PINS,
+                        UserStatsChangedEvent.Stats::totalPins, sorted(pins)));
+    }
+
+    /**
+     * Runs in the pin's transaction, so the check is stored if and only if the pin is
+     */
+    @EventListener
+    public void enqueueCheck(UserStatsChangedEvent event) {
+        if (!passesMilestone(event.before(), event.after())) {
+            return;
+        }
+        UserStatsChangedEvent.Stats before = event.before();
+        UserStatsChangedEvent.Stats after = event.after();
+        jdbcTemplate.update(ENQUEUE_SQL, event.userId(),
+                before.visitedCountries(), before.visitedCities(), before.totalPins(),
+                after.visitedCountries(), after.visitedCities(), after.totalPins());
+    }
+
+    @Async("feedTaskExecutor")
+    @TransactionalEventListener
+    public void onStatsChanged(UserStatsChangedEvent event) {
+        if (passesMilestone(event.before(), event.after())) {
+            runChecks(event.userId());
+        }
+    }
+
+    /**
+     * Run the checks still queued a while after their pin was saved
+     */
+    @Scheduled(fixedDelayString = "${app.achievements.retry-interval-ms:60000}")
+    public void retryChecks() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minusSeconds(retryAfterSeconds));
+        List<Long> userIds = jdbcTemplate.queryForList(STALE_USERS_SQL, Long.class, cutoff, retryBatchSize);
+        userIds.forEach(this::runChecks);
+        if (!userIds.isEmpty()) {
+            log.info("Retried milestone checks of {} users", userIds.size());
+        }
+    }
+
+    /**
+     * Run and remove the user's queued checks; on failure they stay queued for a retry
+     */
+    private void runChecks(Long userId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(TAKE_USER_CHECKS_SQL,
+                    (RowCallbackHandler) rs -> checkMilestones(userId,
+                            new UserStatsChangedEvent.Stats(rs.getInt(1), rs.getInt(2), rs.getInt(3)),
+                            new UserStatsChangedEvent.Stats(rs.getInt(4), rs.getInt(5), rs.getInt(6))),
+                    userId));
+        } catch (RuntimeException ex) {
+            log.error("Milestone check for user {} failed", userId, ex);
+        }
+    }
+
+    @Override
+    public void checkMilestones(Long userId, UserStatsChangedEvent.Stats before, UserStatsChangedEvent.Stats after) {
+        for (MilestoneRule rule : rules) {
+            int from = rule.counter().applyAsInt(before);
+            int to = rule.counter().applyAsInt(after);
+            for (int threshold : rule.thresholds()) {
+                if (threshold > to) {
+                    break;
+                }
+                if (threshold > from) {
+                    award(userId, rule, threshold, to);
+                }
+            }
+        }
+    }
+
+    private boolean passesMilestone(UserStatsChangedEvent.Stats before, UserStatsChangedEvent.Stats after) {
+        for (MilestoneRule rule : rules) {
+            int from = rule.counter().applyAsInt(before);
+            int to = rule.counter().applyAsInt(after);
+            for (int threshold : rule.thresholds()) {
+                if (threshold > to) {
+                    break;
+                }
+                if (threshold > from) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void award(Long userId, MilestoneRule rule, int threshold, int count) {
+        String code = rule.name() + "_" + threshold;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (userAchievementRepository.claim(userId, code) == 0) {
+                return;
+            }
+            Activity activity = activityService.record(userId, rule.type(), null, null, null, Map.of(
+                    "achievement_type", rule.name(),
+                    "count", count,
+                    "milestone", threshold));
+            userAchievementRepository.attachActivity(userId, code, activity.getId());
+            log.info("User {} reached milestone {}", userId, code);
+        });
+    }
+
+    private static int[] sorted(int[] thresholds) {
+        int[] copy = thresholds.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * Milestones on one counter, thresholds in ascending order
+     */
+    private record MilestoneRule(String name, Activity.ActivityType type,
+                                 ToIntFunction<UserStatsChangedEvent.Stats> counter, int[] thresholds) {
+    }
+}
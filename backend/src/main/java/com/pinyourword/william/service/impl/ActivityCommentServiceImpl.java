@@ -0,0 +1,246 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.config.PaginationProperties;
+import com.pinyourword.william.dto.request.CommentCreateRequest;
+import com.pinyourword.william.dto.response.CommentResponse;
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.FeedActorResponse;
+import com.pinyourword.william.entity.Activity;
+import com.pinyourword.william.entity.ActivityComment;
+import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.exception.ResourceNotFoundException;
+import com.pinyourword.william.repository.ActivityCommentRepository;
+import com.pinyourword.william.repository.ActivityRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.repository.projection.CommentView;
+import com.pinyourword.william.repository.projection.UserSummaryView;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IActivityCommentService;
+import com.pinyourword.william.service.IActivityCounterService;
+import com.pinyourword.william.util.CursorCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Comments on activities, threaded one level deep: a reply to a reply joins the thread of
+ * its top-level comment. Deletes are soft; the activity's comment count is left to the
+ * write-behind counters and only counts comments that are not deleted.
+ * <p>
+ * A page of threads is read in three queries whatever its size: a keyset page of top-level
+ * comments, the first replies of every comment on it (one window-function query), and the
+ * authors of both in one batch. The entity's lazy replies collection is never touched.
+ */
+@Service
+@RequiredArgsConstructor
+public class ActivityCommentServiceImpl implements IActivityCommentService {
+
+    // Upper bound for the first page of top-level comments, lower bound for the first page of replies
+    private static final Instant COMMENTS_START = Instant.parse("9999-12-31T00:00:00Z");
+    private static final Instant REPLIES_START = Instant.EPOCH;
+
+    private final ActivityCommentRepository activityCommentRepository;
+    private final ActivityRepository activityRepository;
+    private final UserRepository userRepository;
+    private final IActivityCounterService counterService;
+    private final PaginationProperties paginationProperties;
+
+    @Value("${app.comments.replies-per-comment:3}")
+    private int repliesPerComment;
+
+    @Override
+    @Transactional
+    public CommentResponse addComment(Authentication authentication, Long activityId, CommentCreateRequest request) {
+        User user = currentUser(authentication);
+        Activity activity = activityRepository.findById(activityId)
+                .orElseThrow(() -> new ResourceNotFoundException("Activity", "id", activityId));
+        ActivityComment parent = null;
+        if (request.getParentCommentId() != null) {
+            parent = threadOf(request.getParentCommentId(), activityId);
+        }
+        ActivityComment comment = activityCommentRepository.save(ActivityComment.builder()
+                .activity(activity)
+                .user(user)
+                .parentComment(parent)
+                .content(request.getContent().trim())
+                .build());
+        counterService.addComments(activityId, 1);
+        return CommentResponse.builder()
+                .id(comment.getId())
+                .activityId(activityId)
+                .parentCommentId(parent == null ? null : parent.getId())
+                .content(comment.getContent())
+                .author(FeedActorResponse.builder()
+                        .uuid(user.getUuid())
+                        .username(user.getUsername())
+                        .displayName(user.getDisplayName())
+                        .avatarUrl(user.getAvatarUrl())
+                        .build())
+                // created_at is written from the JVM clock in its default zone
+                .createdAt(comment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public void deleteComment(Authentication authentication, Long commentId) {
+        Long userId = AuthenticatedUser.from(authentication).id();
+        ActivityComment comment = activityCommentRepository.findById(commentId)
+                .filter(found -> !found.isDeleted() && found.getUser().getId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
+        comment.softDelete();
+        counterService.addComments(comment.getActivity().getId(), -1);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CommentResponse> getComments(Long activityId, String cursor, Integer size) {
+        if (!activityRepository.existsById(activityId)) {
+            throw new ResourceNotFoundException("Activity", "id", activityId);
+        }
+        int pageSize = paginationProperties.resolve(size);
+        CursorCodec.Cursor position = CursorCodec.decode(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<CommentView> comments = activityCommentRepository.findTopLevelPage(activityId,
+                position == null ? COMMENTS_START : position.timestamp(),
+                position == null ? Long.MAX_VALUE : position.id(),
+                pageSize + 1);
+        String nextCursor = null;
+        if (comments.size() > pageSize) {
+            comments = comments.subList(0, pageSize);
+            CommentView last = comments.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+        if (comments.isEmpty()) {
+            return CursorPage.of(List.of(), null);
+        }
+
+        // One reply more than shown tells whether a thread continues
+        Map<Long, List<CommentView>> repliesByParent = activityCommentRepository
+                .findFirstReplies(comments.stream().map(CommentView::getId).toList(), repliesPerComment + 1)
+                .stream()
+                .collect(Collectors.groupingBy(CommentView::getParentCommentId));
+        Map<Long, FeedActorResponse> authors = loadAuthors(comments, repliesByParent.values());
+
+        List<CommentResponse> items = new ArrayList<>(comments.size());
+        for (CommentView comment : comments) {
+            FeedActorResponse author = authors.get(comment.getAuthorId());
+            if (author == null) {
+                continue;
+            }
+            List<CommentView> replies = repliesByParent.getOrDefault(comment.getId(), List.of());
+            String repliesCursor = null;
+            if (replies.size() > repliesPerComment) {
+                replies = replies.subList(0, repliesPerComment);
+                CommentView lastReply = replies.get(repliesPerComment - 1);
+                repliesCursor = CursorCodec.encode(lastReply.getCreatedAt(), lastReply.getId());
+            }
+            CommentResponse item = mapToCommentResponse(comment, author);
+            item.setReplies(mapToCommentResponses(replies, authors));
+            item.setRepliesCursor(repliesCursor);
+            items.add(item);
+        }
+        return CursorPage.of(items, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CommentResponse> getReplies(Long commentId, String cursor, Integer size) {
+        activityCommentRepository.findById(commentId)
+                .filter(found -> !found.isDeleted() && found.getParentComment() == null)
+                .orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
+        int pageSize = paginationProperties.resolve(size);
+        CursorCodec.Cursor position = CursorCodec.decode(cursor);
+
+        List<CommentView> replies = activityCommentRepository.findReplyPage(commentId,
+                position == null ? REPLIES_START : position.timestamp(),
+                position == null ? 0 : position.id(),
+                pageSize + 1);
+        String nextCursor = null;
+        if (replies.size() > pageSize) {
+            replies = replies.subList(0, pageSize);
+            CommentView last = replies.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+        return CursorPage.of(mapToCommentResponses(replies, loadAuthors(replies, List.of())), nextCursor);
+    }
+
+    /**
+     * The top-level comment a new reply to {@code commentId} belongs under
+     */
+    private ActivityComment threadOf(Long commentId, Long activityId) {
+        ActivityComment parent = activityCommentRepository.findById(commentId)
+                .filter(found -> !found.isDeleted() && found.getActivity().getId().equals(activityId))
+                .orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
+        ActivityComment root = parent.getParentComment() == null ? parent : parent.getParentComment();
+        if (root.isDeleted()) {
+            throw new ResourceNotFoundException("Comment", "id", commentId);
+        }
+        return root;
+    }
+
+    /**
+     * Authors of all given comments in one query, by user id. Deleted users are missing.
+     */
+    private Map<Long, FeedActorResponse> loadAuthors(List<CommentView> comments,
+                                                     Collection<List<CommentView>> replyGroups) {
+        Set<Long> authorIds = new HashSet<>();
+        comments.forEach(comment -> authorIds.add(comment.getAuthorId()));
+        replyGroups.forEach(group -> group.forEach(reply -> authorIds.add(reply.getAuthorId())));
+        if (authorIds.isEmpty()) {
+            return Map.of();
+        }
+        return userRepository.findSummariesByIds(authorIds).stream()
+                .collect(Collectors.toMap(UserSummaryView::getId, this::mapToActor, (first, second) -> first));
+    }
+
+    private List<CommentResponse> mapToCommentResponses(List<CommentView> comments,
+                                                        Map<Long, FeedActorResponse> authors) {
+        return comments.stream()
+                .filter(comment -> authors.containsKey(comment.getAuthorId()))
+                .map(comment -> mapToCommentResponse(comment, authors.get(comment.getAuthorId())))
+                .toList();
+    }
+
+    /**
+     * The author of a new comment; the response carries their profile, so it is read
+     */
+    private User currentUser(Authentication authentication) {
+        Long userId = AuthenticatedUser.from(authentication).id();
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+    }
+
+    private CommentResponse mapToCommentResponse(CommentView comment, FeedActorResponse author) {
+        return CommentResponse.builder()
+                .id(comment.getId())
+                .activityId(comment.getActivityId())
+                .parentCommentId(comment.getParentCommentId())
+                .content(comment.getContent())
+                .author(author)
+                .createdAt(comment.getCreatedAt())
+                .build();
+    }
+
+    private FeedActorResponse mapToActor(UserSummaryView user) {
+        return FeedActorResponse.builder()
+                .uuid(user.getUuid())
+                .username(user.getUsername())
+                .displayName(user.getDisplayName())
+                .avatarUrl(user.getAvatarUrl())
+                .build();
+    }
+}
@@ -0,0 +1,214 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.repository.ActivityRepository;
+import com.pinyourword.william.service.IActivityCounterService;
+import com.pinyourword.william.util.AdvisoryLock;
+import com.pinyourword.william.util.TransactionCallbacks;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind like and comment counters.
+ * <p>
+ * Likes and comments no longer update their activity row one by one (which serialized every
+ * like of a popular activity on that row's lock). Committed deltas are summed in memory, in
+ * LongAdders so concurrent likes of one activity do not contend either, and flushed every
+ * {@code app.counters.flush-interval-ms} as one {@code UPDATE ... FROM (VALUES ...)} per
+ * batch of activities. Counts on activities therefore lag by up to one flush interval.
+ * <p>
+ * The reconciliation job repairs the deltas of an instance that died before flushing. It runs
+ * on one instance at a time (advisory lock) and corrects counts by adding the drift from the
+ * exact counts in activity_likes and activity_comments, never by overwriting them. A like
+ * committed on another instance but not flushed yet also shows up as drift, so a drift is
+ * only applied when a second look, taken after every instance has flushed at least once,
+ * still finds exactly the same drift. Activities that keep changing are left to a later run.
+ */
+@Service
+@Slf4j
+public class ActivityCounterServiceImpl implements IActivityCounterService {
+
+    // Any constant unique among the application's advisory locks
+    private static final long RECONCILE_LOCK = 0x70797701L;
+
+    private static final String FLUSH_SQL = """
+            UPDATE activities a
+            SET likes_count = GREATEST(a.likes_count + d.likes, 0),
+                comments_count = GREATEST(a.comments_count + d.comments, 0)
+            FROM (VALUES %s) AS d(id, likes, comments)
+            WHERE a.id = d.id
+            """;
+
+    // Adds each drift only if the row still drifts by exactly as much
+    private static final String RECONCILE_SQL = """
+            UPDATE activities a
+            SET likes_count = a.likes_count + d.likes,
+                comments_count = a.comments_count + d.comments
+            FROM (VALUES %s) AS d(id, likes, comments)
+            WHERE a.id = d.id
+              AND (SELECT COUNT(*) FROM activity_likes l WHERE l.activity_id = a.id) - a.likes_count = d.likes
+              AND (SELECT COUNT(*) FROM activity_comments c
+                   WHERE c.activity_id = a.id AND c.deleted_at IS NULL) - a.comments_count = d.comments
+            """;
+
+    private final ActivityRepository activityRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Writers share the read lock; a flush takes the write lock only to swap the map
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private Map<Long, Deltas> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.counters.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${app.counters.reconcile-batch-size:10000}")
+    private int reconcileBatchSize;
+
+    // Longer than the flush interval, so every instance flushes between the two looks
+    @Value("${app.counters.reconcile-settle-ms:5000}")
+    private long reconcileSettleMs;
+
+    public ActivityCounterServiceImpl(ActivityRepository activityRepository, JdbcTemplate jdbcTemplate) {
+        this.activityRepository = activityRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addLikes(Long activityId, int delta) {
+        TransactionCallbacks.afterCommit(() -> add(activityId, delta, 0));
+    }
+
+    @Override
+    public void addComments(Long activityId, int delta) {
+        TransactionCallbacks.afterCommit(() -> add(activityId, 0, delta));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<Long, Deltas> batch;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        // Same row order in every statement, so concurrent flushes of several instances cannot deadlock
+        List<Delta> deltas = batch.entrySet().stream()
+                .map(entry -> new Delta(entry.getKey(), entry.getValue().likes.sum(), entry.getValue().comments.sum()))
+                .filter(delta -> delta.likes() != 0 || delta.comments() != 0)
+                .sorted(Comparator.comparing(Delta::activityId))
+                .toList();
+        for (int from = 0; from < deltas.size(); from += flushBatchSize) {
+            List<Delta> chunk = deltas.subList(from, Math.min(from + flushBatchSize, deltas.size()));
+            try {
+                apply(chunk);
+            } catch (RuntimeException ex) {
+                log.warn("Counter flush of {} activities failed, retrying next flush: {}", chunk.size(), ex.getMessage());
+                chunk.forEach(delta -> add(delta.activityId(), delta.likes(), delta.comments()));
+            }
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${app.counters.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        if (!AdvisoryLock.runExclusively(jdbcTemplate, RECONCILE_LOCK, this::reconcileDrift)) {
+            log.info("Counter reconciliation is already running on another instance");
+        }
+    }
+
+    private void reconcileDrift() {
+        // Deltas of this instance are applied first so they do not show up as drift
+        flush();
+        List<Delta> drift = new ArrayList<>();
+        long maxId = activityRepository.findMaxId();
+        for (long fromId = 0; fromId < maxId; fromId += reconcileBatchSize) {
+            activityRepository.findCounterDrift(fromId, fromId + reconcileBatchSize).forEach(view ->
+                    drift.add(new Delta(view.getId(), view.getLikes(), view.getComments())));
+        }
+        if (drift.isEmpty()) {
+            log.info("Counter reconciliation found no drift");
+            return;
+        }
+
+        try {
+            Thread.sleep(reconcileSettleMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        flush();
+        int fixed = 0;
+        for (int from = 0; from < drift.size(); from += flushBatchSize) {
+            List<Delta> chunk = drift.subList(from, Math.min(from + flushBatchSize, drift.size()));
+            fixed += jdbcTemplate.update(RECONCILE_SQL.formatted(valuesOf(chunk.size())), argsOf(chunk));
+        }
+        log.info("Counter reconciliation fixed {} of {} drifting activities", fixed, drift.size());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void add(Long activityId, long likes, long comments) {
+        swapLock.readLock().lock();
+        try {
+            Deltas deltas = pending.computeIfAbsent(activityId, id -> new Deltas());
+            if (likes != 0) {
+                deltas.likes.add(likes);
+            }
+            if (comments != 0) {
+                deltas.comments.add(comments);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void apply(List<Delta> chunk) {
+        jdbcTemplate.update(FLUSH_SQL.formatted(valuesOf(chunk.size())), argsOf(chunk));
+    }
+
+    private static String valuesOf(int rows) {
+        return String.join(", ", Collections.nCopies(rows, "(?::bigint, ?::bigint, ?::bigint)"));
+    }
+
+    private static Object[] argsOf(List<Delta> chunk) {
+        Object[] args = new Object[chunk.size() * 3];
+        for (int i = 0; i < chunk.size(); i++) {
+            Delta delta = chunk.get(i);
+            args[i * 3] = delta.activityId();
+            args[i * 3 + 1] = delta.likes();
+            args[i * 3 + 2] = delta.comments();
+        }
+        return args;
+    }
+
+    private static final class Deltas {
+        final LongAdder likes = new LongAdder();
+        final LongAdder comments = new LongAdder();
+    }
+
+    private record Delta(Long activityId, long likes, long comments) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.cache.LikedActivitiesCache;
+import com.pinyourword.william.dto.response.LikeResponse;
+import com.pinyourword.william.exception.ResourceNotFoundException;
+import com.pinyourword.william.repository.ActivityLikeRepository;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IActivityCounterService;
+import com.pinyourword.william.service.IActivityLikeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+
+/**
+ * Likes are written as an idempotent upsert on the unique (activity_id, user_id) index, so a
+ * repeated like or unlike is one statement and no error. The activity's like count is left to
+ * the write-behind counters, and the viewer's liked set is updated in LikedActivitiesCache.
+ */
+@Service
+@RequiredArgsConstructor
+public class ActivityLikeServiceImpl implements IActivityLikeService {
+
+    private final ActivityLikeRepository activityLikeRepository;
+    private final IActivityCounterService counterService;
+    private final LikedActivitiesCache likedActivitiesCache;
+
+    @Override
+    @Transactional
+    public LikeResponse like(Authentication authentication, Long activityId) {
+        Long userId = AuthenticatedUser.from(authentication).id();
+        int added = activityLikeRepository.upsertLike(activityId, userId);
+        if (added < 0) {
+            throw new ResourceNotFoundException("Activity", "id", activityId);
+        }
+        if (added > 0) {
+            counterService.addLikes(activityId, 1);
+            likedActivitiesCache.update(userId, activityId, true);
+        }
+        return mapToLikeResponse(activityId, true);
+    }
+
+    @Override
+    @Transactional
+    public LikeResponse unlike(Authentication authentication, Long activityId) {
+        Long userId = AuthenticatedUser.from(authentication).id();
+        if (activityLikeRepository.deleteLike(activityId, userId) > 0) {
+            counterService.addLikes(activityId, -1);
+            likedActivitiesCache.update(userId, activityId, false);
+        }
+        return mapToLikeResponse(activityId, false);
+    }
+
+    private LikeResponse mapToLikeResponse(Long activityId, boolean liked) {
+        return LikeResponse.builder()
+                .activityId(activityId)
+                .liked(liked)
+                .build();
+    }
+}
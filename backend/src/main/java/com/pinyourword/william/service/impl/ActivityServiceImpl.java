@@ -0,0 +1,40 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.entity.Activity;
+import com.pinyourword.william.event.ActivityCreatedEvent;
+import com.pinyourword.william.repository.ActivityRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.service.IActivityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class ActivityServiceImpl implements IActivityService {
+
+    private final ActivityRepository activityRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public Activity record(Long actorId, Activity.ActivityType type, Long objectId, String objectType,
+                           String caption, Map<String, Object> metadata) {
+        Activity activity = Activity.builder()
+                .actor(userRepository.getReferenceById(actorId))
+                .activityType(type)
+                .objectId(objectId)
+                .objectType(objectType)
+                .caption(caption)
+                .metadata(metadata == null ? new HashMap<>() : new HashMap<>(metadata))
+                .build();
+        activityRepository.save(activity);
+        eventPublisher.publishEvent(new ActivityCreatedEvent(activity.getId(), actorId, type));
+        return activity;
+    }
+}
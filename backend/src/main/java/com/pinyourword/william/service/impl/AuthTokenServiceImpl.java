@@ -0,0 +1,134 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.entity.RefreshToken;
+import com.pinyourword.william.exception.UnauthorizedException;
+import com.pinyourword.william.repository.RefreshTokenRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.security.JwtTokenProvider;
+import com.pinyourword.william.security.TokenRevocationList;
+import com.pinyourword.william.service.IAuthTokenService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Rotating refresh tokens, and revocation of access tokens through the {@link TokenRevocationList}.
+ * <p>
+ * A token is 256 random bits; the table only holds its SHA-256, so a leaked table cannot be
+ * replayed. Each refresh marks the presented token used and issues the next one of the same
+ * family. A used token coming back means two parties hold the family (one of them stole it),
+ * so the whole family is revoked and both have to log in again.
+ */
+@Service
+@Slf4j
+public class AuthTokenServiceImpl implements IAuthTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String INVALID = "Invalid refresh token";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final TokenRevocationList revocationList;
+    private final Duration lifetime;
+
+    public AuthTokenServiceImpl(RefreshTokenRepository refreshTokenRepository,
+                                UserRepository userRepository,
+                                TokenRevocationList revocationList,
+                                @Value("${app.jwt.refresh-expiration:2592000000}") long lifetimeMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.revocationList = revocationList;
+        this.lifetime = Duration.ofMillis(lifetimeMs);
+    }
+
+    @Override
+    @Transactional
+    public String issueRefreshToken(Long userId) {
+        return save(userId, UUID.randomUUID());
+    }
+
+    @Override
+    // The family is revoked on reuse even though the call fails
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public Rotation rotate(String refreshToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHashForUpdate(hash(refreshToken))
+                .orElseThrow(() -> new UnauthorizedException(INVALID));
+        if (token.getRevokedAt() != null || token.getExpiresAt().isBefore(Instant.now())) {
+            throw new UnauthorizedException(INVALID);
+        }
+        if (token.getUsedAt() != null) {
+            refreshTokenRepository.revokeFamily(token.getFamilyId());
+            log.warn("Refresh token reused, revoked family {} of user {}", token.getFamilyId(), token.getUserId());
+            throw new UnauthorizedException(INVALID);
+        }
+        token.setUsedAt(Instant.now());
+        return new Rotation(token.getUserId(), save(token.getUserId(), token.getFamilyId()));
+    }
+
+    @Override
+    @Transactional
+    public void logout(String refreshToken, JwtTokenProvider.AccessToken accessToken) {
+        if (refreshToken != null) {
+            refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                    .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+        }
+        if (accessToken != null && accessToken.tokenId() != null) {
+            revocationList.revokeToken(accessToken.tokenId(), accessToken.expiresAt());
+        }
+    }
+
+    @Override
+    @Transactional
+    public void revokeAll(Long userId, UUID userUuid) {
+        refreshTokenRepository.revokeAllOfUser(userId);
+        revocationList.revokeUser(userUuid, userRepository.incrementTokenEpoch(userId));
+    }
+
+    @Override
+    @Transactional
+    public void replacePassword(Long userId, UUID userUuid, String hashedPassword) {
+        userRepository.updateHashedPassword(userId, hashedPassword);
+        revokeAll(userId, userUuid);
+    }
+
+    @Scheduled(cron = "${app.jwt.refresh-purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        log.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+    private String save(Long userId, UUID familyId) {
+        byte[] secret = new byte[32];
+        RANDOM.nextBytes(secret);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .userId(userId)
+                .tokenHash(hash(value))
+                .familyId(familyId)
+                .expiresAt(Instant.now().plus(lifetime))
+                .build());
+        return value;
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
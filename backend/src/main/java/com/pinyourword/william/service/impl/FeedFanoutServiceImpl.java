@@ -0,0 +1,268 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.cache.FeedCache;
+import com.pinyourword.william.event.ActivityCreatedEvent;
+import com.pinyourword.william.repository.ActivityRepository;
+import com.pinyourword.william.repository.FollowRelationshipRepository;
+import com.pinyourword.william.repository.UserFeedRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.repository.projection.FeedEntryView;
+import com.pinyourword.william.service.IFeedFanoutService;
+import com.pinyourword.william.service.IFeedService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Hybrid feed delivery.
+ * <p>
+ * Activities of regular accounts are pushed into their followers' user_feeds rows, in
+ * batches of follower ids, on the feed executor after the activity is committed. Accounts with
+ * at least {@code app.feed.celebrity-threshold} followers are not pushed at all: readers pull
+ * their recent activities when the feed is read (see FeedServiceImpl). Either way the actor
+ * gets the activity in their own feed.
+ * <p>
+ * Each feed-visible activity writes a row to feed_fanout_jobs in its own transaction (outbox).
+ * The job is claimed and run right after commit; one that is lost with its instance or fails
+ * is claimed again by the poller (FOR UPDATE SKIP LOCKED, exponential backoff) and is only
+ * deleted once every batch is written. Every step is idempotent, so running a job twice is
+ * harmless.
+ * <p>
+ * The push/pull decision reads users.followers_count, kept up to date by follow and unfollow.
+ * Every pushed batch is written through to the feed heads cached in memory, and the activity
+ * is hydrated into the shared feed cache once for all its readers.
+ */
+@Service
+@Slf4j
+public class FeedFanoutServiceImpl implements IFeedFanoutService {
+
+    private static final String ENQUEUE_SQL = "INSERT INTO feed_fanout_jobs (activity_id, actor_id) VALUES (?, ?)";
+    private static final String CLAIM_ACTIVITY_SQL = """
+            UPDATE feed_fanout_jobs
+            SET status = 'running', attempts = attempts + 1, locked_at = NOW()
+            WHERE id IN (
+                SELECT id FROM feed_fanout_jobs
+                WHERE activity_id = ? AND status = 'queued'
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, activity_id, actor_id, attempts
+            """;
+    // Jobs queued for longer than the grace period: the after-commit run did not take them
+    private static final String CLAIM_DUE_SQL = """
+            UPDATE feed_fanout_jobs
+            SET status = 'running', attempts = attempts + 1, locked_at = NOW()
+            WHERE id IN (
+                SELECT id FROM feed_fanout_jobs
+                WHERE status = 'queued' AND run_after <= NOW() - make_interval(secs => ?)
+                ORDER BY run_after, id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, activity_id, actor_id, attempts
+            """;
+    private static final String RELEASE_STALE_SQL = """
+            UPDATE feed_fanout_jobs
+            SET status = 'queued', locked_at = NULL
+            WHERE status = 'running' AND locked_at < NOW() - make_interval(secs => ?)
+            """;
+    private static final String DONE_SQL = "DELETE FROM feed_fanout_jobs WHERE id = ?";
+    private static final String RESCHEDULE_SQL = """
+            UPDATE feed_fanout_jobs
+            SET status = 'queued', locked_at = NULL, last_error = ?,
+                run_after = NOW() + make_interval(secs => ?)
+            WHERE id = ?
+            """;
+    private static final String FAILED_SQL = """
+            UPDATE feed_fanout_jobs
+            SET status = 'failed', locked_at = NULL, last_error = ?
+            WHERE id = ?
+            """;
+    private static final String PURGE_FAILED_SQL =
+            "DELETE FROM feed_fanout_jobs WHERE status = 'failed' AND created_at < ?";
+
+    private static final RowMapper<Job> JOB_MAPPER = (rs, rowNum) ->
+            new Job(rs.getLong("id"), rs.getLong("activity_id"), rs.getLong("actor_id"), rs.getInt("attempts"));
+
+    private final UserFeedRepository userFeedRepository;
+    private final FollowRelationshipRepository followRelationshipRepository;
+    private final UserRepository userRepository;
+    private final ActivityRepository activityRepository;
+    private final IFeedService feedService;
+    private final FeedCache feedCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskExecutor feedTaskExecutor;
+
+    @Value("${app.feed.celebrity-threshold:10000}")
+    private int celebrityThreshold;
+
+    @Value("${app.feed.fanout-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.feed.fanout.poll-batch-size:20}")
+    private int pollBatchSize;
+
+    @Value("${app.feed.fanout.retry-after-seconds:30}")
+    private double retryAfterSeconds;
+
+    @Value("${app.feed.fanout.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.feed.fanout.backoff-seconds:10}")
+    private double backoffSeconds;
+
+    @Value("${app.feed.fanout.lock-timeout-seconds:300}")
+    private double lockTimeoutSeconds;
+
+    @Value("${app.feed.jobs.failed-retention-days:30}")
+    private long failedRetentionDays;
+
+    public FeedFanoutServiceImpl(UserFeedRepository userFeedRepository,
+                                 FollowRelationshipRepository followRelationshipRepository,
+                                 UserRepository userRepository,
+                                 ActivityRepository activityRepository,
+                                 IFeedService feedService,
+                                 FeedCache feedCache,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Qualifier("feedTaskExecutor") ThreadPoolTaskExecutor feedTaskExecutor) {
+        this.userFeedRepository = userFeedRepository;
+        this.followRelationshipRepository = followRelationshipRepository;
+        this.userRepository = userRepository;
+        this.activityRepository = activityRepository;
+        this.feedService = feedService;
+        this.feedCache = feedCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.feedTaskExecutor = feedTaskExecutor;
+    }
+
+    /**
+     * Runs in the activity's transaction, so the job is stored if and only if the activity is
+     */
+    @EventListener
+    public void enqueue(ActivityCreatedEvent event) {
+        if (event.type().isFeedVisible()) {
+            jdbcTemplate.update(ENQUEUE_SQL, event.activityId(), event.actorId());
+        }
+    }
+
+    @Async("feedTaskExecutor")
+    @TransactionalEventListener
+    public void onActivityCreated(ActivityCreatedEvent event) {
+        if (!event.type().isFeedVisible()) {
+            return;
+        }
+        try {
+            jdbcTemplate.query(CLAIM_ACTIVITY_SQL, JOB_MAPPER, event.activityId()).forEach(this::run);
+        } catch (RuntimeException ex) {
+            // The job stays queued and the poller runs it
+            log.warn("Could not claim fan-out of activity {}: {}", event.activityId(), ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.feed.fanout.poll-interval-ms:5000}",
+            initialDelayString = "${app.feed.fanout.poll-interval-ms:5000}")
+    public void poll() {
+        try {
+            jdbcTemplate.update(RELEASE_STALE_SQL, lockTimeoutSeconds);
+            List<Job> jobs = jdbcTemplate.query(CLAIM_DUE_SQL, JOB_MAPPER, retryAfterSeconds, pollBatchSize);
+            for (Job job : jobs) {
+                submit(job);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Fan-out job poll failed: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.feed.jobs.purge-cron:0 15 4 * * *}")
+    public void purgeFailed() {
+        Instant before = Instant.now().minus(Duration.ofDays(failedRetentionDays));
+        int purged = jdbcTemplate.update(PURGE_FAILED_SQL, Timestamp.from(before));
+        log.info("Purged {} failed fan-out jobs", purged);
+    }
+
+    @Override
+    public void fanOut(Long activityId, Long actorId) {
+        FeedEntryView entry = activityRepository.findFeedEntry(activityId).orElse(null);
+        if (entry == null) {
+            return;
+        }
+        userFeedRepository.insertEntry(actorId, activityId);
+        feedCache.addToHeads(List.of(actorId), entry);
+        feedService.cacheActivity(activityId);
+
+        int followers = userRepository.findFollowersCount(actorId);
+        if (followers >= celebrityThreshold) {
+            log.debug("Activity {} of actor {} ({} followers) is pulled at read time", activityId, actorId, followers);
+            return;
+        }
+
+        long afterId = 0;
+        int delivered = 0;
+        while (true) {
+            List<Long> batch = followRelationshipRepository.findFollowerIdsAfter(actorId, afterId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            long lastId = batch.get(batch.size() - 1);
+            delivered += userFeedRepository.fanOutToFollowers(activityId, afterId, lastId);
+            feedCache.addToHeads(batch, entry);
+            if (batch.size() < batchSize) {
+                break;
+            }
+            afterId = lastId;
+        }
+        log.debug("Activity {} pushed to {} feeds", activityId, delivered);
+    }
+
+    private void submit(Job job) {
+        try {
+            feedTaskExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException ex) {
+            // Shutting down: the job stays running and is reclaimed once its lock times out
+            log.warn("Fan-out job {} rejected: {}", job.id(), ex.getMessage());
+        }
+    }
+
+    private void run(Job job) {
+        try {
+            fanOut(job.activityId(), job.actorId());
+            jdbcTemplate.update(DONE_SQL, job.id());
+        } catch (RuntimeException ex) {
+            String error = StringUtils.abbreviate(String.valueOf(ex.getMessage()), 1000);
+            try {
+                if (job.attempts() >= maxAttempts) {
+                    log.error("Fan-out of activity {} failed", job.activityId(), ex);
+                    jdbcTemplate.update(FAILED_SQL, error, job.id());
+                } else {
+                    double delay = backoffSeconds * Math.pow(2, job.attempts() - 1);
+                    log.warn("Fan-out of activity {} attempt {} failed, retrying in {}s: {}",
+                            job.activityId(), job.attempts(), delay, error);
+                    jdbcTemplate.update(RESCHEDULE_SQL, error, delay, job.id());
+                }
+            } catch (RuntimeException updateEx) {
+                // The job stays running and is reclaimed once its lock times out
+                log.warn("Could not record failure of fan-out job {}: {}", job.id(), updateEx.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A claimed job; {@code attempts} includes the current one
+     */
+    private record Job(long id, long activityId, long actorId, int attempts) {
+    }
+}
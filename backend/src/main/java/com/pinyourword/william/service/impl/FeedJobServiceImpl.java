@@ -0,0 +1,212 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.cache.FeedCache;
+import com.pinyourword.william.entity.Activity;
+import com.pinyourword.william.entity.FeedJob;
+import com.pinyourword.william.repository.FeedJobRepository;
+import com.pinyourword.william.repository.FollowRelationshipRepository;
+import com.pinyourword.william.repository.UserFeedRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.service.IFeedJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the feed jobs queued by follow and unfollow.
+ * <p>
+ * Jobs are claimed with FOR UPDATE SKIP LOCKED like media jobs, retried with exponential
+ * backoff, and requeued when their worker dies. Each job checks the follow state when it
+ * runs, so it is idempotent and a quick follow/unfollow/follow ends in the right feed:
+ * a backfill for a follow that no longer exists, or a cleanup for one that was recreated,
+ * is simply skipped. Cleanup deletes in chunks, each in its own short transaction.
+ * <p>
+ * Finished jobs are purged nightly: done ones after app.feed.jobs.done-retention-days,
+ * failed ones (kept for inspection) after app.feed.jobs.failed-retention-days.
+ */
+@Service
+@Slf4j
+public class FeedJobServiceImpl implements IFeedJobService {
+
+    private static final List<String> FEED_ACTIVITY_TYPES = Activity.ActivityType.feedVisibleValues();
+
+    private final FeedJobRepository feedJobRepository;
+    private final FollowRelationshipRepository followRelationshipRepository;
+    private final UserFeedRepository userFeedRepository;
+    private final UserRepository userRepository;
+    private final FeedCache feedCache;
+    private final ThreadPoolTaskExecutor feedTaskExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore freeWorkers;
+
+    @Value("${app.feed.backfill-size:10}")
+    private int backfillSize;
+
+    @Value("${app.feed.celebrity-threshold:10000}")
+    private int celebrityThreshold;
+
+    @Value("${app.feed.jobs.cleanup-chunk-size:500}")
+    private int cleanupChunkSize;
+
+    @Value("${app.feed.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.feed.jobs.backoff-seconds:10}")
+    private double backoffSeconds;
+
+    @Value("${app.feed.jobs.lock-timeout-seconds:300}")
+    private double lockTimeoutSeconds;
+
+    @Value("${app.feed.jobs.done-retention-days:7}")
+    private long doneRetentionDays;
+
+    @Value("${app.feed.jobs.failed-retention-days:30}")
+    private long failedRetentionDays;
+
+    public FeedJobServiceImpl(FeedJobRepository feedJobRepository,
+                              FollowRelationshipRepository followRelationshipRepository,
+                              UserFeedRepository userFeedRepository,
+                              UserRepository userRepository,
+                              FeedCache feedCache,
+                              @Qualifier("feedTaskExecutor") ThreadPoolTaskExecutor feedTaskExecutor,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.feed.jobs.workers:2}") int workers) {
+        this.feedJobRepository = feedJobRepository;
+        this.followRelationshipRepository = followRelationshipRepository;
+        this.userFeedRepository = userFeedRepository;
+        this.userRepository = userRepository;
+        this.feedCache = feedCache;
+        this.feedTaskExecutor = feedTaskExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.freeWorkers = new Semaphore(workers);
+    }
+
+    @Override
+    public void enqueue(FeedJob.JobType type, Long followerId, Long followingId) {
+        feedJobRepository.save(FeedJob.builder()
+                .jobType(type.getValue())
+                .followerId(followerId)
+                .followingId(followingId)
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${app.feed.jobs.poll-interval-ms:1000}",
+            initialDelayString = "${app.feed.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            feedJobRepository.releaseStaleJobs(lockTimeoutSeconds);
+            int capacity = freeWorkers.availablePermits();
+            if (capacity == 0) {
+                return;
+            }
+            List<FeedJob> jobs = transactionTemplate.execute(status -> {
+                List<FeedJob> due = feedJobRepository.lockDueJobs(capacity);
+                if (!due.isEmpty()) {
+                    feedJobRepository.markRunning(due.stream().map(FeedJob::getId).toList());
+                }
+                return due;
+            });
+            for (FeedJob job : jobs) {
+                submit(job);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Feed job poll failed: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.feed.jobs.purge-cron:0 15 4 * * *}")
+    public void purgeFinished() {
+        int done = purge(FeedJob.Status.DONE.getValue(), doneRetentionDays);
+        int failed = purge(FeedJob.Status.FAILED.getValue(), failedRetentionDays);
+        log.info("Purged {} done and {} failed feed jobs", done, failed);
+    }
+
+    private int purge(String status, long retentionDays) {
+        Instant before = Instant.now().minus(Duration.ofDays(retentionDays));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = feedJobRepository.deleteFinished(status, before, cleanupChunkSize);
+            total += deleted;
+        } while (deleted == cleanupChunkSize);
+        return total;
+    }
+
+    private void submit(FeedJob job) {
+        freeWorkers.acquireUninterruptibly();
+        try {
+            feedTaskExecutor.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            // Shutting down: the job stays running and is reclaimed once its lock times out
+            freeWorkers.release();
+            log.warn("Feed job {} rejected: {}", job.getId(), ex.getMessage());
+        }
+    }
+
+    private void run(FeedJob job) {
+        // attempts was incremented in the database when the job was claimed
+        int attempt = job.getAttempts() + 1;
+        try {
+            if (FeedJob.JobType.BACKFILL.getValue().equals(job.getJobType())) {
+                backfill(job);
+            } else {
+                cleanup(job);
+            }
+            feedJobRepository.markDone(job.getId());
+        } catch (RuntimeException ex) {
+            String error = StringUtils.abbreviate(String.valueOf(ex.getMessage()), 1000);
+            if (attempt >= maxAttempts) {
+                log.error("Feed job {} ({}) failed", job.getId(), job.getJobType(), ex);
+                feedJobRepository.markFailed(job.getId(), error);
+            } else {
+                double delay = backoffSeconds * Math.pow(2, attempt - 1);
+                log.warn("Feed job {} attempt {} failed, retrying in {}s: {}", job.getId(), attempt, delay, error);
+                feedJobRepository.reschedule(job.getId(), error, delay);
+            }
+        }
+    }
+
+    private void backfill(FeedJob job) {
+        if (!followRelationshipRepository.existsFollow(job.getFollowerId(), job.getFollowingId())) {
+            return;
+        }
+        // Activities of celebrities are merged in when the feed is read
+        if (userRepository.findFollowersCount(job.getFollowingId()) >= celebrityThreshold) {
+            return;
+        }
+        if (userFeedRepository.backfill(job.getFollowerId(), job.getFollowingId(), FEED_ACTIVITY_TYPES, backfillSize) > 0) {
+            feedCache.evictHead(job.getFollowerId());
+        }
+    }
+
+    private void cleanup(FeedJob job) {
+        int deleted;
+        do {
+            if (followRelationshipRepository.existsFollow(job.getFollowerId(), job.getFollowingId())) {
+                return;
+            }
+            deleted = userFeedRepository.deleteChunk(job.getFollowerId(), job.getFollowingId(), cleanupChunkSize);
+            if (deleted > 0) {
+                feedCache.evictHead(job.getFollowerId());
+            }
+        } while (deleted == cleanupChunkSize);
+    }
+}
@@ -0,0 +1,255 @@
+package com.pinyourword.william.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pinyourword.william.cache.FeedCache;
+import com.pinyourword.william.cache.LikedActivitiesCache;
+import com.pinyourword.william.config.PaginationProperties;
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.FeedActorResponse;
+import com.pinyourword.william.dto.response.FeedItemResponse;
+import com.pinyourword.william.dto.response.FeedPinResponse;
+import com.pinyourword.william.entity.Activity;
+import com.pinyourword.william.repository.ActivityRepository;
+import com.pinyourword.william.repository.FollowRelationshipRepository;
+import com.pinyourword.william.repository.PinMediaRepository;
+import com.pinyourword.william.repository.PinRepository;
+import com.pinyourword.william.repository.UserFeedRepository;
+import com.pinyourword.william.repository.projection.FeedActivityView;
+import com.pinyourword.william.repository.projection.FeedEntryView;
+import com.pinyourword.william.repository.projection.PinPhotoView;
+import com.pinyourword.william.repository.projection.PinSummaryView;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IFeedService;
+import com.pinyourword.william.util.CursorCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the fan-out-on-write feed.
+ * <p>
+ * A page is one keyset scan of user_feeds on (feed_timestamp, activity_id), then the page is
+ * hydrated with a fixed number of batched queries whatever its size: activities with their
+ * actors, pins, pin cover photos, and the viewer's likes.
+ * <p>
+ * Activities of followed accounts above the celebrity threshold are not in user_feeds; they
+ * are read from activities with the same keyset bounds and merged into the page.
+ * <p>
+ * First pages are read from the in-memory feed heads, hydrated items are shared through
+ * {@link FeedCache} and the viewer's likes come from {@link LikedActivitiesCache}, so reading a
+ * hot feed leaves only the viewer and followed-celebrity lookups.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FeedServiceImpl implements IFeedService {
+
+    private static final String OBJECT_TYPE_PIN = "pin";
+    private static final List<String> FEED_ACTIVITY_TYPES = Activity.ActivityType.feedVisibleValues();
+    // Upper bound for the first page of pulled activities
+    private static final Instant FEED_START = Instant.parse("9999-12-31T00:00:00Z");
+    private static final Comparator<FeedEntryView> NEWEST_FIRST = Comparator
+            .comparing(FeedEntryView::getFeedTimestamp)
+            .thenComparing(FeedEntryView::getActivityId)
+            .reversed();
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final UserFeedRepository userFeedRepository;
+    private final ActivityRepository activityRepository;
+    private final PinRepository pinRepository;
+    private final PinMediaRepository pinMediaRepository;
+    private final FollowRelationshipRepository followRelationshipRepository;
+    private final PaginationProperties paginationProperties;
+    private final ObjectMapper objectMapper;
+    private final FeedCache feedCache;
+    private final LikedActivitiesCache likedActivitiesCache;
+
+    @Value("${app.feed.celebrity-threshold:10000}")
+    private int celebrityThreshold;
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<FeedItemResponse> getFeed(Authentication authentication, String cursor, Integer size) {
+        Long userId = AuthenticatedUser.from(authentication).id();
+        int pageSize = paginationProperties.resolve(size);
+        CursorCodec.Cursor position = CursorCodec.decode(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<FeedEntryView> entries;
+        if (position != null) {
+            entries = userFeedRepository.findFeedPageBefore(
+                    userId, position.timestamp(), position.id(), pageSize + 1);
+        } else if (feedCache.coversFirstPage(pageSize + 1)) {
+            entries = feedCache.getHead(userId, pageSize + 1, userFeedRepository::findFeedPage);
+        } else {
+            entries = userFeedRepository.findFeedPage(userId, pageSize + 1);
+        }
+        entries = mergePulledEntries(userId, entries, position, pageSize + 1);
+
+        String nextCursor = null;
+        if (entries.size() > pageSize) {
+            entries = entries.subList(0, pageSize);
+            FeedEntryView last = entries.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(last.getFeedTimestamp(), last.getActivityId());
+        }
+        return CursorPage.of(hydrate(entries, userId), nextCursor);
+    }
+
+    /**
+     * Merge the activities of followed celebrities into pushed feed entries.
+     * Both lists are bounded by the same cursor, so the first {@code limit} entries of the
+     * merge are exactly the next page; an activity present in both (pushed before its actor
+     * crossed the threshold) is kept once.
+     */
+    private List<FeedEntryView> mergePulledEntries(Long userId, List<FeedEntryView> pushed,
+                                                   CursorCodec.Cursor position, int limit) {
+        List<Long> celebrityIds = followRelationshipRepository.findFollowedCelebrityIds(userId, celebrityThreshold);
+        if (celebrityIds.isEmpty()) {
+            return pushed;
+        }
+        List<FeedEntryView> pulled = activityRepository.findFeedEntriesByActors(celebrityIds, FEED_ACTIVITY_TYPES,
+                position == null ? FEED_START : position.timestamp(),
+                position == null ? Long.MAX_VALUE : position.id(),
+                limit);
+        if (pulled.isEmpty()) {
+            return pushed;
+        }
+        Map<Long, FeedEntryView> merged = new LinkedHashMap<>();
+        pushed.forEach(entry -> merged.put(entry.getActivityId(), entry));
+        pulled.forEach(entry -> merged.putIfAbsent(entry.getActivityId(), entry));
+        return merged.values().stream()
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void cacheActivity(Long activityId) {
+        feedCache.getActivities(List.of(activityId), this::loadActivities);
+    }
+
+    /**
+     * Turn feed entries into feed items, keeping their order.
+     * Entries whose activity or actor is gone are dropped.
+     */
+    private List<FeedItemResponse> hydrate(List<FeedEntryView> entries, Long viewerId) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        List<Long> activityIds = entries.stream().map(FeedEntryView::getActivityId).toList();
+        Map<Long, FeedCache.CachedActivity> activities = feedCache.getActivities(activityIds, this::loadActivities);
+        Set<Long> liked = likedActivitiesCache.likedAmong(viewerId, activityIds);
+
+        List<FeedItemResponse> items = new ArrayList<>(entries.size());
+        for (FeedEntryView entry : entries) {
+            FeedCache.CachedActivity activity = activities.get(entry.getActivityId());
+            if (activity == null) {
+                continue;
+            }
+            // Cached items are shared between viewers, so the viewer's flags go on a copy
+            items.add(activity.item().toBuilder()
+                    .likedByMe(liked.contains(entry.getActivityId()))
+                    .seen(Boolean.TRUE.equals(entry.getSeen()))
+                    .build());
+        }
+        return items;
+    }
+
+    /**
+     * Hydrate activities in a fixed number of queries: activities with their actors, pins
+     * and pin cover photos. Ids that are missing from the result no longer exist.
+     */
+    private Map<Long, FeedCache.CachedActivity> loadActivities(Set<? extends Long> activityIds) {
+        List<FeedActivityView> activities = activityRepository.findFeedActivities(new ArrayList<>(activityIds));
+
+        Set<Long> pinIds = activities.stream()
+                .filter(activity -> OBJECT_TYPE_PIN.equals(activity.getObjectType()) && activity.getObjectId() != null)
+                .map(FeedActivityView::getObjectId)
+                .collect(Collectors.toSet());
+        Map<Long, PinSummaryView> pins = Map.of();
+        Map<Long, PinPhotoView> photos = Map.of();
+        if (!pinIds.isEmpty()) {
+            pins = pinRepository.findPinSummariesByIds(pinIds).stream()
+                    .collect(Collectors.toMap(PinSummaryView::getId, Function.identity()));
+            photos = pinMediaRepository.findCoverPhotos(pinIds).stream()
+                    .collect(Collectors.toMap(PinPhotoView::getPinId, Function.identity()));
+        }
+
+        Map<Long, FeedCache.CachedActivity> loaded = new HashMap<>();
+        for (FeedActivityView activity : activities) {
+            Long pinId = null;
+            FeedPinResponse pin = null;
+            if (OBJECT_TYPE_PIN.equals(activity.getObjectType())) {
+                pinId = activity.getObjectId();
+                PinSummaryView pinView = pins.get(pinId);
+                if (pinView != null) {
+                    pin = mapToFeedPin(pinView, photos.get(pinView.getId()));
+                }
+            }
+            FeedItemResponse item = FeedItemResponse.builder()
+                    .activityId(activity.getId())
+                    .activityType(activity.getActivityType())
+                    .caption(activity.getCaption())
+                    .metadata(parseMetadata(activity))
+                    .likesCount(activity.getLikesCount() == null ? 0 : activity.getLikesCount())
+                    .commentsCount(activity.getCommentsCount() == null ? 0 : activity.getCommentsCount())
+                    .createdAt(activity.getCreatedAt())
+                    .actor(FeedActorResponse.builder()
+                            .uuid(activity.getActorUuid())
+                            .username(activity.getActorUsername())
+                            .displayName(activity.getActorDisplayName())
+                            .avatarUrl(activity.getActorAvatarUrl())
+                            .build())
+                    .pin(pin)
+                    .build();
+            loaded.put(activity.getId(), new FeedCache.CachedActivity(activity.getActorId(), pinId, item));
+        }
+        return loaded;
+    }
+
+    private FeedPinResponse mapToFeedPin(PinSummaryView pin, PinPhotoView photo) {
+        return FeedPinResponse.builder()
+                .uuid(pin.getUuid())
+                .placeName(pin.getPlaceName())
+                .addressCity(pin.getAddressCity())
+                .addressCountry(pin.getAddressCountry())
+                .status(pin.getStatus())
+                .rating(pin.getRating())
+                .visitedDate(pin.getVisitedDate())
+                .latitude(pin.getLatitude())
+                .longitude(pin.getLongitude())
+                .photoUrl(photo == null ? null : photo.getUrl())
+                .photosCount(photo == null ? 0 : photo.getPhotoCount())
+                .build();
+    }
+
+    private Map<String, Object> parseMetadata(FeedActivityView activity) {
+        if (activity.getMetadata() == null || activity.getMetadata().isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(activity.getMetadata(), METADATA_TYPE);
+        } catch (JsonProcessingException ex) {
+            log.warn("Invalid metadata on activity {}: {}", activity.getId(), ex.getMessage());
+            return Map.of();
+        }
+    }
+}
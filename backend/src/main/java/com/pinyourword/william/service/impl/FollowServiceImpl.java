@@ -0,0 +1,76 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.dto.response.FollowResponse;
+import com.pinyourword.william.entity.FeedJob;
+import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.event.FollowChangedEvent;
+import com.pinyourword.william.exception.BadRequestException;
+import com.pinyourword.william.exception.ResourceNotFoundException;
+import com.pinyourword.william.repository.FollowRelationshipRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IFeedJobService;
+import com.pinyourword.william.service.IFollowService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+
+/**
+ * Follow and unfollow. The request only writes the follow row, the follower counter and a
+ * feed job (outbox) in one short transaction; feed backfill and cleanup run later in
+ * FeedJobServiceImpl, however many activities the followed account has.
+ */
+@Service
+@RequiredArgsConstructor
+public class FollowServiceImpl implements IFollowService {
+
+    private final FollowRelationshipRepository followRelationshipRepository;
+    private final IFeedJobService feedJobService;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public FollowResponse follow(Authentication authentication, String username) {
+        Long followerId = AuthenticatedUser.from(authentication).id();
+        User target = findTarget(username);
+        if (followerId.equals(target.getId())) {
+            throw new BadRequestException("You cannot follow yourself");
+        }
+        if (followRelationshipRepository.insertFollow(followerId, target.getId()) > 0) {
+            userRepository.addFollowersCount(target.getId(), 1);
+            feedJobService.enqueue(FeedJob.JobType.BACKFILL, followerId, target.getId());
+            eventPublisher.publishEvent(new FollowChangedEvent(followerId, target.getId(), true));
+        }
+        return mapToFollowResponse(target, true);
+    }
+
+    @Override
+    @Transactional
+    public FollowResponse unfollow(Authentication authentication, String username) {
+        Long followerId = AuthenticatedUser.from(authentication).id();
+        User target = findTarget(username);
+        if (followRelationshipRepository.deleteFollow(followerId, target.getId()) > 0) {
+            userRepository.addFollowersCount(target.getId(), -1);
+            feedJobService.enqueue(FeedJob.JobType.CLEANUP, followerId, target.getId());
+            eventPublisher.publishEvent(new FollowChangedEvent(followerId, target.getId(), false));
+        }
+        return mapToFollowResponse(target, false);
+    }
+
+    private User findTarget(String username) {
+        return userRepository.findActiveByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+    }
+
+    private FollowResponse mapToFollowResponse(User target, boolean following) {
+        return FollowResponse.builder()
+                .userUuid(target.getUuid())
+                .username(target.getUsername())
+                .following(following)
+                .build();
+    }
+}
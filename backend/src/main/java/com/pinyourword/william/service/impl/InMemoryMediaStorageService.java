@@ -0,0 +1,80 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.service.IMediaStorageService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Storage stand-in that keeps objects in memory.
+ * Enabled with app.media.storage=memory for local runs and tests without S3 or MinIO.
+ */
+@Service
+@ConditionalOnProperty(name = "app.media.storage", havingValue = "memory")
+public class InMemoryMediaStorageService implements IMediaStorageService {
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<Void> upload(String key, Path file, String contentType) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                objects.put(key, new StoredObject(Files.readAllBytes(file), contentType));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> upload(String key, byte[] data, String contentType) {
+        objects.put(key, new StoredObject(data.clone(), contentType));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> openStream(String key) {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No object stored at " + key));
+        }
+        return CompletableFuture.completedFuture(new ByteArrayInputStream(object.data()));
+    }
+
+    @Override
+    public CompletableFuture<ObjectInfo> head(String key) {
+        StoredObject object = objects.get(key);
+        return CompletableFuture.completedFuture(
+                object == null ? null : new ObjectInfo(object.contentType(), object.data().length));
+    }
+
+    @Override
+    public PresignedUpload presignPut(String key, String contentType, long sizeBytes, Duration ttl) {
+        // Nothing serves this URL; tests put the object with upload() instead
+        return new PresignedUpload("PUT", publicUrl(key), Map.of("Content-Type", contentType),
+                Instant.now().plus(ttl));
+    }
+
+    @Override
+    public String publicUrl(String key) {
+        return "memory://" + key;
+    }
+
+    public StoredObject get(String key) {
+        return objects.get(key);
+    }
+
+    public record StoredObject(byte[] data, String contentType) {
+    }
+}
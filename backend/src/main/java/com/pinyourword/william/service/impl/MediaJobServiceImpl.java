@@ -0,0 +1,207 @@
+package com.pinyourword.william.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pinyourword.william.entity.MediaJob;
+import com.pinyourword.william.entity.PinMedia;
+import com.pinyourword.william.repository.MediaJobRepository;
+import com.pinyourword.william.repository.PinMediaRepository;
+import com.pinyourword.william.service.IMediaJobService;
+import com.pinyourword.william.service.IMediaStorageService;
+import com.pinyourword.william.util.ImageVariants;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Background generation of thumbnails and responsive size variants.
+ * <p>
+ * Jobs live in the media_jobs table, so they survive restarts and can be processed by
+ * any number of instances: each poll locks a batch with FOR UPDATE SKIP LOCKED and marks it
+ * running. Failed jobs are retried with exponential backoff, and jobs left running by a
+ * crashed worker are put back in the queue after {@code app.media.jobs.lock-timeout-seconds}.
+ * <p>
+ * Every variant is a re-encoded JPEG without metadata; the smallest one is the thumbnail.
+ * Formats ImageIO has no reader for (WebP and HEIF without a plugin) are served as the
+ * original only: their job completes without variants instead of failing.
+ */
+@Service
+@Slf4j
+public class MediaJobServiceImpl implements IMediaJobService {
+
+    private static final String JPEG = "image/jpeg";
+
+    private final MediaJobRepository mediaJobRepository;
+    private final PinMediaRepository pinMediaRepository;
+    private final IMediaStorageService storageService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor mediaJobExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore freeWorkers;
+
+    @Value("${app.media.variants.widths:320,640,1280}")
+    private List<Integer> variantWidths;
+
+    @Value("${app.media.variants.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${app.media.variants.max-source-pixels:50000000}")
+    private long maxSourcePixels;
+
+    @Value("${app.media.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.media.jobs.backoff-seconds:30}")
+    private double backoffSeconds;
+
+    @Value("${app.media.jobs.lock-timeout-seconds:600}")
+    private double lockTimeoutSeconds;
+
+    public MediaJobServiceImpl(MediaJobRepository mediaJobRepository,
+                               PinMediaRepository pinMediaRepository,
+                               IMediaStorageService storageService,
+                               ObjectMapper objectMapper,
+                               @Qualifier("mediaJobExecutor") ThreadPoolTaskExecutor mediaJobExecutor,
+                               PlatformTransactionManager transactionManager) {
+        this.mediaJobRepository = mediaJobRepository;
+        this.pinMediaRepository = pinMediaRepository;
+        this.storageService = storageService;
+        this.objectMapper = objectMapper;
+        this.mediaJobExecutor = mediaJobExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.freeWorkers = new Semaphore(mediaJobExecutor.getMaxPoolSize());
+    }
+
+    @Override
+    public void enqueueVariants(Long mediaId) {
+        mediaJobRepository.enqueue(mediaId, MediaJob.JobType.VARIANTS.getValue());
+    }
+
+    /**
+     * Claim as many due jobs as there are idle workers and hand them to the worker pool
+     */
+    @Scheduled(fixedDelayString = "${app.media.jobs.poll-interval-ms:2000}",
+            initialDelayString = "${app.media.jobs.poll-interval-ms:2000}")
+    public void poll() {
+        try {
+            mediaJobRepository.releaseStaleJobs(lockTimeoutSeconds);
+            int capacity = freeWorkers.availablePermits();
+            if (capacity == 0) {
+                return;
+            }
+            List<MediaJob> jobs = transactionTemplate.execute(status -> {
+                List<MediaJob> due = mediaJobRepository.lockDueJobs(capacity);
+                if (!due.isEmpty()) {
+                    mediaJobRepository.markRunning(due.stream().map(MediaJob::getId).toList());
+                }
+                return due;
+            });
+            for (MediaJob job : jobs) {
+                submit(job);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Media job poll failed: {}", ex.getMessage());
+        }
+    }
+
+    private void submit(MediaJob job) {
+        freeWorkers.acquireUninterruptibly();
+        try {
+            mediaJobExecutor.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            // Shutting down: the job stays running and is reclaimed once its lock times out
+            freeWorkers.release();
+            log.warn("Media job {} rejected: {}", job.getId(), ex.getMessage());
+        }
+    }
+
+    private void run(MediaJob job) {
+        // attempts was incremented in the database when the job was claimed
+        int attempt = job.getAttempts() + 1;
+        try {
+            PinMedia media = pinMediaRepository.findById(job.getMediaId()).orElse(null);
+            if (media == null) {
+                mediaJobRepository.markDone(job.getId());
+                return;
+            }
+            if (PinMedia.UploadStatus.FAILED.getValue().equals(media.getStatus())) {
+                mediaJobRepository.markFailed(job.getId(), "Original upload failed");
+                return;
+            }
+            if (!ImageVariants.canDecode(media.getContentType())) {
+                log.debug("No reader for {}; media {} keeps only its original", media.getContentType(), media.getId());
+                mediaJobRepository.markDone(job.getId());
+                return;
+            }
+            generateVariants(media);
+            mediaJobRepository.markDone(job.getId());
+        } catch (Exception ex) {
+            String error = StringUtils.abbreviate(String.valueOf(ex.getMessage()), 1000);
+            if (ex instanceof IOException || attempt >= maxAttempts) {
+                // Undecodable images will not get better on retry
+                log.error("Media job {} for media {} failed", job.getId(), job.getMediaId(), ex);
+                mediaJobRepository.markFailed(job.getId(), error);
+            } else {
+                double delay = backoffSeconds * Math.pow(2, attempt - 1);
+                log.warn("Media job {} attempt {} failed, retrying in {}s: {}", job.getId(), attempt, delay, error);
+                mediaJobRepository.reschedule(job.getId(), error, delay);
+            }
+        }
+    }
+
+    private void generateVariants(PinMedia media) throws IOException {
+        BufferedImage image;
+        try (InputStream original = storageService.openStream(media.getStorageKey()).join()) {
+            image = ImageVariants.decode(original, maxSourcePixels);
+        }
+
+        String baseKey = StringUtils.substringBeforeLast(media.getStorageKey(), ".");
+        Map<String, String> variants = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        for (int width : variantWidths.stream().sorted().distinct().toList()) {
+            // Never upscale; an image narrower than the smallest width still gets a thumbnail
+            if (width > image.getWidth() && !variants.isEmpty()) {
+                break;
+            }
+            BufferedImage resized = ImageVariants.resizeToWidth(image, width);
+            String key = baseKey + "_w" + width + ".jpg";
+            uploads.add(storageService.upload(key, ImageVariants.encodeJpeg(resized, jpegQuality), JPEG));
+            variants.put(String.valueOf(width), storageService.publicUrl(key));
+        }
+        CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+
+        String thumbnailUrl = variants.values().iterator().next();
+        pinMediaRepository.updateVariants(media.getId(), thumbnailUrl, toJson(variants));
+    }
+
+    private String toJson(Map<String, String> variants) {
+        try {
+            return objectMapper.writeValueAsString(variants);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
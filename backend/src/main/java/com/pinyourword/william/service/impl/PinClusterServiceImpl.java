@@ -0,0 +1,96 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.dto.response.PinClusterResponse;
+import com.pinyourword.william.dto.response.PinClustersResponse;
+import com.pinyourword.william.exception.BadRequestException;
+import com.pinyourword.william.repository.projection.PinClusterView;
+import com.pinyourword.william.repository.projection.PinMarkerView;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IPinClusterService;
+import com.pinyourword.william.util.BoundingBox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Server-side clustering for low zoom levels.
+ * Pins are aggregated in PostGIS on a grid whose cell size follows the zoom level
+ * (a fixed number of cells per 256px map tile), so a frame never carries more than
+ * app.map.cluster.max-clusters rows no matter how many pins are in the viewport.
+ * Past app.map.cluster.max-zoom the individual pins are returned instead.
+ */
+@Service
+@RequiredArgsConstructor
+public class PinClusterServiceImpl implements IPinClusterService {
+
+    private static final int MAX_ZOOM = 22;
+
+    private final PinViewportReader viewportReader;
+
+    @Value("${app.map.cluster.max-zoom:15}")
+    private int clusterMaxZoom;
+
+    @Value("${app.map.cluster.cells-per-tile:8}")
+    private int cellsPerTile;
+
+    @Value("${app.map.cluster.max-clusters:1000}")
+    private int maxClusters;
+
+    @Override
+    public PinClustersResponse getClusters(Authentication authentication, BoundingBox viewport, int zoom, String scope) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new BadRequestException("Zoom must be between 0 and " + MAX_ZOOM);
+        }
+        Long userId = AuthenticatedUser.from(authentication).id();
+
+        if (zoom > clusterMaxZoom) {
+            PinViewportReader.Capped<PinMarkerView> pins = viewportReader.markers(viewport, scope, userId);
+            return PinClustersResponse.builder()
+                    .zoom(zoom)
+                    .clustered(false)
+                    .clusters(pins.rows().stream().map(this::mapSinglePin).toList())
+                    .truncated(pins.truncated())
+                    .build();
+        }
+
+        PinViewportReader.Capped<PinClusterView> cells =
+                viewportReader.clusters(viewport, scope, userId, cellSize(zoom), maxClusters);
+        return PinClustersResponse.builder()
+                .zoom(zoom)
+                .clustered(true)
+                .clusters(cells.rows().stream().map(this::mapCluster).toList())
+                .truncated(cells.truncated())
+                .build();
+    }
+
+    /**
+     * Grid cell size in degrees: one tile spans 360 / 2^zoom degrees of longitude
+     */
+    private double cellSize(int zoom) {
+        return 360.0 / (1L << zoom) / cellsPerTile;
+    }
+
+    private PinClusterResponse mapCluster(PinClusterView view) {
+        boolean single = view.getCount() == 1;
+        return PinClusterResponse.builder()
+                .latitude(view.getLatitude())
+                .longitude(view.getLongitude())
+                .count(view.getCount())
+                .pinUuid(single ? UUID.fromString(view.getPinUuid()) : null)
+                .status(single ? view.getStatus() : null)
+                .build();
+    }
+
+    private PinClusterResponse mapSinglePin(PinMarkerView view) {
+        return PinClusterResponse.builder()
+                .latitude(view.getLatitude())
+                .longitude(view.getLongitude())
+                .count(1L)
+                .pinUuid(view.getUuid())
+                .status(view.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,526 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.dto.request.MediaUploadCompleteRequest;
+import com.pinyourword.william.dto.request.MediaUploadRequest;
+import com.pinyourword.william.dto.response.MediaUploadResponse;
+import com.pinyourword.william.dto.response.PinMediaResponse;
+import com.pinyourword.william.entity.Pin;
+import com.pinyourword.william.entity.PinMedia;
+import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.event.PinMediaStagedEvent;
+import com.pinyourword.william.exception.BadRequestException;
+import com.pinyourword.william.exception.ResourceNotFoundException;
+import com.pinyourword.william.repository.PinMediaRepository;
+import com.pinyourword.william.repository.PinRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IMediaJobService;
+import com.pinyourword.william.service.IMediaStorageService;
+import com.pinyourword.william.service.IPinMediaService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Media pipeline for pin photos.
+ * <p>
+ * Multipart parts are spooled to disk by the servlet container, so staging only moves
+ * them into our own directory before the request ends; no image is held on the heap.
+ * After the pin transaction commits, each file is streamed to storage in parallel; its
+ * PinMedia row is flipped from pending to ready in the same transaction that queues the job
+ * building its thumbnail and size variants, and the staged file is only deleted once that
+ * transaction has committed. A failed upload stays pending with its file and is retried.
+ * The pin is returned to the client while uploads are
+ * still running; clients poll GET /v1/pin/{uuid}/media for status. Uploads cut short by
+ * a restart are picked up again by {@link #recoverStaged} on the instance that staged them
+ * (pin_media.staging_node).
+ * <p>
+ * Preferably, clients skip the API altogether: they ask for presigned PUT URLs, upload
+ * to storage directly and then report the keys back (see {@link #completeUploads}).
+ */
+@Service
+@Slf4j
+public class PinMediaServiceImpl implements IPinMediaService {
+
+    // WebP and HEIF are stored as uploaded; variants are only built for them when an
+    // ImageIO reader plugin is installed (see MediaJobServiceImpl)
+    private static final Map<String, String> IMAGE_EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/webp", ".webp",
+            "image/heic", ".heic",
+            "image/heif", ".heif");
+
+    private final PinMediaRepository pinMediaRepository;
+    private final PinRepository pinRepository;
+    private final UserRepository userRepository;
+    private final IMediaStorageService storageService;
+    private final IMediaJobService mediaJobService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor mediaTaskExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.media.max-images-per-pin:10}")
+    private int maxImagesPerPin;
+
+    @Value("${app.media.max-upload-bytes:10485760}")
+    private long maxUploadBytes;
+
+    @Value("${app.media.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+
+    @Value("${app.media.staging-dir:${java.io.tmpdir}/pinyourword-media}")
+    private String stagingDir;
+
+    @Value("${app.media.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    @Value("${app.media.recovery-batch-size:200}")
+    private int recoveryBatchSize;
+
+    // Longer than any instance takes to come back and retry its own uploads
+    @Value("${app.media.abandon-after-hours:24}")
+    private long abandonAfterHours;
+
+    // Must stay the same across restarts, like the staging directory; the host name by default
+    @Value("${app.media.node-id:}")
+    private String nodeId;
+
+    public PinMediaServiceImpl(PinMediaRepository pinMediaRepository,
+                               PinRepository pinRepository,
+                               UserRepository userRepository,
+                               IMediaStorageService storageService,
+                               IMediaJobService mediaJobService,
+                               ApplicationEventPublisher eventPublisher,
+                               @Qualifier("mediaTaskExecutor") Executor mediaTaskExecutor,
+                               PlatformTransactionManager transactionManager) {
+        this.pinMediaRepository = pinMediaRepository;
+        this.pinRepository = pinRepository;
+        this.userRepository = userRepository;
+        this.storageService = storageService;
+        this.mediaJobService = mediaJobService;
+        this.eventPublisher = eventPublisher;
+        this.mediaTaskExecutor = mediaTaskExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public List<PinMedia> stageUploads(Pin pin, List<MultipartFile> images) {
+        List<MultipartFile> files = images == null ? List.of()
+                : images.stream().filter(file -> file != null && !file.isEmpty()).toList();
+        if (files.isEmpty()) {
+            return List.of();
+        }
+        if (files.size() > maxImagesPerPin) {
+            throw new BadRequestException("A pin can have at most " + maxImagesPerPin + " images");
+        }
+        for (MultipartFile file : files) {
+            if (!IMAGE_EXTENSIONS.containsKey(file.getContentType())) {
+                throw new BadRequestException("Unsupported image type: " + file.getContentType());
+            }
+        }
+
+        // The pin's owner is the caller; a reference sets user_id without reading the user
+        User owner = userRepository.getReferenceById(pin.getUserId());
+        List<PinMedia> mediaList = new ArrayList<>(files.size());
+        List<Path> stagedFiles = new ArrayList<>(files.size());
+        try {
+            Path directory = Files.createDirectories(Paths.get(stagingDir));
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                UUID mediaUuid = UUID.randomUUID();
+                String extension = IMAGE_EXTENSIONS.get(file.getContentType());
+                String key = storageKey(pin.getUuid(), mediaUuid, extension);
+
+                // Part.write: Tomcat moves a part it already spooled to disk when the staging
+                // directory is on the same file system, and copies it otherwise
+                Path staged = directory.resolve(mediaUuid + extension);
+                file.transferTo(staged.toFile());
+                stagedFiles.add(staged);
+
+                mediaList.add(PinMedia.builder()
+                        .uuid(mediaUuid)
+                        .pin(pin)
+                        .user(owner)
+                        .mediaType(PinMedia.MediaType.IMAGE.getValue())
+                        .storageKey(key)
+                        .storageUrl(storageService.publicUrl(key))
+                        .contentType(file.getContentType())
+                        .sizeBytes(file.getSize())
+                        .uploadOrder((short) i)
+                        .status(PinMedia.UploadStatus.PENDING.getValue())
+                        .stagingNode(stagingNode())
+                        .build());
+            }
+        } catch (IOException ex) {
+            stagedFiles.forEach(PinMediaServiceImpl::deleteQuietly);
+            throw new UncheckedIOException("Could not stage uploaded images", ex);
+        }
+
+        pinMediaRepository.saveAll(mediaList);
+
+        List<PinMediaStagedEvent.StagedUpload> uploads = new ArrayList<>(mediaList.size());
+        for (int i = 0; i < mediaList.size(); i++) {
+            PinMedia media = mediaList.get(i);
+            uploads.add(new PinMediaStagedEvent.StagedUpload(
+                    media.getId(), media.getStorageKey(), stagedFiles.get(i), media.getContentType()));
+        }
+        eventPublisher.publishEvent(new PinMediaStagedEvent(uploads));
+        return mediaList;
+    }
+
+    /**
+     * Start every upload of a committed pin. Each transfer runs on the storage client's
+     * own I/O threads; only the status update hops back onto the media executor.
+     */
+    @Async("mediaTaskExecutor")
+    @TransactionalEventListener
+    public void onMediaStaged(PinMediaStagedEvent event) {
+        event.uploads().forEach(this::startUpload);
+    }
+
+    /**
+     * Recover uploads cut short by a restart. A pending row staged on this instance and older
+     * than app.media.stale-after-minutes is uploaded again from its staged file, or marked
+     * failed when the file is gone. Rows staged on other instances are left to them; only
+     * rows still pending after app.media.abandon-after-hours (their instance is gone for good)
+     * are marked failed here. Staged files as old whose row is no longer pending are deleted.
+     */
+    @Scheduled(fixedDelayString = "${app.media.recovery-interval-ms:600000}",
+            initialDelayString = "${app.media.recovery-initial-delay-ms:60000}")
+    public void recoverStaged() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+        Path directory = Paths.get(stagingDir);
+        Set<Path> restarted = new HashSet<>();
+        int abandoned = pinMediaRepository.failPendingCreatedBefore(LocalDateTime.now().minusHours(abandonAfterHours));
+        if (abandoned > 0) {
+            log.warn("Marked {} media failed after {}h pending", abandoned, abandonAfterHours);
+        }
+        for (PinMedia media : pinMediaRepository.findPendingCreatedBefore(stagingNode(), cutoff, recoveryBatchSize)) {
+            Path file = stagedFile(directory, media);
+            if (file != null && Files.exists(file)) {
+                log.info("Restarting upload of media {} from {}", media.getId(), file);
+                restarted.add(file);
+                startUpload(new PinMediaStagedEvent.StagedUpload(
+                        media.getId(), media.getStorageKey(), file, media.getContentType()));
+            } else {
+                // Staged here, so no other instance has the file either
+                pinMediaRepository.updateStatus(media.getId(), PinMedia.UploadStatus.FAILED.getValue());
+                log.warn("Media {} stayed pending without a staged file; marked failed", media.getId());
+            }
+        }
+        deleteOrphanedFiles(directory, cutoff, restarted);
+    }
+
+    private void deleteOrphanedFiles(Path directory, LocalDateTime cutoff, Set<Path> restarted) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Instant threshold = cutoff.atZone(ZoneId.systemDefault()).toInstant();
+        Map<UUID, Path> candidates = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (restarted.contains(file) || Files.getLastModifiedTime(file).toInstant().isAfter(threshold)) {
+                    continue;
+                }
+                UUID mediaUuid = mediaUuidOf(file);
+                if (mediaUuid == null) {
+                    deleteQuietly(file);
+                } else {
+                    candidates.put(mediaUuid, file);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Could not list staging directory {}", directory, ex);
+            return;
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Set<UUID> pending = pinMediaRepository.findPendingUuids(candidates.keySet());
+        candidates.forEach((mediaUuid, file) -> {
+            if (!pending.contains(mediaUuid)) {
+                deleteQuietly(file);
+            }
+        });
+    }
+
+    private void startUpload(PinMediaStagedEvent.StagedUpload upload) {
+        storageService.upload(upload.storageKey(), upload.file(), upload.contentType())
+                .whenCompleteAsync((result, error) -> completeUpload(upload, error), mediaTaskExecutor);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onMediaRolledBack(PinMediaStagedEvent event) {
+        event.uploads().forEach(upload -> deleteQuietly(upload.file()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PinMediaResponse> getPinMedia(Authentication authentication, UUID pinUuid) {
+        Pin pin = findOwnedPin(AuthenticatedUser.from(authentication).id(), pinUuid);
+        return pinMediaRepository.findAllByPinIdOrdered(pin.getId()).stream()
+                .map(this::mapToMediaResponse)
+                .toList();
+    }
+
+    @Override
+    public List<MediaUploadResponse> createUploads(Authentication authentication, UUID pinUuid,
+                                                   MediaUploadRequest request) {
+        Pin pin = findOwnedPin(AuthenticatedUser.from(authentication).id(), pinUuid);
+        List<MediaUploadRequest.FileInfo> files = request.getFiles();
+        if (pinMediaRepository.countByPinId(pin.getId()) + files.size() > maxImagesPerPin) {
+            throw new BadRequestException("A pin can have at most " + maxImagesPerPin + " images");
+        }
+        for (MediaUploadRequest.FileInfo file : files) {
+            validateImage(file.getContentType(), file.getSizeBytes());
+        }
+
+        Duration ttl = Duration.ofSeconds(presignTtlSeconds);
+        List<MediaUploadResponse> uploads = new ArrayList<>(files.size());
+        for (MediaUploadRequest.FileInfo file : files) {
+            String key = storageKey(pin.getUuid(), UUID.randomUUID(), IMAGE_EXTENSIONS.get(file.getContentType()));
+            IMediaStorageService.PresignedUpload presigned =
+                    storageService.presignPut(key, file.getContentType(), file.getSizeBytes(), ttl);
+            uploads.add(MediaUploadResponse.builder()
+                    .key(key)
+                    .method(presigned.method())
+                    .url(presigned.url())
+                    .headers(presigned.headers())
+                    .expiresAt(presigned.expiresAt())
+                    .build());
+        }
+        return uploads;
+    }
+
+    /**
+     * Record direct uploads once the client has finished them. Every object is checked with
+     * a HEAD request (in parallel, outside the transaction) before its row is written, so a
+     * client cannot attach keys it never uploaded. Keys already recorded are skipped, also
+     * when a concurrent completion records them first, which makes retrying a completion safe.
+     */
+    @Override
+    public List<PinMediaResponse> completeUploads(Authentication authentication, UUID pinUuid,
+                                                  MediaUploadCompleteRequest request) {
+        Pin pin = findOwnedPin(AuthenticatedUser.from(authentication).id(), pinUuid);
+        Pattern keyPattern = Pattern.compile("pins/" + pin.getUuid() + "/([0-9a-f-]{36})(\\.[a-z]+)");
+
+        List<PinMedia> existing = pinMediaRepository.findAllByPinIdOrdered(pin.getId());
+        Set<String> existingKeys = existing.stream().map(PinMedia::getStorageKey).collect(Collectors.toSet());
+        List<String> keys = request.getKeys().stream().distinct().filter(key -> !existingKeys.contains(key)).toList();
+        if (existing.size() + keys.size() > maxImagesPerPin) {
+            throw new BadRequestException("A pin can have at most " + maxImagesPerPin + " images");
+        }
+
+        List<UUID> mediaUuids = new ArrayList<>(keys.size());
+        List<CompletableFuture<IMediaStorageService.ObjectInfo>> heads = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Matcher matcher = keyPattern.matcher(key == null ? "" : key);
+            if (!matcher.matches() || !IMAGE_EXTENSIONS.containsValue(matcher.group(2))) {
+                throw new BadRequestException("Invalid upload key: " + key);
+            }
+            mediaUuids.add(UUID.fromString(matcher.group(1)));
+            heads.add(storageService.head(key));
+        }
+
+        User owner = userRepository.getReferenceById(pin.getUserId());
+        List<PinMedia> mediaList = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            IMediaStorageService.ObjectInfo object = heads.get(i).join();
+            if (object == null) {
+                throw new BadRequestException("Upload not found: " + key);
+            }
+            validateImage(object.contentType(), object.sizeBytes());
+            mediaList.add(PinMedia.builder()
+                    .uuid(mediaUuids.get(i))
+                    .pin(pin)
+                    .user(owner)
+                    .mediaType(PinMedia.MediaType.IMAGE.getValue())
+                    .storageKey(key)
+                    .storageUrl(storageService.publicUrl(key))
+                    .contentType(object.contentType())
+                    .sizeBytes(object.sizeBytes())
+                    .uploadOrder((short) (existing.size() + i))
+                    .status(PinMedia.UploadStatus.READY.getValue())
+                    .build());
+        }
+
+        List<PinMedia> toSave = mediaList;
+        for (boolean retried = false; !toSave.isEmpty(); retried = true) {
+            try {
+                saveCompleted(toSave);
+                break;
+            } catch (DataIntegrityViolationException ex) {
+                // A concurrent completion recorded some of the same keys first: keep its rows
+                // and save only the keys it did not have
+                List<PinMedia> current = pinMediaRepository.findAllByPinIdOrdered(pin.getId());
+                List<PinMedia> missing = unrecorded(toSave, current);
+                if (retried || missing.size() == toSave.size()) {
+                    throw ex;
+                }
+                toSave = missing;
+            }
+        }
+        return pinMediaRepository.findAllByPinIdOrdered(pin.getId()).stream()
+                .map(this::mapToMediaResponse)
+                .toList();
+    }
+
+    private void saveCompleted(List<PinMedia> mediaList) {
+        transactionTemplate.executeWithoutResult(status -> {
+            pinMediaRepository.saveAll(mediaList);
+            mediaList.forEach(media -> mediaJobService.enqueueVariants(media.getId()));
+        });
+    }
+
+    /**
+     * The media whose keys are not among {@code current}, ready to be inserted after them
+     */
+    private List<PinMedia> unrecorded(List<PinMedia> mediaList, List<PinMedia> current) {
+        Set<String> recordedKeys = current.stream().map(PinMedia::getStorageKey).collect(Collectors.toSet());
+        List<PinMedia> missing = mediaList.stream()
+                .filter(media -> !recordedKeys.contains(media.getStorageKey()))
+                .toList();
+        if (current.size() + missing.size() > maxImagesPerPin) {
+            throw new BadRequestException("A pin can have at most " + maxImagesPerPin + " images");
+        }
+        for (int i = 0; i < missing.size(); i++) {
+            // The failed insert assigned ids that were rolled back
+            missing.get(i).setId(null);
+            missing.get(i).setUploadOrder((short) (current.size() + i));
+        }
+        return missing;
+    }
+
+    @Override
+    public PinMediaResponse mapToMediaResponse(PinMedia media) {
+        boolean ready = PinMedia.UploadStatus.READY.getValue().equals(media.getStatus());
+        return PinMediaResponse.builder()
+                .uuid(media.getUuid())
+                .uploadOrder(media.getUploadOrder())
+                .status(media.getStatus())
+                .url(ready ? media.getStorageUrl() : null)
+                .thumbnailUrl(StringUtils.defaultIfBlank(media.getThumbnailUrl(), null))
+                .variants(media.getVariants())
+                .build();
+    }
+
+    private Pin findOwnedPin(Long userId, UUID pinUuid) {
+        return pinRepository.findByUuid(pinUuid)
+                .filter(found -> found.getUserId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Pin", "uuid", pinUuid));
+    }
+
+    private void validateImage(String contentType, long sizeBytes) {
+        if (!IMAGE_EXTENSIONS.containsKey(contentType)) {
+            throw new BadRequestException("Unsupported image type: " + contentType);
+        }
+        if (sizeBytes > maxUploadBytes) {
+            throw new BadRequestException("Image is larger than " + maxUploadBytes + " bytes");
+        }
+    }
+
+    private String stagingNode() {
+        if (StringUtils.isBlank(nodeId)) {
+            try {
+                nodeId = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException ex) {
+                throw new IllegalStateException("Set app.media.node-id: the host name is unknown", ex);
+            }
+        }
+        return nodeId;
+    }
+
+    private static String storageKey(UUID pinUuid, UUID mediaUuid, String extension) {
+        return "pins/" + pinUuid + "/" + mediaUuid + extension;
+    }
+
+    /**
+     * Where {@link #stageUploads} put a media's file: its uuid plus the extension of its key
+     */
+    private static Path stagedFile(Path directory, PinMedia media) {
+        String key = media.getStorageKey();
+        int dot = key == null ? -1 : key.lastIndexOf('.');
+        return dot < 0 ? null : directory.resolve(media.getUuid() + key.substring(dot));
+    }
+
+    private static UUID mediaUuidOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        try {
+            return UUID.fromString(dot < 0 ? name : name.substring(0, dot));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * On any failure the row stays pending and keeps its staged file, so {@link #recoverStaged}
+     * uploads it again (overwriting the object) until it is abandoned
+     */
+    private void completeUpload(PinMediaStagedEvent.StagedUpload upload, Throwable error) {
+        if (error != null) {
+            log.warn("Upload of media {} to {} failed, will be retried", upload.mediaId(), upload.storageKey(), error);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                pinMediaRepository.updateStatus(upload.mediaId(), PinMedia.UploadStatus.READY.getValue());
+                mediaJobService.enqueueVariants(upload.mediaId());
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Could not mark media {} ready, will be retried", upload.mediaId(), ex);
+            return;
+        }
+        deleteQuietly(upload.file());
+        log.debug("Uploaded media {} to {}", upload.mediaId(), upload.storageKey());
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete staged file {}", file, ex);
+        }
+    }
+}
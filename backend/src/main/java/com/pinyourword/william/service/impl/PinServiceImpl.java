@@ -1,23 +1,47 @@
 package com.pinyourword.william.service.impl;
 
+import com.pinyourword.william.config.PaginationProperties;
 import com.pinyourword.william.dto.request.PinCreateRequest;
+import com.pinyourword.william.dto.request.PinScope;
+import com.pinyourword.william.dto.response.CursorPage;
+import com.pinyourword.william.dto.response.PinMarkerResponse;
+import com.pinyourword.william.dto.response.PinMediaResponse;
+import com.pinyourword.william.dto.response.PinResponse;
+import com.pinyourword.william.dto.response.PinViewportResponse;
+import com.pinyourword.william.entity.Activity;
 import com.pinyourword.william.entity.Pin;
-import com.pinyourword.william.entity.user.User;
+import com.pinyourword.william.entity.PinMedia;
+import com.pinyourword.william.event.PinChangedEvent;
+import com.pinyourword.william.event.PinSnapshot;
+import com.pinyourword.william.exception.BadRequestException;
 import com.pinyourword.william.exception.ResourceNotFoundException;
 import com.pinyourword.william.repository.PinRepository;
-import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.repository.projection.PinMarkerView;
+import com.pinyourword.william.repository.projection.PinSummaryView;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IActivityService;
+import com.pinyourword.william.service.IPinMediaService;
 import com.pinyourword.william.service.IPinService;
+import com.pinyourword.william.util.BoundingBox;
+import com.pinyourword.william.util.CursorCodec;
+import com.pinyourword.william.util.GeoUtils;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -25,41 +49,235 @@ public class PinServiceImpl implements IPinService {
     @Autowired
     PinRepository pinRepository;
     @Autowired
-    UserRepository userRepository;
-    @Autowired
     private GeometryFactory geometryFactory;
 
+    @Autowired
+    private PaginationProperties paginationProperties;
+    @Autowired
+    private PinViewportReader viewportReader;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private IPinMediaService pinMediaService;
+    @Autowired
+    private IActivityService activityService;
+
+    @Value("${app.map.nearby.max-radius-meters:50000}")
+    private double nearbyMaxRadiusMeters;
+
+    @Override
+    public CursorPage<PinResponse> getPinsByUser(Authentication authentication, String cursor, Integer size) {
+        Long userId = AuthenticatedUser.from(authentication).id();
+        int pageSize = paginationProperties.resolve(size);
+        CursorCodec.Cursor position = CursorCodec.decode(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<PinSummaryView> rows = position == null
+                ? pinRepository.findPinSummariesByUser(userId, pageSize + 1)
+                : pinRepository.findPinSummariesByUserBefore(
+                        userId, position.localTimestamp(), position.id(), pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            PinSummaryView last = rows.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+        return CursorPage.of(rows.stream().map(this::mapToPinResponse).toList(), nextCursor);
+    }
+
+    @Override
+    public PinViewportResponse getPinsInViewport(Authentication authentication, BoundingBox viewport, String scope) {
+        PinViewportReader.Capped<PinMarkerView> rows =
+                viewportReader.markers(viewport, scope, AuthenticatedUser.from(authentication).id());
+        return PinViewportResponse.builder()
+                .pins(rows.rows().stream().map(this::mapToMarkerResponse).toList())
+                .truncated(rows.truncated())
+                .build();
+    }
+
     @Override
-    public List<Pin> getAllPinsByUserId(Authentication authentication) {
-        UUID userId = (UUID) authentication.getPrincipal();
-        User user = userRepository.findByUuid(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "uuid", userId));
-        List<Pin> pins = pinRepository.findAllByUserId(user.getId());
+    public List<PinResponse> getNearbyPins(Authentication authentication, double latitude, double longitude,
+                                           double radiusMeters, Integer limit, String status, String scope) {
+        if (!GeoUtils.isValidLatitude(latitude) || !GeoUtils.isValidLongitude(longitude)) {
+            throw new BadRequestException("Invalid coordinates");
+        }
+        if (radiusMeters <= 0 || radiusMeters > nearbyMaxRadiusMeters) {
+            throw new BadRequestException("Radius must be between 0 and " + nearbyMaxRadiusMeters + " meters");
+        }
+        String statusFilter = null;
+        if (status != null && !status.isBlank()) {
+            Pin.PinStatus pinStatus = Pin.PinStatus.fromValue(status);
+            if (pinStatus == null) {
+                throw new BadRequestException("Invalid status: " + status);
+            }
+            statusFilter = pinStatus.getValue();
+        }
+        Long userId = AuthenticatedUser.from(authentication).id();
+
+        List<PinSummaryView> rows = pinRepository.findNearby(latitude, longitude, radiusMeters, statusFilter,
+                PinScope.fromValue(scope), userId, paginationProperties.resolve(limit));
+
+        // Distances are computed here rather than with ST_Distance per row; the query filters on
+        // the same sphere, so every row it returns is within the radius
+        List<PinResponse> pins = new ArrayList<>(rows.size());
+        for (PinSummaryView row : rows) {
+            PinResponse pin = mapToPinResponse(row);
+            pin.setDistanceMeters(Math.min(radiusMeters,
+                    GeoUtils.haversineMeters(latitude, longitude, row.getLatitude(), row.getLongitude())));
+            pins.add(pin);
+        }
         return pins;
     }
 
     @Override
-    public Pin savePin(Authentication authentication, PinCreateRequest data, List<MultipartFile> images) {
-        UUID userId = (UUID) authentication.getPrincipal();
-        Instant instant = Instant.parse(data.visitDate());
-        LocalDate localDate = instant.atZone(ZoneId.systemDefault()).toLocalDate();
-        User user = userRepository.findByUuid(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "uuid", userId));
+    @Transactional
+    public PinResponse savePin(Authentication authentication, PinCreateRequest data, List<MultipartFile> images) {
         Pin pin = Pin.builder()
-                .userId(user.getId())
-                .placeName(data.location().name())
-                .placeIdGoogle(data.location().placeId())
-                .notes(data.notes())
-                .rating(data.rating())
-                .status(data.status())
-                .visitedDate(localDate)
-                .location(geometryFactory.createPoint(new Coordinate(data.location().lon(), data.location().lat())))
-                .addressFormatted(data.location().displayName())
-                .addressCity(data.location().address().city())
-                .addressCountry(data.location().address().country())
-                .addressCountryCode(data.location().address().countryCode())
+                .userId(AuthenticatedUser.from(authentication).id())
                 .build();
+        applyRequest(pin, data);
+        pinRepository.save(pin);
+        // Images are only staged here; they are uploaded after commit and start out pending
+        List<PinMedia> media = pinMediaService.stageUploads(pin, images);
+        eventPublisher.publishEvent(PinChangedEvent.created(PinSnapshot.of(pin)));
+        recordPinActivity(pin, media.size());
+        return mapToPinResponse(pin, media.stream().map(pinMediaService::mapToMediaResponse).toList());
+    }
+
+    @Override
+    @Transactional
+    public PinResponse updatePin(Authentication authentication, UUID pinUuid, PinCreateRequest data) {
+        Pin pin = ownedPin(AuthenticatedUser.from(authentication).id(), pinUuid);
+        PinSnapshot before = PinSnapshot.of(pin);
+        applyRequest(pin, data);
         pinRepository.save(pin);
-        return pin;
+        eventPublisher.publishEvent(PinChangedEvent.updated(before, PinSnapshot.of(pin)));
+        return mapToPinResponse(pin, null);
+    }
+
+    @Override
+    @Transactional
+    public PinResponse updatePinStatus(Authentication authentication, UUID pinUuid, String status) {
+        Pin.PinStatus pinStatus = Pin.PinStatus.fromValue(status);
+        if (pinStatus == null) {
+            throw new BadRequestException("Invalid status: " + status);
+        }
+        Pin pin = ownedPin(AuthenticatedUser.from(authentication).id(), pinUuid);
+        if (!pinStatus.getValue().equals(pin.getStatus())) {
+            PinSnapshot before = PinSnapshot.of(pin);
+            pin.setStatus(pinStatus.getValue());
+            pinRepository.save(pin);
+            eventPublisher.publishEvent(PinChangedEvent.updated(before, PinSnapshot.of(pin)));
+        }
+        return mapToPinResponse(pin, null);
+    }
+
+    @Override
+    @Transactional
+    public void deletePin(Authentication authentication, UUID pinUuid) {
+        Pin pin = ownedPin(AuthenticatedUser.from(authentication).id(), pinUuid);
+        PinSnapshot before = PinSnapshot.of(pin);
+        // pin_media rows go with the pin (ON DELETE CASCADE)
+        pinRepository.delete(pin);
+        eventPublisher.publishEvent(PinChangedEvent.deleted(before));
+    }
+
+    /**
+     * The user's pin, locked until the transaction ends so its before snapshot stays current
+     */
+    private Pin ownedPin(Long userId, UUID pinUuid) {
+        return pinRepository.findByUuidForUpdate(pinUuid)
+                .filter(found -> found.getUserId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Pin", "uuid", pinUuid));
+    }
+
+    /**
+     * Copy the place and content of a create or update request onto a pin
+     */
+    private void applyRequest(Pin pin, PinCreateRequest data) {
+        Instant instant = Instant.parse(data.visitDate());
+        LocalDate localDate = instant.atZone(ZoneId.systemDefault()).toLocalDate();
+        pin.setPlaceName(data.location().name());
+        pin.setPlaceIdGoogle(data.location().placeId());
+        pin.setNotes(data.notes());
+        pin.setRating(data.rating());
+        pin.setStatus(data.status());
+        pin.setVisitedDate(localDate);
+        pin.setLocation(geometryFactory.createPoint(new Coordinate(data.location().lon(), data.location().lat())));
+        pin.setAddressFormatted(data.location().displayName());
+        pin.setAddressCity(data.location().address().city());
+        pin.setAddressCountry(data.location().address().country());
+        pin.setAddressCountryCode(data.location().address().countryCode());
+    }
+
+    /**
+     * Post a new pin to the feed; drafts stay private
+     */
+    private void recordPinActivity(Pin pin, int photoCount) {
+        Pin.PinStatus status = Pin.PinStatus.fromValue(pin.getStatus());
+        if (status == null || status == Pin.PinStatus.DRAFT) {
+            return;
+        }
+        Activity.ActivityType type = status == Pin.PinStatus.VISITED
+                ? Activity.ActivityType.NEW_PIN_VISITED
+                : Activity.ActivityType.NEW_PIN_WANT_TO_GO;
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("pin_status", status.getValue());
+        metadata.put("photo_count", photoCount);
+        if (pin.getRating() != null) {
+            metadata.put("rating", pin.getRating());
+        }
+        activityService.record(pin.getUserId(), type, pin.getId(), "pin", pin.getNotes(), metadata);
+    }
+
+    private PinMarkerResponse mapToMarkerResponse(PinMarkerView view) {
+        return PinMarkerResponse.builder()
+                .uuid(view.getUuid())
+                .latitude(view.getLatitude())
+                .longitude(view.getLongitude())
+                .status(view.getStatus())
+                .build();
+    }
+
+    private PinResponse mapToPinResponse(Pin pin, List<PinMediaResponse> media) {
+        return PinResponse.builder()
+                .uuid(pin.getUuid())
+                .placeName(pin.getPlaceName())
+                .placeIdGoogle(pin.getPlaceIdGoogle())
+                .latitude(pin.getLocation().getY())
+                .longitude(pin.getLocation().getX())
+                .addressFormatted(pin.getAddressFormatted())
+                .addressCity(pin.getAddressCity())
+                .addressCountry(pin.getAddressCountry())
+                .addressCountryCode(pin.getAddressCountryCode())
+                .status(pin.getStatus())
+                .notes(pin.getNotes())
+                .visitedDate(pin.getVisitedDate())
+                .rating(pin.getRating())
+                .isFavorite(pin.getIsFavorite())
+                .createdAt(pin.getCreatedAt())
+                .media(media)
+                .build();
+    }
+
+    private PinResponse mapToPinResponse(PinSummaryView view) {
+        return PinResponse.builder()
+                .uuid(view.getUuid())
+                .placeName(view.getPlaceName())
+                .placeIdGoogle(view.getPlaceIdGoogle())
+                .latitude(view.getLatitude())
+                .longitude(view.getLongitude())
+                .addressFormatted(view.getAddressFormatted())
+                .addressCity(view.getAddressCity())
+                .addressCountry(view.getAddressCountry())
+                .addressCountryCode(view.getAddressCountryCode())
+                .status(view.getStatus())
+                .notes(view.getNotes())
+                .visitedDate(view.getVisitedDate())
+                .rating(view.getRating())
+                .isFavorite(view.getIsFavorite())
+                .createdAt(view.getCreatedAt())
+                .build();
     }
 }
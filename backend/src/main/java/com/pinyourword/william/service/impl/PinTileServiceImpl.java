@@ -0,0 +1,76 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.cache.PinTileCache;
+import com.pinyourword.william.dto.request.PinScope;
+import com.pinyourword.william.dto.response.TileResponse;
+import com.pinyourword.william.exception.BadRequestException;
+import com.pinyourword.william.repository.PinRepository;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IPinTileService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.zip.CRC32;
+
+/**
+ * Serves pins as Mapbox Vector Tiles encoded by PostGIS (ST_AsMVT),
+ * through the in-process {@link PinTileCache}
+ */
+@Service
+@RequiredArgsConstructor
+public class PinTileServiceImpl implements IPinTileService {
+
+    private static final byte[] EMPTY_TILE = new byte[0];
+
+    private final PinRepository pinRepository;
+    private final PinTileCache tileCache;
+
+    @Value("${app.map.tiles.max-zoom:22}")
+    private int maxZoom;
+
+    @Value("${app.map.tiles.extent:4096}")
+    private int extent;
+
+    @Value("${app.map.tiles.buffer:64}")
+    private int buffer;
+
+    @Value("${app.map.tiles.max-features:5000}")
+    private int maxFeatures;
+
+    @Override
+    public TileResponse getPinTile(Authentication authentication, int z, int x, int y, String scope) {
+        if (z < 0 || z > maxZoom) {
+            throw new BadRequestException("Zoom must be between 0 and " + maxZoom);
+        }
+        if (x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            throw new BadRequestException("Tile coordinates out of range for zoom " + z);
+        }
+        PinScope pinScope = PinScope.fromValue(scope);
+
+        // Public tiles are identical for every viewer; the other scopes depend on who asks
+        boolean shared = pinScope == PinScope.PUBLIC;
+        Long viewerId = AuthenticatedUser.from(authentication).id();
+        PinTileCache.TileKey key = new PinTileCache.TileKey(pinScope.getValue(), shared ? null : viewerId, z, x, y);
+
+        TileResponse cached = tileCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = tileCache.fillStamp(key);
+        byte[] data = pinRepository.findPinTile(z, x, y, extent, buffer, (double) buffer / extent,
+                pinScope, viewerId, maxFeatures);
+        TileResponse tile = new TileResponse(data != null ? data : EMPTY_TILE, etag(data), shared);
+        tileCache.put(key, tile, stamp);
+        return tile;
+    }
+
+    private static String etag(byte[] data) {
+        CRC32 crc = new CRC32();
+        if (data != null) {
+            crc.update(data);
+        }
+        return "\"" + Long.toHexString(crc.getValue()) + "\"";
+    }
+}
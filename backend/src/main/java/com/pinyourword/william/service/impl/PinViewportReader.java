@@ -0,0 +1,69 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.dto.request.PinScope;
+import com.pinyourword.william.repository.PinRepository;
+import com.pinyourword.william.repository.projection.PinClusterView;
+import com.pinyourword.william.repository.projection.PinMarkerView;
+import com.pinyourword.william.util.BoundingBox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Viewport reads shared by the marker and cluster endpoints.
+ * Splits a viewport crossing the antimeridian into its two envelopes, and reads one row
+ * past the cap so callers can tell the client to zoom in.
+ */
+@Component
+@RequiredArgsConstructor
+class PinViewportReader {
+
+    private final PinRepository pinRepository;
+
+    @Value("${app.map.viewport.max-rows:500}")
+    private int viewportMaxRows;
+
+    /**
+     * Individual pins of a scope in the viewport, at most app.map.viewport.max-rows
+     */
+    Capped<PinMarkerView> markers(BoundingBox viewport, String scope, Long viewerId) {
+        PinScope pinScope = PinScope.fromValue(scope);
+        return read(viewport, viewportMaxRows, (minLat, maxLat, westMinLon, westMaxLon, eastMinLon, eastMaxLon, limit) ->
+                pinRepository.findMarkersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                        eastMinLon, eastMaxLon, pinScope, viewerId, limit));
+    }
+
+    /**
+     * Grid cells of {@code cellSize} degrees holding pins of a scope, biggest first, at most {@code cap}
+     */
+    Capped<PinClusterView> clusters(BoundingBox viewport, String scope, Long viewerId, double cellSize, int cap) {
+        PinScope pinScope = PinScope.fromValue(scope);
+        return read(viewport, cap, (minLat, maxLat, westMinLon, westMaxLon, eastMinLon, eastMaxLon, limit) ->
+                pinRepository.findClustersInEnvelope(minLat, maxLat, westMinLon, westMaxLon,
+                        eastMinLon, eastMaxLon, pinScope, viewerId, cellSize, limit));
+    }
+
+    private static <T> Capped<T> read(BoundingBox viewport, int cap, EnvelopeQuery<T> query) {
+        BoundingBox west = viewport.westPart();
+        BoundingBox east = viewport.eastPart();
+        List<T> rows = query.find(viewport.getMinLat(), viewport.getMaxLat(),
+                west.getMinLon(), west.getMaxLon(),
+                east.getMinLon(), east.getMaxLon(),
+                cap + 1);
+        return rows.size() > cap ? new Capped<>(rows.subList(0, cap), true) : new Capped<>(rows, false);
+    }
+
+    @FunctionalInterface
+    private interface EnvelopeQuery<T> {
+        List<T> find(double minLat, double maxLat, double westMinLon, double westMaxLon,
+                     double eastMinLon, double eastMaxLon, int limit);
+    }
+
+    /**
+     * Rows of a viewport read, and whether more were left out
+     */
+    record Capped<T>(List<T> rows, boolean truncated) {
+    }
+}
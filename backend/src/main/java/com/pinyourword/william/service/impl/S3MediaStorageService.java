@@ -0,0 +1,129 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.service.IMediaStorageService;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * S3 storage backed by the non-blocking {@link S3AsyncClient}.
+ * Files are streamed from disk and large ones are split into a parallel multipart upload by the client.
+ * Clients can also upload directly with presigned PUT URLs, bypassing the API entirely.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.media.storage", havingValue = "s3", matchIfMissing = true)
+public class S3MediaStorageService implements IMediaStorageService {
+
+    private final S3AsyncClient s3AsyncClient;
+    private final S3Presigner s3Presigner;
+
+    @Value("${app.aws.s3.bucket-name}")
+    private String bucketName;
+
+    @Value("${app.aws.s3.region}")
+    private String region;
+
+    @Value("${app.aws.s3.public-base-url:}")
+    private String publicBaseUrl;
+
+    @Override
+    public CompletableFuture<Void> upload(String key, Path file, String contentType) {
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build();
+        return s3AsyncClient.putObject(request, AsyncRequestBody.fromFile(file))
+                .thenApply(response -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> upload(String key, byte[] data, String contentType) {
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build();
+        return s3AsyncClient.putObject(request, AsyncRequestBody.fromBytes(data))
+                .thenApply(response -> null);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> openStream(String key) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        // Completes once the response headers arrive; the body is buffered a few chunks ahead of the reader
+        return s3AsyncClient.getObject(request, AsyncResponseTransformer.toBlockingInputStream())
+                .thenApply(InputStream.class::cast);
+    }
+
+    @Override
+    public CompletableFuture<ObjectInfo> head(String key) {
+        HeadObjectRequest request = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        return s3AsyncClient.headObject(request)
+                .thenApply(response -> new ObjectInfo(response.contentType(), response.contentLength()))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    if (cause instanceof NoSuchKeyException) {
+                        return null;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    @Override
+    public PresignedUpload presignPut(String key, String contentType, long sizeBytes, Duration ttl) {
+        PutObjectRequest objectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(sizeBytes)
+                .build();
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(builder -> builder
+                .signatureDuration(ttl)
+                .putObjectRequest(objectRequest));
+
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : presigned.signedHeaders().entrySet()) {
+            // Host is set by the HTTP client from the URL
+            if (!"host".equalsIgnoreCase(header.getKey())) {
+                headers.put(header.getKey(), String.join(",", header.getValue()));
+            }
+        }
+        return new PresignedUpload("PUT", presigned.url().toString(), headers, presigned.expiration());
+    }
+
+    @Override
+    public String publicUrl(String key) {
+        if (StringUtils.isNotBlank(publicBaseUrl)) {
+            return StringUtils.removeEnd(publicBaseUrl, "/") + "/" + key;
+        }
+        return "https://" + bucketName + ".s3." + region + ".amazonaws.com/" + key;
+    }
+}
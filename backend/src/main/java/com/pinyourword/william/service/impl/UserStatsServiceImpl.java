@@ -0,0 +1,304 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.entity.Pin;
+import com.pinyourword.william.event.PinChangedEvent;
+import com.pinyourword.william.event.PinSnapshot;
+import com.pinyourword.william.event.UserStatsChangedEvent;
+import com.pinyourword.william.service.IUserStatsService;
+import com.pinyourword.william.util.AdvisoryLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps users' visited countries, visited cities and pin counts up to date as pins change.
+ * <p>
+ * user_place_counts holds, per user, how many visited pins lie in each country and city
+ * (a multiset). A pin write adds or removes one pin from at most two places, and a user's
+ * country or city count only moves when a place goes from 0 to 1 pin or back, so every
+ * write costs a few single-row statements instead of a {@code COUNT(DISTINCT ...)} over the
+ * user's pins. The update runs before commit, in the pin's transaction, under a lock on the
+ * user's row, and publishes a {@link UserStatsChangedEvent} with the counters before and after.
+ * <p>
+ * The rebuild job runs on one instance at a time (advisory lock) and recomputes everything
+ * from pins, a range of users per transaction, reading the pins through a server-side cursor
+ * so a range never sits in memory as rows.
+ */
+@Service
+@Slf4j
+public class UserStatsServiceImpl implements IUserStatsService {
+
+    private static final String COUNTRY = "country";
+    private static final String CITY = "city";
+
+    // Any constant unique among the application's advisory locks
+    private static final long REBUILD_LOCK = 0x70797702L;
+
+    private static final String LOCK_USER_SQL = "SELECT id FROM users WHERE id = ? FOR UPDATE";
+    private static final String INCREMENT_SQL = """
+            INSERT INTO user_place_counts (user_id, kind, place_key, pins_count)
+            VALUES (?, ?, ?, 1)
+            ON CONFLICT (user_id, kind, place_key)
+            DO UPDATE SET pins_count = user_place_counts.pins_count + 1
+            RETURNING pins_count
+            """;
+    // The last pin of a place removes its row; no row at all means the counts had drifted
+    private static final String DECREMENT_SQL = """
+            WITH removed AS (
+                DELETE FROM user_place_counts
+                WHERE user_id = ? AND kind = ? AND place_key = ? AND pins_count <= 1
+                RETURNING 0 AS pins_count
+            ), decremented AS (
+                UPDATE user_place_counts
+                SET pins_count = pins_count - 1
+                WHERE user_id = ? AND kind = ? AND place_key = ? AND pins_count > 1
+                RETURNING pins_count
+            )
+            SELECT pins_count FROM removed
+            UNION ALL
+            SELECT pins_count FROM decremented
+            """;
+    private static final String ADD_STATS_SQL = """
+            UPDATE users
+            SET visited_countries_count = GREATEST(visited_countries_count + ?, 0),
+                visited_cities_count = GREATEST(visited_cities_count + ?, 0),
+                total_pins_count = GREATEST(total_pins_count + ?, 0)
+            WHERE id = ?
+            RETURNING visited_countries_count, visited_cities_count, total_pins_count
+            """;
+
+    private static final String LOCK_RANGE_SQL = "SELECT id FROM users WHERE id > ? AND id <= ? ORDER BY id FOR UPDATE";
+    private static final String CLEAR_RANGE_SQL = "DELETE FROM user_place_counts WHERE user_id > ? AND user_id <= ?";
+    private static final String RESET_RANGE_SQL = """
+            UPDATE users
+            SET visited_countries_count = 0, visited_cities_count = 0, total_pins_count = 0
+            WHERE id > ? AND id <= ?
+              AND (visited_countries_count <> 0 OR visited_cities_count <> 0 OR total_pins_count <> 0)
+            """;
+    private static final String STREAM_PINS_SQL = """
+            SELECT user_id, status, address_country_code, address_city
+            FROM pins
+            WHERE user_id > ? AND user_id <= ?
+            ORDER BY user_id
+            """;
+    private static final String INSERT_PLACE_SQL =
+            "INSERT INTO user_place_counts (user_id, kind, place_key, pins_count) VALUES (?, ?, ?, ?)";
+    private static final String SET_STATS_SQL = """
+            UPDATE users
+            SET visited_countries_count = ?, visited_cities_count = ?, total_pins_count = ?
+            WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    // Same data source; a fetch size makes the driver read pins through a cursor
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.stats.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    public UserStatsServiceImpl(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.stats.rebuild-fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onPinChanged(PinChangedEvent event) {
+        // +1 for places the pin now counts in, -1 for places it no longer counts in
+        Map<Place, Integer> deltas = new TreeMap<>();
+        visitedPlaces(event.before()).forEach(place -> deltas.merge(place, -1, Integer::sum));
+        visitedPlaces(event.after()).forEach(place -> deltas.merge(place, 1, Integer::sum));
+        deltas.values().removeIf(delta -> delta == 0);
+        int pins = event.isCreated() ? 1 : event.isDeleted() ? -1 : 0;
+        if (deltas.isEmpty() && pins == 0) {
+            return;
+        }
+
+        Long userId = event.userId();
+        // Serializes with other pin writes of the user and with the rebuild of its range
+        jdbcTemplate.queryForList(LOCK_USER_SQL, Long.class, userId);
+        int countries = 0;
+        int cities = 0;
+        for (Map.Entry<Place, Integer> entry : deltas.entrySet()) {
+            Place place = entry.getKey();
+            int change = entry.getValue() > 0 ? increment(userId, place) : decrement(userId, place);
+            if (COUNTRY.equals(place.kind())) {
+                countries += change;
+            } else {
+                cities += change;
+            }
+        }
+        if (countries == 0 && cities == 0 && pins == 0) {
+            return;
+        }
+        List<UserStatsChangedEvent.Stats> updated = jdbcTemplate.query(ADD_STATS_SQL,
+                (rs, rowNum) -> new UserStatsChangedEvent.Stats(rs.getInt(1), rs.getInt(2), rs.getInt(3)),
+                countries, cities, pins, userId);
+        if (!updated.isEmpty()) {
+            UserStatsChangedEvent.Stats after = updated.get(0);
+            UserStatsChangedEvent.Stats before = new UserStatsChangedEvent.Stats(
+                    after.visitedCountries() - countries, after.visitedCities() - cities, after.totalPins() - pins);
+            eventPublisher.publishEvent(new UserStatsChangedEvent(userId, before, after));
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${app.stats.rebuild-cron:0 0 4 * * SUN}")
+    public void rebuild() {
+        if (!AdvisoryLock.runExclusively(jdbcTemplate, REBUILD_LOCK, this::rebuildAll)) {
+            log.info("User stats rebuild is already running on another instance");
+        }
+    }
+
+    private void rebuildAll() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Long.class);
+        int users = 0;
+        for (long fromId = 0; fromId < maxId; fromId += rebuildBatchSize) {
+            long from = fromId;
+            long to = fromId + rebuildBatchSize;
+            users += transactionTemplate.execute(status -> rebuildRange(from, to));
+        }
+        log.info("User stats rebuild recomputed {} users with pins", users);
+    }
+
+    /**
+     * Recompute the users with id in (fromId, toId]
+     * @return number of users with at least one pin
+     */
+    private int rebuildRange(long fromId, long toId) {
+        jdbcTemplate.queryForList(LOCK_RANGE_SQL, Long.class, fromId, toId);
+        jdbcTemplate.update(CLEAR_RANGE_SQL, fromId, toId);
+        jdbcTemplate.update(RESET_RANGE_SQL, fromId, toId);
+
+        RangeTally tally = new RangeTally();
+        streamingJdbcTemplate.query(STREAM_PINS_SQL, tally, fromId, toId);
+        tally.finishUser();
+
+        if (!tally.placeRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PLACE_SQL, tally.placeRows);
+        }
+        if (!tally.statRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_STATS_SQL, tally.statRows);
+        }
+        return tally.statRows.size();
+    }
+
+    /**
+     * @return 1 if the place now has its first pin, else 0
+     */
+    private int increment(Long userId, Place place) {
+        Integer count = jdbcTemplate.queryForObject(INCREMENT_SQL, Integer.class, userId, place.kind(), place.key());
+        return count != null && count == 1 ? 1 : 0;
+    }
+
+    /**
+     * @return -1 if the place lost its last pin, else 0
+     */
+    private int decrement(Long userId, Place place) {
+        List<Integer> counts = jdbcTemplate.queryForList(DECREMENT_SQL, Integer.class,
+                userId, place.kind(), place.key(), userId, place.kind(), place.key());
+        return !counts.isEmpty() && counts.get(0) == 0 ? -1 : 0;
+    }
+
+    private static List<Place> visitedPlaces(PinSnapshot pin) {
+        if (pin == null) {
+            return List.of();
+        }
+        return visitedPlaces(pin.status(), pin.addressCountryCode(), pin.addressCity());
+    }
+
+    /**
+     * The places a pin counts in: its country and city, for visited pins only
+     */
+    private static List<Place> visitedPlaces(String status, String countryCode, String city) {
+        if (!Pin.PinStatus.VISITED.getValue().equals(status)) {
+            return List.of();
+        }
+        List<Place> places = new ArrayList<>(2);
+        if (countryCode != null) {
+            places.add(new Place(COUNTRY, countryCode));
+        }
+        if (city != null) {
+            // Same key as V1.16: cities with the same name in two countries are two places
+            places.add(new Place(CITY, (countryCode == null ? "" : countryCode) + "|" + city));
+        }
+        return places;
+    }
+
+    private record Place(String kind, String key) implements Comparable<Place> {
+
+        // Rows are always locked in the same order
+        @Override
+        public int compareTo(Place other) {
+            int byKind = kind.compareTo(other.kind);
+            return byKind != 0 ? byKind : key.compareTo(other.key);
+        }
+    }
+
+    /**
+     * Folds a range of pins, ordered by user, into rows to write. Only the current user's
+     * places are held as a map.
+     */
+    private static final class RangeTally implements RowCallbackHandler {
+
+        final List<Object[]> placeRows = new ArrayList<>();
+        final List<Object[]> statRows = new ArrayList<>();
+        private Long userId;
+        private int pins;
+        private final Map<Place, Integer> places = new HashMap<>();
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowUserId = rs.getLong("user_id");
+            if (userId == null || userId != rowUserId) {
+                finishUser();
+                userId = rowUserId;
+            }
+            pins++;
+            for (Place place : visitedPlaces(rs.getString("status"),
+                    rs.getString("address_country_code"), rs.getString("address_city"))) {
+                places.merge(place, 1, Integer::sum);
+            }
+        }
+
+        void finishUser() {
+            if (userId == null) {
+                return;
+            }
+            int countries = 0;
+            for (Map.Entry<Place, Integer> entry : places.entrySet()) {
+                placeRows.add(new Object[]{userId, entry.getKey().kind(), entry.getKey().key(), entry.getValue()});
+                if (COUNTRY.equals(entry.getKey().kind())) {
+                    countries++;
+                }
+            }
+            statRows.add(new Object[]{countries, places.size() - countries, pins, userId});
+            userId = null;
+            pins = 0;
+            places.clear();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pinyourword.william.util;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * PostgreSQL session advisory locks, for jobs that must run on a single instance at a time
+ */
+public final class AdvisoryLock {
+
+    private AdvisoryLock() {
+    }
+
+    /**
+     * Run {@code task} if no other session holds the lock {@code key}.
+     * One pooled connection holds the lock for the duration of the task; the task's own
+     * queries use other connections. Must not be called inside a transaction.
+     * @return false when another instance holds the lock and the task was skipped
+     */
+    public static boolean runExclusively(JdbcTemplate jdbcTemplate, long key, Runnable task) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!call(connection, "SELECT pg_try_advisory_lock(?)", key)) {
+                return false;
+            }
+            try {
+                task.run();
+            } finally {
+                call(connection, "SELECT pg_advisory_unlock(?)", key);
+            }
+            return true;
+        }));
+    }
+
+    private static boolean call(Connection connection, String sql, long key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, key);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+}
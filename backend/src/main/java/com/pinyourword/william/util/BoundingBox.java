@@ -0,0 +1,61 @@
+package com.pinyourword.william.util;
+
+import com.pinyourword.william.exception.BadRequestException;
+import lombok.Getter;
+
+/**
+ * Map viewport in WGS 84 degrees.
+ * A viewport whose west edge is greater than its east edge crosses the
+ * antimeridian and is queried as two envelopes that meet at 180/-180.
+ */
+@Getter
+public class BoundingBox {
+
+    private final double minLat;
+    private final double minLon;
+    private final double maxLat;
+    private final double maxLon;
+
+    public BoundingBox(double minLat, double minLon, double maxLat, double maxLon) {
+        if (!GeoUtils.isValidLatitude(minLat) || !GeoUtils.isValidLatitude(maxLat)) {
+            throw new BadRequestException("Latitude must be between -90 and 90");
+        }
+        if (!GeoUtils.isValidLongitude(minLon) || !GeoUtils.isValidLongitude(maxLon)) {
+            throw new BadRequestException("Longitude must be between -180 and 180");
+        }
+        if (minLat > maxLat) {
+            throw new BadRequestException("minLat must not be greater than maxLat");
+        }
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+    }
+
+    public boolean crossesAntimeridian() {
+        return minLon > maxLon;
+    }
+
+    /**
+     * Part of the viewport east of the west edge, up to the antimeridian
+     */
+    public BoundingBox westPart() {
+        return crossesAntimeridian() ? new BoundingBox(minLat, minLon, maxLat, 180) : this;
+    }
+
+    /**
+     * Part of the viewport from the antimeridian to the east edge
+     */
+    public BoundingBox eastPart() {
+        return crossesAntimeridian() ? new BoundingBox(minLat, -180, maxLat, maxLon) : this;
+    }
+
+    public boolean contains(double latitude, double longitude) {
+        if (latitude < minLat || latitude > maxLat) {
+            return false;
+        }
+        return crossesAntimeridian()
+                ? longitude >= minLon || longitude <= maxLon
+                : longitude >= minLon && longitude <= maxLon;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pinyourword.william.util;
+
+import com.pinyourword.william.exception.BadRequestException;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Encodes keyset pagination positions as opaque, URL-safe cursors.
+ * A cursor is the (timestamp, id) pair of the last row of a page, so the next
+ * page can be read with {@code (ts, id) < (:ts, :id)} straight off a composite index.
+ */
+public final class CursorCodec {
+
+    private static final int CURSOR_BYTES = Long.BYTES * 2;
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Instant timestamp, long id) {
+        ByteBuffer buffer = ByteBuffer.allocate(CURSOR_BYTES);
+        buffer.putLong(ChronoUnit.MICROS.between(Instant.EPOCH, timestamp));
+        buffer.putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Encode a cursor for a {@code TIMESTAMP} (without time zone) column.
+     * The value is treated as UTC on both sides so it round-trips unchanged.
+     */
+    public static String encode(LocalDateTime timestamp, long id) {
+        return encode(timestamp.toInstant(ZoneOffset.UTC), id);
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode}.
+     * @return the decoded position, or {@code null} when no cursor was sent (first page)
+     * @throws BadRequestException if the cursor is malformed
+     */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != CURSOR_BYTES) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            Instant timestamp = Instant.EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+            return new Cursor(timestamp, buffer.getLong());
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public record Cursor(Instant timestamp, long id) {
+
+        public LocalDateTime localTimestamp() {
+            return LocalDateTime.ofInstant(timestamp, ZoneOffset.UTC);
+        }
+    }
+}
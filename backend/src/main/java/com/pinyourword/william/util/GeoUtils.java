@@ -48,14 +48,32 @@ public class GeoUtils {
         return point.getX();
     }
     
+    /**
+     * Mean Earth radius in meters (IUGG), the sphere PostGIS uses for geography with use_spheroid = false
+     */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
     /**
      * Calculate distance between two points in meters
-     * Uses PostGIS geography type calculation (spheroid)
+     * Great-circle (haversine) distance; within 0.5% of the PostGIS spheroid ST_Distance
      */
     public static double distance(Point point1, Point point2) {
-        // This is a simple planar distance, for accurate distance use PostGIS ST_Distance
-        // In queries: ST_Distance(geography(point1), geography(point2))
-        return point1.distance(point2);
+        return haversineMeters(getLatitude(point1), getLongitude(point1),
+                getLatitude(point2), getLongitude(point2));
+    }
+
+    /**
+     * Great-circle distance in meters between two WGS 84 coordinates (haversine formula).
+     * Cheap enough to post-filter or re-rank query results in the JVM.
+     */
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
     }
     
     /**
@@ -72,6 +90,29 @@ public class GeoUtils {
         return longitude >= -180 && longitude <= 180;
     }
     
+    /**
+     * Maximum latitude covered by Web Mercator (EPSG:3857) map tiles
+     */
+    public static final double MAX_MERCATOR_LATITUDE = 85.05112878;
+
+    /**
+     * Fractional X coordinate of a longitude in the slippy-map tile grid at a zoom level.
+     * The integer part is the tile column, the fraction is the position inside the tile.
+     */
+    public static double tileX(double longitude, int zoom) {
+        double x = (longitude + 180.0) / 360.0 * (1L << zoom);
+        return Math.min(Math.max(x, 0), (1L << zoom) - 1e-9);
+    }
+
+    /**
+     * Fractional Y coordinate of a latitude in the slippy-map tile grid at a zoom level
+     */
+    public static double tileY(double latitude, int zoom) {
+        double lat = Math.toRadians(Math.max(-MAX_MERCATOR_LATITUDE, Math.min(MAX_MERCATOR_LATITUDE, latitude)));
+        double y = (1.0 - Math.log(Math.tan(lat) + 1.0 / Math.cos(lat)) / Math.PI) / 2.0 * (1L << zoom);
+        return Math.min(Math.max(y, 0), (1L << zoom) - 1e-9);
+    }
+
     /**
      * Format coordinates as string
      */
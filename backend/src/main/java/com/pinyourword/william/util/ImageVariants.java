@@ -0,0 +1,213 @@
+package com.pinyourword.william.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Image decoding, resizing and JPEG encoding for media variants.
+ * Encoded output carries no metadata, so EXIF (GPS position, camera serial, ...) is stripped;
+ * the EXIF orientation is applied to the pixels first so photos keep their rotation.
+ */
+public final class ImageVariants {
+
+    // A JPEG's EXIF block is an APP1 segment, whose length field caps it at 64 KiB
+    private static final int EXIF_SCAN_BYTES = 2 + 4 + 0xFFFF;
+
+    private ImageVariants() {
+    }
+
+    /**
+     * Whether an ImageIO reader is installed for a content type. JPEG and PNG always are;
+     * WebP and HEIF only with a reader plugin on the classpath.
+     */
+    public static boolean canDecode(String contentType) {
+        return contentType != null && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+
+    /**
+     * Decode an image while reading it from {@code source}, refusing anything larger than
+     * {@code maxPixels} before the pixel data is allocated. Only the EXIF header is buffered;
+     * the caller closes the stream.
+     * @throws IOException if the format is not supported or the image is too large
+     */
+    public static BufferedImage decode(InputStream source, long maxPixels) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(source, EXIF_SCAN_BYTES);
+        buffered.mark(EXIF_SCAN_BYTES);
+        int orientation = readExifOrientation(buffered.readNBytes(EXIF_SCAN_BYTES));
+        buffered.reset();
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(buffered)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IOException("Image too large: " + pixels + " pixels");
+                }
+                BufferedImage image = reader.read(0);
+                return applyOrientation(image, orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale an image down to {@code width}, keeping its aspect ratio.
+     * Large reductions are done in halving steps, which looks much better than a single
+     * bilinear pass and is far cheaper than {@code Image.SCALE_SMOOTH}.
+     */
+    public static BufferedImage resizeToWidth(BufferedImage source, int width) {
+        int targetWidth = Math.min(width, source.getWidth());
+        int targetHeight = Math.max(1, Math.round((float) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            current = draw(current, currentWidth, currentHeight, null);
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    /**
+     * Encode as a baseline JPEG without metadata
+     * @param quality 0..1
+     */
+    public static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Read the EXIF orientation tag (1-8) of a JPEG from its leading bytes
+     * @return the orientation, or 1 when the data has none
+     */
+    static int readExifOrientation(byte[] data) {
+        if (data.length < 4 || (data[0] & 0xFF) != 0xFF || (data[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int offset = 2;
+        while (offset + 4 <= data.length && (data[offset] & 0xFF) == 0xFF) {
+            int marker = data[offset + 1] & 0xFF;
+            int length = readShort(data, offset + 2, true);
+            if (marker == 0xDA || length < 2) {
+                break;
+            }
+            // APP1 segment starting with "Exif\0\0"
+            int exif = offset + 4;
+            if (marker == 0xE1 && exif + 6 <= data.length
+                    && data[exif] == 'E' && data[exif + 1] == 'x' && data[exif + 2] == 'i' && data[exif + 3] == 'f') {
+                return readTiffOrientation(data, exif + 6, Math.min(data.length, offset + 2 + length));
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int readTiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean bigEndian = data[tiff] == 'M';
+        int ifd = tiff + readInt(data, tiff + 4, bigEndian);
+        if (ifd + 2 > end) {
+            return 1;
+        }
+        int entries = readShort(data, ifd, bigEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(data, entry, bigEndian) == 0x0112) {
+                int orientation = readShort(data, entry + 8, bigEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation <= 1) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.scale(-1, 1); transform.translate(-width, 0); }
+            case 3 -> { transform.translate(width, height); transform.rotate(Math.PI); }
+            case 4 -> { transform.scale(1, -1); transform.translate(0, -height); }
+            case 5 -> { transform.rotate(-Math.PI / 2); transform.scale(-1, 1); }
+            case 6 -> { transform.translate(height, 0); transform.rotate(Math.PI / 2); }
+            case 7 -> { transform.scale(-1, 1); transform.translate(-height, 0);
+                        transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+            case 8 -> { transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+            default -> { return image; }
+        }
+        boolean swap = orientation >= 5;
+        return draw(image, swap ? height : width, swap ? width : height, transform);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (transform != null) {
+                graphics.drawImage(source, transform, null);
+            } else {
+                // Transparent pixels (PNG) become white rather than black in the JPEG
+                graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean bigEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return bigEndian ? (b0 << 8) | b1 : (b1 << 8) | b0;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean bigEndian) {
+        return bigEndian
+                ? (readShort(data, offset, true) << 16) | readShort(data, offset + 2, true)
+                : (readShort(data, offset + 2, false) << 16) | readShort(data, offset, false);
+    }
+}
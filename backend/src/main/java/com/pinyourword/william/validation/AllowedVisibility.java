@@ -0,0 +1,27 @@
+package com.pinyourword.william.validation;
+
+import com.pinyourword.william.entity.user.User;
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The string is one of the given visibility values; null is valid (field not being changed)
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = VisibilityValidator.class)
+public @interface AllowedVisibility {
+
+    User.Visibility[] value();
+
+    String message() default "Invalid visibility value";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,69 @@
+package com.pinyourword.william.validation;
+
+import com.pinyourword.william.dto.request.RegisterRequest;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class RegistrationValidator implements ConstraintValidator<ValidRegistration, RegisterRequest> {
+
+    @Override
+    public boolean isValid(RegisterRequest request, ConstraintValidatorContext context) {
+        if (request == null) {
+            return true;
+        }
+        String emailError = emailError(request.getEmail());
+        String passwordError = passwordError(request.getPassword());
+        String usernameError = usernameError(request.getUsername());
+        String displayNameError = request.getDisplayName() != null
+                && request.getDisplayName().length() > ValidationRules.DISPLAY_NAME_MAX_LENGTH
+                ? "validation.displayNameLength" : null;
+        if (emailError == null && passwordError == null && usernameError == null && displayNameError == null) {
+            return true;
+        }
+
+        // Violations are only built for invalid requests
+        context.disableDefaultConstraintViolation();
+        addViolation(context, "email", emailError);
+        addViolation(context, "password", passwordError);
+        addViolation(context, "username", usernameError);
+        addViolation(context, "displayName", displayNameError);
+        return false;
+    }
+
+    private static String emailError(String email) {
+        if (email == null || email.isBlank()) {
+            return "validation.emailRequired";
+        }
+        return ValidationRules.isEmail(email) ? null : "validation.emailValid";
+    }
+
+    private static String passwordError(String password) {
+        if (password == null || password.isBlank()) {
+            return "validation.passwordRequired";
+        }
+        if (password.length() < ValidationRules.PASSWORD_MIN_LENGTH
+                || password.length() > ValidationRules.PASSWORD_MAX_LENGTH) {
+            return "validation.passwordLength";
+        }
+        return ValidationRules.hasPasswordMix(password) ? null : "validation.passwordFormat";
+    }
+
+    private static String usernameError(String username) {
+        if (username == null || username.isBlank()) {
+            return "validation.usernameRequired";
+        }
+        if (username.length() < ValidationRules.USERNAME_MIN_LENGTH
+                || username.length() > ValidationRules.USERNAME_MAX_LENGTH) {
+            return "validation.usernameLength";
+        }
+        return ValidationRules.isUsername(username) ? null : "validation.usernameFormat";
+    }
+
+    private static void addViolation(ConstraintValidatorContext context, String field, String message) {
+        if (message != null) {
+            context.buildConstraintViolationWithTemplate(message)
+                    .addPropertyNode(field)
+                    .addConstraintViolation();
+        }
+    }
+}
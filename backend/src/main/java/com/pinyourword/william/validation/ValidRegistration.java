@@ -0,0 +1,25 @@
+package com.pinyourword.william.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Format checks of a registration. Each invalid field gets one violation whose message is an
+ * i18n key the app translates, e.g. {@code validation.passwordFormat}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = RegistrationValidator.class)
+public @interface ValidRegistration {
+
+    String message() default "validation.invalid";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,60 @@
+package com.pinyourword.william.validation;
+
+import java.util.regex.Pattern;
+
+/**
+ * Format rules for account fields, shared by the constraint validators.
+ * <p>
+ * The email pattern is compiled once; usernames and passwords are checked with a single
+ * pass over their characters, which allocates nothing and cannot backtrack.
+ */
+public final class ValidationRules {
+
+    public static final int PASSWORD_MIN_LENGTH = 8;
+    public static final int PASSWORD_MAX_LENGTH = 100;
+    public static final int USERNAME_MIN_LENGTH = 3;
+    public static final int USERNAME_MAX_LENGTH = 50;
+    public static final int DISPLAY_NAME_MAX_LENGTH = 100;
+
+    private static final Pattern EMAIL = Pattern.compile("^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$");
+
+    private ValidationRules() {
+    }
+
+    public static boolean isEmail(String value) {
+        return EMAIL.matcher(value).matches();
+    }
+
+    /**
+     * At least one lower case letter, one upper case letter and one digit (ASCII)
+     */
+    public static boolean hasPasswordMix(String value) {
+        boolean lower = false;
+        boolean upper = false;
+        boolean digit = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                lower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (c >= '0' && c <= '9') {
+                digit = true;
+            }
+        }
+        return lower && upper && digit;
+    }
+
+    /**
+     * Only ASCII letters, digits and underscores
+     */
+    public static boolean isUsername(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+}
@@ -0,0 +1,30 @@
+package com.pinyourword.william.validation;
+
+import com.pinyourword.william.entity.user.User;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+public class VisibilityValidator implements ConstraintValidator<AllowedVisibility, String> {
+
+    // Built once per annotated field
+    private Set<User.Visibility> allowed;
+
+    @Override
+    public void initialize(AllowedVisibility annotation) {
+        allowed = EnumSet.noneOf(User.Visibility.class);
+        allowed.addAll(Arrays.asList(annotation.value()));
+    }
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        if (value == null) {
+            return true;
+        }
+        User.Visibility visibility = User.Visibility.fromValue(value);
+        return visibility != null && allowed.contains(visibility);
+    }
+}
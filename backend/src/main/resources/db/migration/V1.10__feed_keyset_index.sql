@@ -0,0 +1,9 @@
+-- ==========================================
+-- INDEX CHO PHÂN TRANG FEED THEO KEYSET
+-- ==========================================
+-- Feed được phân trang theo cặp (feed_timestamp, activity_id) để không bị trùng / sót
+-- khi nhiều activity có cùng feed_timestamp. Index cũ chỉ có (user_id, feed_timestamp).
+CREATE INDEX IF NOT EXISTS idx_user_feeds_user_ts_activity
+    ON user_feeds (user_id, feed_timestamp DESC, activity_id DESC);
+
+DROP INDEX IF EXISTS idx_user_feeds_user_timestamp;
@@ -0,0 +1,30 @@
+-- ==========================================
+-- FEED LAI: PUSH CHO USER THƯỜNG, PULL CHO NGƯỜI NỔI TIẾNG
+-- ==========================================
+-- Trigger fan-out cũ insert một dòng user_feeds cho mỗi follower ngay trong transaction
+-- tạo activity, nên user có 100k followers làm chậm cả request ghi.
+-- Giờ fan-out chạy bất đồng bộ theo từng batch ở tầng ứng dụng (FeedFanoutService),
+-- và user có nhiều followers hơn ngưỡng (app.feed.celebrity-threshold) không được fan-out:
+-- activity của họ được trộn vào feed lúc đọc.
+DROP TRIGGER IF EXISTS trigger_fanout_activity ON activities;
+DROP FUNCTION IF EXISTS fanout_activity_to_followers();
+
+-- Số followers, dùng để phân loại push / pull
+ALTER TABLE users ADD COLUMN IF NOT EXISTS followers_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users u
+SET followers_count = c.total
+FROM (
+    SELECT following_id, COUNT(*) AS total
+    FROM follow_relationships
+    GROUP BY following_id
+) c
+WHERE u.id = c.following_id;
+
+-- Duyệt followers của một user theo khoảng follower_id (fan-out theo batch)
+CREATE INDEX IF NOT EXISTS idx_follow_following_follower ON follow_relationships (following_id, follower_id);
+
+-- Đọc activity gần nhất của những user được pull
+CREATE INDEX IF NOT EXISTS idx_activities_actor_created ON activities (actor_id, created_at DESC, id DESC);
+
+COMMENT ON COLUMN users.followers_count IS 'Số followers, cập nhật khi fan-out activity';
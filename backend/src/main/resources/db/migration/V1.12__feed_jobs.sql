@@ -0,0 +1,34 @@
+-- ==========================================
+-- BACKFILL / CLEANUP FEED BẤT ĐỒNG BỘ KHI FOLLOW / UNFOLLOW
+-- ==========================================
+-- Hai trigger cũ chạy đồng bộ trên follow_relationships; cleanup quét toàn bộ lịch sử
+-- activity của người được follow trong lúc giữ lock. Giờ FollowService ghi một job vào
+-- feed_jobs trong cùng transaction (outbox), và worker xử lý job theo từng chunk.
+DROP TRIGGER IF EXISTS trigger_backfill_feed_on_follow ON follow_relationships;
+DROP FUNCTION IF EXISTS backfill_feed_on_new_follow();
+DROP TRIGGER IF EXISTS trigger_cleanup_feed_on_unfollow ON follow_relationships;
+DROP FUNCTION IF EXISTS cleanup_feed_on_unfollow();
+
+CREATE TABLE IF NOT EXISTS feed_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    job_type VARCHAR(20) NOT NULL,
+    follower_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    following_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'queued',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    run_after TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    locked_at TIMESTAMPTZ,
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT chk_feed_jobs_type CHECK (job_type IN ('backfill', 'cleanup')),
+    CONSTRAINT chk_feed_jobs_status CHECK (status IN ('queued', 'running', 'done', 'failed'))
+);
+
+-- Job sẵn sàng chạy, theo thứ tự run_after
+CREATE INDEX IF NOT EXISTS idx_feed_jobs_ready ON feed_jobs (run_after, id) WHERE status = 'queued';
+-- Job đang chạy, để thu hồi job bị treo khi worker chết giữa chừng
+CREATE INDEX IF NOT EXISTS idx_feed_jobs_running ON feed_jobs (locked_at) WHERE status = 'running';
+
+COMMENT ON TABLE feed_jobs IS 'Outbox cho việc backfill / dọn dẹp user_feeds sau khi follow / unfollow';
@@ -0,0 +1,10 @@
+-- ==========================================
+-- BỘ ĐẾM LIKE / COMMENT GHI TRỄ THEO LÔ
+-- ==========================================
+-- Hai trigger cũ chạy một UPDATE activities cho mỗi like / comment, nên một bài viral
+-- khóa dòng activities liên tục. Giờ ActivityCounterService cộng dồn delta trong bộ nhớ
+-- và ghi theo lô định kỳ; job reconcile tính lại số đếm chính xác từ bảng gốc.
+DROP TRIGGER IF EXISTS trigger_activity_likes_count ON activity_likes;
+DROP FUNCTION IF EXISTS update_activity_likes_count();
+DROP TRIGGER IF EXISTS trigger_activity_comments_count ON activity_comments;
+DROP FUNCTION IF EXISTS update_activity_comments_count();
@@ -0,0 +1,6 @@
+-- ==========================================
+-- INDEX LIKE THEO USER
+-- ==========================================
+-- Cache "đã like" nạp các like của một user trên những activity mới nhất
+-- (ORDER BY activity_id DESC); unique (activity_id, user_id) không dùng được cho truy vấn này.
+CREATE INDEX IF NOT EXISTS idx_activity_likes_user_activity ON activity_likes (user_id, activity_id DESC);
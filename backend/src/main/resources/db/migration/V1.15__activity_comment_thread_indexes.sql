@@ -0,0 +1,16 @@
+-- ==========================================
+-- INDEX CHO COMMENT THEO THREAD
+-- ==========================================
+-- Trang comment gốc đọc theo keyset (created_at DESC, id DESC) và chỉ lấy comment chưa xóa,
+-- nên index partial chỉ chứa comment gốc còn hiển thị.
+-- idx_activity_comments_activity giữ nguyên cho việc đếm comment của activity.
+CREATE INDEX IF NOT EXISTS idx_activity_comments_top_level
+    ON activity_comments (activity_id, created_at DESC, id DESC)
+    WHERE parent_comment_id IS NULL AND deleted_at IS NULL;
+
+-- Reply được đọc theo (created_at, id) trong từng comment cha;
+-- index partial bỏ qua comment gốc (parent NULL) và reply đã xóa.
+DROP INDEX IF EXISTS idx_activity_comments_parent;
+CREATE INDEX idx_activity_comments_parent
+    ON activity_comments (parent_comment_id, created_at, id)
+    WHERE parent_comment_id IS NOT NULL AND deleted_at IS NULL;
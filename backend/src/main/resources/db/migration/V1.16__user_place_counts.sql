@@ -0,0 +1,53 @@
+-- ==========================================
+-- THỐNG KÊ DU LỊCH CỦA USER CẬP NHẬT TĂNG DẦN
+-- ==========================================
+-- Mỗi dòng là số pin "visited" của một user tại một quốc gia / thành phố (multiset).
+-- Khi tạo, sửa, xóa hoặc đổi trạng thái pin, UserStatsService cộng / trừ 1 vào các dòng liên quan;
+-- số quốc gia / thành phố của user chỉ thay đổi khi một dòng lên 1 hoặc về 0,
+-- nên không cần COUNT(DISTINCT ...) trên bảng pins.
+-- Thành phố được tính theo cặp (mã quốc gia, tên thành phố) để hai thành phố trùng tên
+-- ở hai nước khác nhau không bị gộp.
+CREATE TABLE user_place_counts (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    -- 'country' hoặc 'city'
+    kind VARCHAR(10) NOT NULL,
+    -- country: mã quốc gia; city: mã quốc gia || '|' || tên thành phố
+    place_key VARCHAR(110) NOT NULL,
+    pins_count INTEGER NOT NULL,
+
+    PRIMARY KEY (user_id, kind, place_key),
+    CONSTRAINT chk_user_place_kind CHECK (kind IN ('country', 'city')),
+    CONSTRAINT chk_user_place_pins_count CHECK (pins_count > 0)
+);
+
+-- Nạp dữ liệu ban đầu từ các pin hiện có
+INSERT INTO user_place_counts (user_id, kind, place_key, pins_count)
+SELECT user_id, 'country', address_country_code, COUNT(*)
+FROM pins
+WHERE status = 'visited' AND address_country_code IS NOT NULL
+GROUP BY user_id, address_country_code;
+
+INSERT INTO user_place_counts (user_id, kind, place_key, pins_count)
+SELECT user_id, 'city', COALESCE(address_country_code, '') || '|' || address_city, COUNT(*)
+FROM pins
+WHERE status = 'visited' AND address_city IS NOT NULL
+GROUP BY user_id, COALESCE(address_country_code, '') || '|' || address_city;
+
+UPDATE users u
+SET visited_countries_count = COALESCE(s.countries, 0),
+    visited_cities_count = COALESCE(s.cities, 0),
+    total_pins_count = COALESCE(p.pins, 0)
+FROM users x
+LEFT JOIN (
+    SELECT user_id,
+           COUNT(*) FILTER (WHERE kind = 'country') AS countries,
+           COUNT(*) FILTER (WHERE kind = 'city') AS cities
+    FROM user_place_counts
+    GROUP BY user_id
+) s ON s.user_id = x.id
+LEFT JOIN (
+    SELECT user_id, COUNT(*) AS pins
+    FROM pins
+    GROUP BY user_id
+) p ON p.user_id = x.id
+WHERE u.id = x.id;
@@ -0,0 +1,16 @@
+-- ==========================================
+-- THÀNH TÍCH (MILESTONE) CỦA USER
+-- ==========================================
+-- Mỗi milestone chỉ được trao một lần cho mỗi user: unique (user_id, code) làm cho việc
+-- trao thưởng idempotent kể cả khi nhiều pin được lưu đồng thời, hoặc user xóa pin rồi
+-- đạt lại milestone. activity_id trỏ tới bài đăng thành tích trên feed.
+CREATE TABLE user_achievements (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    -- Ví dụ: 'countries_10', 'cities_25', 'pins_100'
+    code VARCHAR(50) NOT NULL,
+    activity_id BIGINT NULL REFERENCES activities(id) ON DELETE SET NULL,
+    achieved_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    UNIQUE (user_id, code)
+);
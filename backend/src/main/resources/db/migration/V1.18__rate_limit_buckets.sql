@@ -0,0 +1,11 @@
+-- ==========================================
+-- RATE LIMIT DÙNG CHUNG GIỮA CÁC INSTANCE
+-- ==========================================
+-- Chỉ dùng khi app.rate-limit.store=postgres. Mỗi bucket là một dòng: full_at_ms là thời
+-- điểm (epoch ms, theo đồng hồ của database) bucket đầy token trở lại. Dòng đã quá
+-- full_at_ms tương đương với không có dòng nên được job dọn định kỳ.
+-- UNLOGGED: không ghi WAL, mất dữ liệu khi crash cũng chỉ làm các bucket đầy lại.
+CREATE UNLOGGED TABLE rate_limit_buckets (
+    bucket_key VARCHAR(120) PRIMARY KEY,
+    full_at_ms BIGINT NOT NULL
+);
@@ -0,0 +1,7 @@
+-- ==========================================
+-- TÌM USERNAME THEO TIỀN TỐ
+-- ==========================================
+-- Khi tạo username cho tài khoản social login, tất cả username bắt đầu bằng tên gốc
+-- được đọc trong một query (username LIKE 'base%') để chọn hậu tố số nhỏ nhất còn trống.
+-- varchar_pattern_ops cho phép LIKE theo tiền tố dùng index với mọi collation.
+CREATE INDEX IF NOT EXISTS idx_users_username_prefix ON users (username varchar_pattern_ops);
@@ -0,0 +1,39 @@
+-- ==========================================
+-- REFRESH TOKEN VÀ THU HỒI ACCESS TOKEN
+-- ==========================================
+-- Access token chỉ sống vài phút; refresh token sống lâu, mỗi lần dùng được đổi sang token
+-- mới cùng family (rotation). Chỉ lưu SHA-256 của refresh token. Một token đã dùng mà
+-- bị dùng lại nghĩa là đã bị lộ: cả family bị thu hồi.
+CREATE TABLE refresh_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    token_hash CHAR(64) NOT NULL UNIQUE,
+    family_id UUID NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    used_at TIMESTAMPTZ NULL,
+    revoked_at TIMESTAMPTZ NULL
+);
+
+CREATE INDEX idx_refresh_tokens_family ON refresh_tokens (family_id);
+CREATE INDEX idx_refresh_tokens_user_active ON refresh_tokens (user_id) WHERE revoked_at IS NULL;
+CREATE INDEX idx_refresh_tokens_expires ON refresh_tokens (expires_at);
+
+-- Access token mang token_epoch của user lúc phát hành; tăng epoch (xóa tài khoản, đổi
+-- mật khẩu) làm mọi access token cũ hết hiệu lực.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_epoch INT NOT NULL DEFAULT 0;
+
+-- Danh sách thu hồi được mọi instance giữ trong bộ nhớ (đồng bộ qua LISTEN/NOTIFY).
+-- kind = 'user': subject là uuid của user, epoch là epoch nhỏ nhất còn hợp lệ;
+-- kind = 'token': subject là jti của một access token (đăng xuất).
+-- Một dòng chỉ cần giữ tới khi mọi access token nó chặn đã hết hạn (expires_at).
+CREATE TABLE token_revocations (
+    id BIGSERIAL PRIMARY KEY,
+    kind VARCHAR(10) NOT NULL CHECK (kind IN ('user', 'token')),
+    subject VARCHAR(64) NOT NULL,
+    epoch INT NOT NULL DEFAULT 0,
+    revoked_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idx_token_revocations_expires ON token_revocations (expires_at);
@@ -0,0 +1,6 @@
+-- ==========================================
+-- DỌN DẸP FEED_JOBS ĐÃ XONG
+-- ==========================================
+-- Mỗi lần follow / unfollow sinh một dòng feed_jobs; job xong (hoặc lỗi) được xóa định kỳ
+-- sau thời gian lưu giữ. Index này cho phép job dọn dẹp tìm theo trạng thái và thời điểm.
+CREATE INDEX IF NOT EXISTS idx_feed_jobs_finished ON feed_jobs (status, updated_at) WHERE status IN ('done', 'failed');
@@ -0,0 +1,25 @@
+-- ==========================================
+-- OUTBOX KIỂM TRA MILESTONE
+-- ==========================================
+-- Việc kiểm tra milestone chạy bất đồng bộ sau khi transaction của pin commit; nếu instance
+-- chết hoặc executor từ chối task thì milestone bị mất. Giờ mỗi thay đổi stats có thể vượt
+-- một milestone ghi một dòng vào achievement_checks trong cùng transaction với pin. Dòng bị
+-- xóa cùng transaction trao thưởng; job định kỳ xử lý lại những dòng còn sót.
+CREATE TABLE IF NOT EXISTS achievement_checks (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    -- Giá trị các bộ đếm trước và sau lần ghi pin
+    before_countries INTEGER NOT NULL,
+    before_cities INTEGER NOT NULL,
+    before_pins INTEGER NOT NULL,
+    after_countries INTEGER NOT NULL,
+    after_cities INTEGER NOT NULL,
+    after_pins INTEGER NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- Kiểm tra của một user, và những kiểm tra còn sót theo thời điểm tạo
+CREATE INDEX IF NOT EXISTS idx_achievement_checks_user ON achievement_checks (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_achievement_checks_created ON achievement_checks (created_at);
+
+COMMENT ON TABLE achievement_checks IS 'Outbox cho việc kiểm tra milestone sau khi stats của user thay đổi';
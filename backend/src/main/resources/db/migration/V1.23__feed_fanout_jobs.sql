@@ -0,0 +1,31 @@
+-- ==========================================
+-- OUTBOX FAN-OUT ACTIVITY
+-- ==========================================
+-- Fan-out chạy bất đồng bộ sau khi activity commit; trước đây task chỉ nằm trong hàng đợi
+-- bộ nhớ nên restart, deploy hoặc một lỗi DB làm mất activity khỏi feed của followers (và
+-- của chính actor). Giờ mỗi activity hiển thị trên feed ghi một job vào feed_fanout_jobs
+-- trong cùng transaction. Worker lấy job bằng FOR UPDATE SKIP LOCKED, thử lại với backoff,
+-- và chỉ xóa job khi mọi batch đã xong.
+CREATE TABLE IF NOT EXISTS feed_fanout_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    activity_id BIGINT NOT NULL REFERENCES activities(id) ON DELETE CASCADE,
+    actor_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'queued',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    run_after TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    locked_at TIMESTAMPTZ,
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT chk_feed_fanout_jobs_status CHECK (status IN ('queued', 'running', 'failed'))
+);
+
+-- Job sẵn sàng chạy, theo thứ tự run_after
+CREATE INDEX IF NOT EXISTS idx_feed_fanout_jobs_ready ON feed_fanout_jobs (run_after, id) WHERE status = 'queued';
+-- Job của một activity, để chạy ngay sau commit
+CREATE INDEX IF NOT EXISTS idx_feed_fanout_jobs_activity ON feed_fanout_jobs (activity_id);
+-- Job đang chạy, để thu hồi job bị treo khi worker chết giữa chừng
+CREATE INDEX IF NOT EXISTS idx_feed_fanout_jobs_running ON feed_fanout_jobs (locked_at) WHERE status = 'running';
+
+-- followers_count được cập nhật khi follow / unfollow (FollowService), fan-out chỉ đọc nó
+COMMENT ON COLUMN users.followers_count IS 'Số followers, cập nhật khi follow / unfollow';
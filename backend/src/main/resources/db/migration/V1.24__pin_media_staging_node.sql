@@ -0,0 +1,12 @@
+-- ==========================================
+-- INSTANCE GIỮ FILE TẠM CỦA ẢNH ĐANG UPLOAD
+-- ==========================================
+-- File ảnh tạm nằm trên đĩa của instance đã nhận request. Job khôi phục của một instance chỉ
+-- upload lại (hoặc đánh dấu lỗi) những dòng pending do chính nó staging; dòng của instance
+-- khác chỉ bị đánh dấu lỗi sau app.media.abandon-after-hours, khi mọi instance đã thử lại.
+ALTER TABLE pin_media ADD COLUMN IF NOT EXISTS staging_node VARCHAR(255);
+
+-- Dòng pending của một instance, theo thời điểm tạo
+CREATE INDEX IF NOT EXISTS idx_pin_media_staging_node ON pin_media (staging_node, created_at) WHERE status = 'pending';
+
+COMMENT ON COLUMN pin_media.staging_node IS 'Instance giữ file tạm của ảnh khi upload qua API; NULL với upload trực tiếp';
@@ -0,0 +1,10 @@
+-- ==========================================
+-- INDEXES CHO MAP QUERIES (VIEWPORT / CLUSTER / TILE)
+-- ==========================================
+-- Viewport trên bản đồ là hình chữ nhật phẳng theo kinh/vĩ độ, nên các query so sánh
+-- bounding box trên kiểu geometry (location::geometry && ST_MakeEnvelope(...)).
+-- GIST index trên geography không dùng được cho biểu thức cast này,
+-- nên tạo thêm expression index tương ứng.
+CREATE INDEX IF NOT EXISTS idx_pins_location_geom_gist ON pins USING GIST ((location::geometry));
+
+COMMENT ON INDEX idx_pins_location_geom_gist IS 'Spatial index for viewport bounding-box queries (&& ST_MakeEnvelope)';
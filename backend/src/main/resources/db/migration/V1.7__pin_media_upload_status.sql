@@ -0,0 +1,19 @@
+-- ==========================================
+-- TRẠNG THÁI UPLOAD CHO PIN_MEDIA
+-- ==========================================
+-- Ảnh được upload lên S3 bất đồng bộ sau khi pin đã được lưu,
+-- nên mỗi dòng pin_media cần biết ảnh đã lên storage hay chưa.
+ALTER TABLE pin_media ADD COLUMN IF NOT EXISTS status VARCHAR(20) NOT NULL DEFAULT 'ready';
+ALTER TABLE pin_media ADD COLUMN IF NOT EXISTS storage_key VARCHAR(512);
+ALTER TABLE pin_media ADD COLUMN IF NOT EXISTS content_type VARCHAR(100);
+ALTER TABLE pin_media ADD COLUMN IF NOT EXISTS size_bytes BIGINT;
+
+ALTER TABLE pin_media DROP CONSTRAINT IF EXISTS chk_pin_media_status;
+ALTER TABLE pin_media ADD CONSTRAINT chk_pin_media_status
+    CHECK (status IN ('pending', 'ready', 'failed'));
+
+-- Tìm nhanh các ảnh còn đang chờ upload (ví dụ để dọn dẹp sau khi restart)
+CREATE INDEX IF NOT EXISTS idx_pin_media_status ON pin_media (status, created_at) WHERE status <> 'ready';
+
+COMMENT ON COLUMN pin_media.status IS 'pending: đang upload lên storage, ready: đã upload xong, failed: upload lỗi';
+COMMENT ON COLUMN pin_media.storage_key IS 'Object key trên S3 bucket';
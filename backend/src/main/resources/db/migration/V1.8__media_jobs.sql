@@ -0,0 +1,80 @@
+-- ==========================================
+-- HÀNG ĐỢI XỬ LÝ ẢNH (THUMBNAIL & VARIANTS)
+-- ==========================================
+-- Sau khi ảnh gốc đã upload xong, một job được ghi vào media_jobs.
+-- Worker lấy job bằng FOR UPDATE SKIP LOCKED nên nhiều instance có thể chạy song song,
+-- và job không bị mất khi restart.
+CREATE TABLE IF NOT EXISTS media_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    media_id BIGINT NOT NULL,
+    job_type VARCHAR(30) NOT NULL DEFAULT 'variants',
+    status VARCHAR(20) NOT NULL DEFAULT 'queued',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    run_after TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    locked_at TIMESTAMPTZ,
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+
+    CONSTRAINT fk_media_jobs_media FOREIGN KEY (media_id)
+        REFERENCES pin_media(id) ON DELETE CASCADE,
+    CONSTRAINT uq_media_jobs_media_type UNIQUE (media_id, job_type),
+    CONSTRAINT chk_media_jobs_status CHECK (status IN ('queued', 'running', 'done', 'failed'))
+);
+
+-- Job sẵn sàng chạy, theo thứ tự run_after
+CREATE INDEX IF NOT EXISTS idx_media_jobs_ready ON media_jobs (run_after, id) WHERE status = 'queued';
+-- Job đang chạy, để thu hồi job bị treo khi worker chết giữa chừng
+CREATE INDEX IF NOT EXISTS idx_media_jobs_running ON media_jobs (locked_at) WHERE status = 'running';
+
+-- Các kích thước ảnh đã tạo: {"320": "https://...", "640": "https://..."}
+ALTER TABLE pin_media ADD COLUMN IF NOT EXISTS variants JSONB;
+
+COMMENT ON TABLE media_jobs IS 'Hàng đợi bền vững cho việc tạo thumbnail và các kích thước ảnh';
+COMMENT ON COLUMN pin_media.variants IS 'Map chiều rộng (px) -> URL của ảnh đã resize, không còn EXIF';
+
+-- Feed dùng thumbnail thay cho ảnh gốc, và chỉ đếm / hiển thị ảnh đã upload xong
+DROP VIEW IF EXISTS v_feed_posts;
+CREATE VIEW v_feed_posts AS
+SELECT
+    a.id AS activity_id,
+    a.activity_type,
+    a.caption,
+    a.likes_count,
+    a.comments_count,
+    a.metadata,
+    a.created_at,
+
+    -- Thông tin actor (người thực hiện)
+    u.id AS actor_id,
+    u.username AS actor_username,
+    u.display_name AS actor_display_name,
+    u.avatar_url AS actor_avatar_url,
+
+    -- Thông tin object (pin, user, badge)
+    a.object_id,
+    a.object_type,
+
+    -- Thông tin pin (nếu có)
+    p.place_name,
+    p.address_city,
+    p.address_country,
+    p.status AS pin_status,
+    p.rating,
+    p.visited_date,
+    ST_Y(p.location::geometry) AS latitude,
+    ST_X(p.location::geometry) AS longitude,
+
+    -- Số lượng ảnh của pin
+    (SELECT COUNT(*) FROM pin_media pm
+     WHERE pm.pin_id = p.id AND pm.status = 'ready') AS pin_photos_count,
+
+    -- URL ảnh đầu tiên của pin: thumbnail nếu đã tạo, nếu chưa thì ảnh gốc
+    (SELECT COALESCE(pm.thumbnail_url, pm.storage_url) FROM pin_media pm
+     WHERE pm.pin_id = p.id AND pm.status = 'ready'
+     ORDER BY upload_order ASC LIMIT 1) AS pin_first_photo_url
+
+FROM activities a
+JOIN users u ON a.actor_id = u.id
+LEFT JOIN pins p ON a.object_type = 'pin' AND a.object_id = p.id
+WHERE u.deleted_at IS NULL;
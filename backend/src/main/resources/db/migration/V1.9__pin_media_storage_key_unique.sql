@@ -0,0 +1,6 @@
+-- ==========================================
+-- UPLOAD TRỰC TIẾP LÊN S3 (PRESIGNED URL)
+-- ==========================================
+-- Client upload ảnh thẳng lên S3 rồi gọi API "complete" với object key.
+-- Mỗi object key chỉ được gắn với một dòng pin_media, nên gọi "complete" lại lần nữa không tạo bản trùng.
+CREATE UNIQUE INDEX IF NOT EXISTS uq_pin_media_storage_key ON pin_media (storage_key) WHERE storage_key IS NOT NULL;
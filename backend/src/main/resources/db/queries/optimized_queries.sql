@@ -61,6 +61,8 @@ GROUP BY u.id, u.username;
 -- =====================================================
 -- 4. REFRESH MATERIALIZED STATS (user denormalized data)
 -- =====================================================
+-- (the API keeps these incrementally, see UserStatsServiceImpl and user_place_counts;
+-- this full recount is only a reference / manual repair)
 -- Update user's visited countries/cities count
 UPDATE users u
 SET
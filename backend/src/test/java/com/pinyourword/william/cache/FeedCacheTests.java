@@ -0,0 +1,103 @@
+package com.pinyourword.william.cache;
+
+import com.pinyourword.william.dto.response.FeedItemResponse;
+import com.pinyourword.william.event.PinChangedEvent;
+import com.pinyourword.william.event.PinSnapshot;
+import com.pinyourword.william.event.UserChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FeedCacheTests {
+
+    private final Map<Long, FeedCache.CachedActivity> database = new HashMap<>();
+
+    private FeedCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FeedCache(new NoopBus(), new SimpleMeterRegistry(), 50, 100, 600, 100, 600);
+        database.put(1L, activity(10L, 100L));
+        database.put(2L, activity(10L, 200L));
+        database.put(3L, activity(20L, 300L));
+    }
+
+    @Test
+    void pinChangeEvictsOnlyThatPinsActivities() {
+        read(1L, 2L, 3L);
+
+        cache.onPinChanged(PinChangedEvent.deleted(pin(100L, 10L)));
+
+        assertEquals(Set.of(1L), read(1L, 2L, 3L));
+    }
+
+    @Test
+    void userChangeEvictsOnlyThatActorsActivities() {
+        read(1L, 2L, 3L);
+
+        cache.onUserChanged(new UserChangedEvent(10L, UUID.randomUUID(), "alice", false));
+
+        assertEquals(Set.of(1L, 2L), read(1L, 2L, 3L));
+    }
+
+    @Test
+    void activitiesCachedAgainAreEvictedAgain() {
+        read(1L);
+        cache.onPinChanged(PinChangedEvent.deleted(pin(100L, 10L)));
+        read(1L);
+
+        cache.onUserChanged(new UserChangedEvent(10L, UUID.randomUUID(), "alice", false));
+
+        assertEquals(Set.of(1L), read(1L));
+    }
+
+    /**
+     * Read activities through the cache
+     * @return the ids that had to be loaded
+     */
+    private Set<Long> read(Long... activityIds) {
+        Set<Long> loaded = new HashSet<>();
+        cache.getActivities(List.of(activityIds), missing -> {
+            Map<Long, FeedCache.CachedActivity> found = new HashMap<>();
+            missing.forEach(id -> {
+                loaded.add(id);
+                found.put(id, database.get(id));
+            });
+            return found;
+        });
+        return loaded;
+    }
+
+    private static FeedCache.CachedActivity activity(Long actorId, Long pinId) {
+        return new FeedCache.CachedActivity(actorId, pinId, FeedItemResponse.builder().build());
+    }
+
+    private static PinSnapshot pin(Long pinId, Long userId) {
+        return new PinSnapshot(pinId, userId, "visited", 0.0, 0.0, null, null);
+    }
+
+    private static final class NoopBus implements CacheInvalidationBus {
+
+        @Override
+        public void publish(String region, Collection<String> keys) {
+        }
+
+        @Override
+        public void publishInvalidateAll(String region) {
+        }
+
+        @Override
+        public void subscribe(String region, Handler handler) {
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pinyourword.william.cache;
+
+import com.pinyourword.william.dto.response.TileResponse;
+import com.pinyourword.william.event.PinChangedEvent;
+import com.pinyourword.william.event.PinSnapshot;
+import com.pinyourword.william.util.GeoUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PinTileCacheTests {
+
+    private static final TileResponse TILE = new TileResponse(new byte[]{1}, "\"1\"", false);
+
+    private PinTileCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PinTileCache(new NoopBus(), 100, 22, 4096, 64, 60_000);
+    }
+
+    @Test
+    void fillAfterEvictionOfItsTileIsDropped() {
+        PinTileCache.TileKey key = new PinTileCache.TileKey("self", 7L, 3, 2, 1);
+        long stamp = cache.fillStamp(key);
+        // A pin write commits while the tile is being read
+        cache.evictTile(3, 2, 1);
+        cache.put(key, TILE, stamp);
+        assertNull(cache.get(key));
+
+        cache.put(key, TILE, cache.fillStamp(key));
+        assertNotNull(cache.get(key));
+    }
+
+    @Test
+    void evictingOtherTilesDoesNotDropAFill() {
+        PinTileCache.TileKey key = new PinTileCache.TileKey("self", 7L, 3, 2, 1);
+        long stamp = cache.fillStamp(key);
+        cache.evictTile(3, 5, 5);
+        cache.put(key, TILE, stamp);
+        assertNotNull(cache.get(key));
+    }
+
+    @Test
+    void followEvictsOnlyTheFollowersTiles() {
+        PinTileCache.TileKey follower = new PinTileCache.TileKey("following", 7L, 3, 2, 1);
+        PinTileCache.TileKey other = new PinTileCache.TileKey("following", 8L, 3, 2, 1);
+        cache.put(follower, TILE, cache.fillStamp(follower));
+        cache.put(other, TILE, cache.fillStamp(other));
+
+        cache.evictViewer(7L);
+        assertNull(cache.get(follower));
+        assertNotNull(cache.get(other));
+    }
+
+    @Test
+    void audienceChangeKeepsOnlyOwnPinTiles() {
+        PinTileCache.TileKey own = new PinTileCache.TileKey("self", 7L, 3, 2, 1);
+        PinTileCache.TileKey shared = new PinTileCache.TileKey("public", null, 3, 2, 1);
+        PinTileCache.TileKey following = new PinTileCache.TileKey("following", 7L, 3, 2, 1);
+        cache.put(own, TILE, cache.fillStamp(own));
+        cache.put(shared, TILE, cache.fillStamp(shared));
+        cache.put(following, TILE, cache.fillStamp(following));
+
+        cache.evictOthersPins();
+        assertNotNull(cache.get(own));
+        assertNull(cache.get(shared));
+        assertNull(cache.get(following));
+    }
+
+    @Test
+    void entriesExpire() throws InterruptedException {
+        PinTileCache shortLived = new PinTileCache(new NoopBus(), 100, 22, 4096, 64, 1);
+        PinTileCache.TileKey key = new PinTileCache.TileKey("public", null, 0, 0, 0);
+        shortLived.put(key, TILE, shortLived.fillStamp(key));
+        Thread.sleep(5);
+        assertNull(shortLived.get(key));
+    }
+
+    @Test
+    void pinNearTileEdgeEvictsTheNeighbour() {
+        // A point just inside the west edge of its zoom-10 tile is drawn on the western neighbour too
+        int z = 10;
+        double longitude = -180 + 360.0 * 513 / (1 << z) + 1e-4;
+        int x = (int) GeoUtils.tileX(longitude, z);
+        int y = (int) GeoUtils.tileY(0.1, z);
+        PinTileCache.TileKey neighbour = new PinTileCache.TileKey("public", null, z, x - 1, y);
+        cache.put(neighbour, TILE, cache.fillStamp(neighbour));
+
+        cache.onPinChanged(PinChangedEvent.created(new PinSnapshot(1L, 1L, "visited", 0.1, longitude, null, null)));
+        assertNull(cache.get(neighbour));
+    }
+
+    private static final class NoopBus implements CacheInvalidationBus {
+
+        @Override
+        public void publish(String region, Collection<String> keys) {
+        }
+
+        @Override
+        public void publishInvalidateAll(String region) {
+        }
+
+        @Override
+        public void subscribe(String region, Handler handler) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.pinyourword.william.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TwoLevelCacheTests {
+
+    private final List<String> log = new ArrayList<>();
+    private final RecordingShared shared = new RecordingShared();
+    private final RecordingBus bus = new RecordingBus();
+
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TwoLevelCache("profiles", Caffeine.newBuilder().build(), shared, bus);
+    }
+
+    @Test
+    void evictionDropsSharedCopyBeforeBroadcasting() {
+        cache.put(42L, "old");
+        log.clear();
+
+        cache.evict(42L);
+
+        assertEquals("evict 42", log.get(0));
+        assertEquals("publish profiles [42]", log.get(log.size() - 1));
+        assertNull(cache.get(42L));
+        assertNull(shared.get("profiles", "42"));
+    }
+
+    @Test
+    void receivedInvalidationDropsLocalAndSharedCopies() {
+        cache.put(42L, "old");
+
+        cache.invalidate(List.of("42"));
+
+        assertNull(cache.get(42L));
+        assertNull(shared.get("profiles", "42"));
+    }
+
+    @Test
+    void clearIsBroadcast() {
+        cache.put(42L, "old");
+
+        cache.clear();
+
+        assertNull(cache.get(42L));
+        assertEquals("publish all profiles", log.get(log.size() - 1));
+    }
+
+    private final class RecordingShared implements TwoLevelCache.SharedTier {
+
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public Object get(String cacheName, String key) {
+            return values.get(cacheName + key);
+        }
+
+        @Override
+        public void put(String cacheName, String key, Object value) {
+            values.put(cacheName + key, value);
+        }
+
+        @Override
+        public void evict(String cacheName, String key) {
+            log.add("evict " + key);
+            values.remove(cacheName + key);
+        }
+
+        @Override
+        public void clear(String cacheName) {
+            log.add("clear");
+            values.clear();
+        }
+    }
+
+    private final class RecordingBus implements CacheInvalidationBus {
+
+        @Override
+        public void publish(String region, Collection<String> keys) {
+            log.add("publish " + region + " " + keys);
+        }
+
+        @Override
+        public void publishInvalidateAll(String region) {
+            log.add("publish all " + region);
+        }
+
+        @Override
+        public void subscribe(String region, Handler handler) {
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.pinyourword.william.security;
+
+import com.pinyourword.william.exception.UnauthorizedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AuthenticatedUserTests {
+
+    @Test
+    void principalOfAnAccessTokenIsReturned() {
+        AuthenticatedUser user = new AuthenticatedUser(7L, UUID.randomUUID());
+
+        assertSame(user, AuthenticatedUser.from(new UsernamePasswordAuthenticationToken(user, null, List.of())));
+    }
+
+    @Test
+    void otherPrincipalsAreUnauthorized() {
+        assertThrows(UnauthorizedException.class, () -> AuthenticatedUser.from(null));
+        assertThrows(UnauthorizedException.class, () -> AuthenticatedUser.from(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"))));
+        assertThrows(UnauthorizedException.class, () -> AuthenticatedUser.from(
+                new UsernamePasswordAuthenticationToken("alice", null, List.of())));
+    }
+}
@@ -0,0 +1,125 @@
+package com.pinyourword.william.security;
+
+import com.pinyourword.william.cache.CacheInvalidationBus;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request with a bearer token.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -B test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtAuthenticationBenchmark"
+ * </pre>
+ * {@code legacy} is the previous filter path (key and parser rebuilt, token parsed twice),
+ * {@code uncached} a cache miss with the shared parser, {@code cached} a repeated token and
+ * {@code filter} the whole filter on a repeated token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+    private static final String SECRET = "q1OmRkjnOpdlpN/y2GjkFni12rptcvN6acbqvbgos/g=";
+    private static final String ISSUER = "pinyourword-api";
+
+    private JwtTokenProvider cachingProvider;
+    private JwtTokenProvider uncachedProvider;
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private String header;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        // No database: the revocation list stays empty, as it is most of the time
+        TokenRevocationList revocationList = new TokenRevocationList(null, new NoopBus(), 900_000);
+        cachingProvider = new JwtTokenProvider(SECRET, 900_000, ISSUER, 100_000, revocationList, new SimpleMeterRegistry());
+        // A cache of size 0 keeps nothing, so every call verifies the token
+        uncachedProvider = new JwtTokenProvider(SECRET, 900_000, ISSUER, 0, revocationList, new SimpleMeterRegistry());
+        filter = new JwtAuthenticationFilter(cachingProvider);
+        token = cachingProvider.generateToken(UUID.randomUUID(), 1L, 0);
+        header = "Bearer " + token;
+        request = new MockHttpServletRequest("GET", "/v1/feed");
+        request.addHeader("Authorization", header);
+    }
+
+    @Benchmark
+    public UUID legacy() {
+        String jwt = header.substring(7);
+        Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .requireIssuer(ISSUER)
+                .requireAudience("pinyourword-app")
+                .build()
+                .parseClaimsJws(jwt);
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .requireIssuer(ISSUER)
+                .requireAudience("pinyourword-app")
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+        return UUID.fromString(claims.getSubject());
+    }
+
+    @Benchmark
+    public AuthenticatedUser uncached() {
+        return uncachedProvider.authenticate(header);
+    }
+
+    @Benchmark
+    public AuthenticatedUser cached() {
+        return cachingProvider.authenticate(header);
+    }
+
+    @Benchmark
+    public Object filter() throws ServletException, IOException {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    private static final class NoopBus implements CacheInvalidationBus {
+
+        @Override
+        public void publish(String region, Collection<String> keys) {
+        }
+
+        @Override
+        public void publishInvalidateAll(String region) {
+        }
+
+        @Override
+        public void subscribe(String region, Handler handler) {
+        }
+    }
+}
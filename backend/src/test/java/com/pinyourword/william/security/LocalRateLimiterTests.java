@@ -0,0 +1,80 @@
+package com.pinyourword.william.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalRateLimiterTests {
+
+    // 3 tokens, one more every 10 seconds
+    private static final RateLimiter.Limit LIMIT = new RateLimiter.Limit(3, Duration.ofSeconds(10));
+
+    private long now = TimeUnit.HOURS.toNanos(1);
+    private final LocalRateLimiter limiter = new LocalRateLimiter(4, () -> now);
+
+    @Test
+    void burstOfCapacityThenOnePerInterval() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("ip", LIMIT));
+        }
+        assertEquals(10, limiter.tryAcquire("ip", LIMIT));
+
+        for (int round = 0; round < 3; round++) {
+            now += TimeUnit.SECONDS.toNanos(10);
+            assertEquals(0, limiter.tryAcquire("ip", LIMIT));
+            assertEquals(10, limiter.tryAcquire("ip", LIMIT));
+        }
+    }
+
+    @Test
+    void refusedCallsDoNotTakeTokens() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("ip", LIMIT);
+        }
+        now += TimeUnit.SECONDS.toNanos(10);
+
+        assertEquals(0, limiter.tryAcquire("ip", LIMIT));
+    }
+
+    @Test
+    void retryAfterIsRoundedUpToWholeSeconds() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("ip", LIMIT);
+        }
+
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        assertEquals(10, limiter.tryAcquire("ip", LIMIT));
+
+        now += TimeUnit.MILLISECONDS.toNanos(9_499);
+        assertEquals(1, limiter.tryAcquire("ip", LIMIT));
+
+        now += TimeUnit.MILLISECONDS.toNanos(1);
+        assertEquals(0, limiter.tryAcquire("ip", LIMIT));
+    }
+
+    @Test
+    void bucketsAreIndependentPerKey() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("a", LIMIT);
+        }
+
+        assertEquals(10, limiter.tryAcquire("a", LIMIT));
+        assertEquals(0, limiter.tryAcquire("b", LIMIT));
+    }
+
+    @Test
+    void fullBucketsAreSweptWithoutLosingState() {
+        limiter.tryAcquire("ip", LIMIT);
+        now += TimeUnit.SECONDS.toNanos(10);
+        limiter.evictFull();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("ip", LIMIT));
+        }
+        limiter.evictFull();
+        assertEquals(10, limiter.tryAcquire("ip", LIMIT));
+    }
+}
@@ -0,0 +1,107 @@
+package com.pinyourword.william.security;
+
+import com.pinyourword.william.cache.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TokenRevocationListTests {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final RecordingBus bus = new RecordingBus();
+
+    private TokenRevocationList revocations;
+
+    @BeforeEach
+    void setUp() {
+        revocations = new TokenRevocationList(jdbcTemplate, bus, 60_000);
+    }
+
+    @Test
+    void userRevocationRefusesOnlyOlderEpochsOfThatUser() {
+        revocations.revokeUser(alice, 3);
+
+        assertTrue(revocations.isRevoked(alice, 2, null));
+        assertFalse(revocations.isRevoked(alice, 3, null));
+        assertFalse(revocations.isRevoked(alice, 4, "jti"));
+        assertFalse(revocations.isRevoked(bob, 0, null));
+        assertEquals(1, bus.published.size());
+    }
+
+    @Test
+    void tokenRevocationRefusesOnlyThatTokenId() {
+        revocations.revokeToken("jti-1", System.currentTimeMillis() + 60_000);
+
+        assertTrue(revocations.isRevoked(alice, 0, "jti-1"));
+        assertTrue(revocations.isRevoked(bob, 9, "jti-1"));
+        assertFalse(revocations.isRevoked(alice, 0, "jti-2"));
+        assertFalse(revocations.isRevoked(alice, 0, null));
+    }
+
+    @Test
+    void expiredTokenIsNotRecorded() {
+        revocations.revokeToken("jti-1", System.currentTimeMillis() - 1);
+
+        assertFalse(revocations.isRevoked(alice, 0, "jti-1"));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        assertTrue(bus.published.isEmpty());
+    }
+
+    @Test
+    void epochsFromOtherInstancesOnlyRise() {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        bus.handler.invalidate(List.of("user:" + alice + ":5:" + expiresAt));
+        bus.handler.invalidate(List.of("user:" + alice + ":3:" + expiresAt, "token:jti-1:0:" + expiresAt));
+
+        assertTrue(revocations.isRevoked(alice, 4, null));
+        assertFalse(revocations.isRevoked(alice, 5, null));
+        assertTrue(revocations.isRevoked(bob, 0, "jti-1"));
+    }
+
+    @Test
+    void expiredEntriesArePurged() {
+        long past = System.currentTimeMillis() - 1;
+        bus.handler.invalidate(List.of("user:" + alice + ":5:" + past, "token:jti-1:0:" + past));
+
+        revocations.purgeExpired();
+
+        assertFalse(revocations.isRevoked(alice, 0, null));
+        assertFalse(revocations.isRevoked(alice, 0, "jti-1"));
+    }
+
+    private static final class RecordingBus implements CacheInvalidationBus {
+
+        private final List<String> published = new ArrayList<>();
+        private Handler handler;
+
+        @Override
+        public void publish(String region, Collection<String> keys) {
+            published.addAll(keys);
+        }
+
+        @Override
+        public void publishInvalidateAll(String region) {
+        }
+
+        @Override
+        public void subscribe(String region, Handler handler) {
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.entity.RefreshToken;
+import com.pinyourword.william.exception.UnauthorizedException;
+import com.pinyourword.william.repository.RefreshTokenRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.security.TokenRevocationList;
+import com.pinyourword.william.service.IAuthTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthTokenServiceImplTests {
+
+    private static final long USER_ID = 7L;
+
+    private final RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+    private final List<RefreshToken> saved = new ArrayList<>();
+
+    private AuthTokenServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            saved.add(token);
+            return token;
+        });
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString())).thenAnswer(invocation ->
+                saved.stream().filter(token -> token.getTokenHash().equals(invocation.getArgument(0))).findFirst());
+        service = new AuthTokenServiceImpl(refreshTokenRepository, mock(UserRepository.class),
+                mock(TokenRevocationList.class), 60_000);
+    }
+
+    @Test
+    void rotationUsesTheTokenAndIssuesTheNextOfItsFamily() {
+        String first = service.issueRefreshToken(USER_ID);
+
+        IAuthTokenService.Rotation rotation = service.rotate(first);
+
+        assertEquals(USER_ID, rotation.userId());
+        assertNotEquals(first, rotation.refreshToken());
+        assertEquals(2, saved.size());
+        assertNotNull(saved.get(0).getUsedAt());
+        assertEquals(saved.get(0).getFamilyId(), saved.get(1).getFamilyId());
+        assertNotEquals(saved.get(0).getTokenHash(), saved.get(1).getTokenHash());
+        // The next token rotates in turn
+        assertEquals(USER_ID, service.rotate(rotation.refreshToken()).userId());
+    }
+
+    @Test
+    void reusedTokenRevokesItsFamily() {
+        String first = service.issueRefreshToken(USER_ID);
+        service.rotate(first);
+
+        assertThrows(UnauthorizedException.class, () -> service.rotate(first));
+
+        verify(refreshTokenRepository).revokeFamily(saved.get(0).getFamilyId());
+        assertEquals(2, saved.size());
+    }
+
+    @Test
+    void revokedOrExpiredTokensAreRefusedWithoutRotating() {
+        String revoked = service.issueRefreshToken(USER_ID);
+        saved.get(0).setRevokedAt(Instant.now());
+        String expired = service.issueRefreshToken(USER_ID);
+        saved.get(1).setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThrows(UnauthorizedException.class, () -> service.rotate(revoked));
+        assertThrows(UnauthorizedException.class, () -> service.rotate(expired));
+        assertThrows(UnauthorizedException.class, () -> service.rotate("unknown"));
+
+        assertEquals(2, saved.size());
+        verify(refreshTokenRepository, never()).revokeFamily(any());
+    }
+
+    @Test
+    void familiesOfSeparateLoginsAreIndependent() {
+        String first = service.issueRefreshToken(USER_ID);
+        String second = service.issueRefreshToken(USER_ID);
+        service.rotate(first);
+
+        assertThrows(UnauthorizedException.class, () -> service.rotate(first));
+
+        assertNotEquals(saved.get(0).getFamilyId(), saved.get(1).getFamilyId());
+        assertEquals(USER_ID, service.rotate(second).userId());
+    }
+}
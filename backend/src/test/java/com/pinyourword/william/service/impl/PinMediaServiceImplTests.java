@@ -0,0 +1,362 @@
+package com.pinyourword.william.service.impl;
+
+import com.pinyourword.william.dto.request.MediaUploadCompleteRequest;
+import com.pinyourword.william.dto.response.PinMediaResponse;
+import com.pinyourword.william.entity.Pin;
+import com.pinyourword.william.entity.PinMedia;
+import com.pinyourword.william.event.PinMediaStagedEvent;
+import com.pinyourword.william.exception.BadRequestException;
+import com.pinyourword.william.repository.PinMediaRepository;
+import com.pinyourword.william.repository.PinRepository;
+import com.pinyourword.william.repository.UserRepository;
+import com.pinyourword.william.security.AuthenticatedUser;
+import com.pinyourword.william.service.IMediaJobService;
+import com.pinyourword.william.service.IMediaStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PinMediaServiceImplTests {
+
+    private static final String NODE = "node-a";
+
+    @TempDir
+    Path stagingDir;
+
+    private final PinMediaRepository pinMediaRepository = mock(PinMediaRepository.class);
+    private final PinRepository pinRepository = mock(PinRepository.class);
+    private final IMediaJobService mediaJobService = mock(IMediaJobService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final FakeStorage storage = new FakeStorage();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private PinMediaServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService(storage);
+        when(pinMediaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<PinMedia> saved = invocation.getArgument(0);
+            long id = 1;
+            for (PinMedia media : saved) {
+                media.setId(id++);
+            }
+            return saved;
+        });
+    }
+
+    @Test
+    void stagedUploadIsMarkedReadyAfterCommit() {
+        PinMediaStagedEvent.StagedUpload upload = stageOne();
+        assertTrue(Files.exists(upload.file()));
+        assertTrue(storage.pending.isEmpty(), "nothing is uploaded before commit");
+
+        service.onMediaStaged(new PinMediaStagedEvent(List.of(upload)));
+        verify(pinMediaRepository, never()).updateStatus(any(), any());
+
+        storage.pending.get(upload.storageKey()).complete(null);
+        assertEquals(List.of(upload.storageKey()), storage.stored);
+        verify(pinMediaRepository).updateStatus(upload.mediaId(), "ready");
+        verify(mediaJobService).enqueueVariants(upload.mediaId());
+        verify(transactionManager).commit(any());
+        assertFalse(Files.exists(upload.file()));
+    }
+
+    @Test
+    void failedUploadStaysPendingWithItsStagedFile() {
+        PinMediaStagedEvent.StagedUpload upload = stageOne();
+
+        service.onMediaStaged(new PinMediaStagedEvent(List.of(upload)));
+        storage.pending.get(upload.storageKey()).completeExceptionally(new IOException("storage down"));
+
+        verify(pinMediaRepository, never()).updateStatus(any(), any());
+        verify(mediaJobService, never()).enqueueVariants(any());
+        assertTrue(Files.exists(upload.file()));
+    }
+
+    @Test
+    void stagedFileIsKeptWhenTheReadyTransactionFails() {
+        PinMediaStagedEvent.StagedUpload upload = stageOne();
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(mediaJobService).enqueueVariants(upload.mediaId());
+
+        service.onMediaStaged(new PinMediaStagedEvent(List.of(upload)));
+        storage.pending.get(upload.storageKey()).complete(null);
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertTrue(Files.exists(upload.file()));
+    }
+
+    @Test
+    void rollbackDeletesStagedFiles() {
+        PinMediaStagedEvent.StagedUpload upload = stageOne();
+
+        service.onMediaRolledBack(new PinMediaStagedEvent(List.of(upload)));
+
+        assertFalse(Files.exists(upload.file()));
+        assertTrue(storage.pending.isEmpty());
+    }
+
+    @Test
+    void recoveryRestartsStalePendingUploadFromStagedFile() throws IOException {
+        PinMedia media = pendingMedia(41L);
+        Path file = Files.write(stagingDir.resolve(media.getUuid() + ".jpg"), new byte[]{1});
+        when(pinMediaRepository.findPendingCreatedBefore(eq(NODE), any(LocalDateTime.class), anyInt())).thenReturn(List.of(media));
+
+        service.recoverStaged();
+        storage.pending.get(media.getStorageKey()).complete(null);
+
+        verify(pinMediaRepository).updateStatus(41L, "ready");
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void recoveryFailsStalePendingUploadWithoutStagedFile() {
+        PinMedia media = pendingMedia(42L);
+        when(pinMediaRepository.findPendingCreatedBefore(eq(NODE), any(LocalDateTime.class), anyInt())).thenReturn(List.of(media));
+
+        service.recoverStaged();
+
+        verify(pinMediaRepository).updateStatus(42L, "failed");
+        assertTrue(storage.pending.isEmpty());
+    }
+
+    @Test
+    void recoveryLeavesOtherInstancesRowsUntilAbandoned() {
+        when(pinMediaRepository.findPendingCreatedBefore(eq(NODE), any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+        ArgumentCaptor<LocalDateTime> abandonCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        service.recoverStaged();
+
+        verify(pinMediaRepository).failPendingCreatedBefore(abandonCutoff.capture());
+        assertTrue(abandonCutoff.getValue().isBefore(LocalDateTime.now().minusHours(23)));
+        verify(pinMediaRepository, never()).updateStatus(any(), any());
+    }
+
+    @Test
+    void recoveryDeletesOnlyOldFilesNoRowWaitsFor() throws IOException {
+        UUID orphan = UUID.randomUUID();
+        UUID waiting = UUID.randomUUID();
+        Path orphanFile = staleFile(orphan + ".jpg");
+        Path waitingFile = staleFile(waiting + ".png");
+        Path freshFile = Files.write(stagingDir.resolve(UUID.randomUUID() + ".jpg"), new byte[]{1});
+        when(pinMediaRepository.findPendingCreatedBefore(eq(NODE), any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+        when(pinMediaRepository.findPendingUuids(any())).thenReturn(Set.of(waiting));
+
+        service.recoverStaged();
+
+        assertFalse(Files.exists(orphanFile));
+        assertTrue(Files.exists(waitingFile));
+        assertTrue(Files.exists(freshFile));
+    }
+
+    @Test
+    void completionRacingTheSameKeysReturnsTheRecordedMedia() {
+        InMemoryMediaStorageService memory = new InMemoryMediaStorageService();
+        Pin pin = ownPin();
+        String key = uploadDirect(memory, pin);
+        PinMedia recorded = readyMedia(9L, key, 0);
+        when(pinMediaRepository.findAllByPinIdOrdered(pin.getId())).thenReturn(List.of(), List.of(recorded));
+        when(pinMediaRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("uq_pin_media_storage_key"));
+
+        List<PinMediaResponse> media = newService(memory)
+                .completeUploads(caller(), pin.getUuid(), new MediaUploadCompleteRequest(List.of(key)));
+
+        assertEquals(List.of(recorded.getUuid()), media.stream().map(PinMediaResponse::getUuid).toList());
+        verify(pinMediaRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void completionOverlappingAnotherSavesOnlyTheKeysItDidNotRecord() {
+        InMemoryMediaStorageService memory = new InMemoryMediaStorageService();
+        Pin pin = ownPin();
+        String first = uploadDirect(memory, pin);
+        String second = uploadDirect(memory, pin);
+        when(pinMediaRepository.findAllByPinIdOrdered(pin.getId()))
+                .thenReturn(List.of(), List.of(readyMedia(9L, first, 0)));
+        List<List<String>> saved = new ArrayList<>();
+        when(pinMediaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<PinMedia> batch = invocation.getArgument(0);
+            saved.add(batch.stream().map(PinMedia::getStorageKey).toList());
+            if (saved.size() == 1) {
+                throw new DataIntegrityViolationException("uq_pin_media_storage_key");
+            }
+            assertEquals((short) 1, batch.get(0).getUploadOrder());
+            return batch;
+        });
+
+        newService(memory).completeUploads(caller(), pin.getUuid(), new MediaUploadCompleteRequest(List.of(first, second)));
+
+        assertEquals(List.of(List.of(first, second), List.of(second)), saved);
+    }
+
+    @Test
+    void completionOfAKeyNeverUploadedIsRejected() {
+        Pin pin = ownPin();
+        when(pinMediaRepository.findAllByPinIdOrdered(pin.getId())).thenReturn(List.of());
+        String key = "pins/" + pin.getUuid() + "/" + UUID.randomUUID() + ".jpg";
+
+        assertThrows(BadRequestException.class, () -> newService(new InMemoryMediaStorageService())
+                .completeUploads(caller(), pin.getUuid(), new MediaUploadCompleteRequest(List.of(key))));
+        verify(pinMediaRepository, never()).saveAll(anyList());
+    }
+
+    private PinMediaServiceImpl newService(IMediaStorageService storageService) {
+        PinMediaServiceImpl created = new PinMediaServiceImpl(pinMediaRepository, pinRepository, mock(UserRepository.class),
+                storageService, mediaJobService, eventPublisher, Runnable::run, transactionManager);
+        ReflectionTestUtils.setField(created, "stagingDir", stagingDir.toString());
+        ReflectionTestUtils.setField(created, "maxImagesPerPin", 10);
+        ReflectionTestUtils.setField(created, "maxUploadBytes", 1024L);
+        ReflectionTestUtils.setField(created, "staleAfterMinutes", 30L);
+        ReflectionTestUtils.setField(created, "recoveryBatchSize", 200);
+        ReflectionTestUtils.setField(created, "abandonAfterHours", 24L);
+        ReflectionTestUtils.setField(created, "nodeId", NODE);
+        return created;
+    }
+
+    private Pin ownPin() {
+        Pin pin = Pin.builder().id(7L).uuid(UUID.randomUUID()).userId(3L).build();
+        when(pinRepository.findByUuid(pin.getUuid())).thenReturn(Optional.of(pin));
+        return pin;
+    }
+
+    private static Authentication caller() {
+        return new UsernamePasswordAuthenticationToken(new AuthenticatedUser(3L, UUID.randomUUID()), null, List.of());
+    }
+
+    private static String uploadDirect(InMemoryMediaStorageService memory, Pin pin) {
+        String key = "pins/" + pin.getUuid() + "/" + UUID.randomUUID() + ".jpg";
+        memory.upload(key, new byte[]{1, 2, 3}, "image/jpeg").join();
+        return key;
+    }
+
+    private static PinMedia readyMedia(Long id, String key, int uploadOrder) {
+        return PinMedia.builder()
+                .id(id)
+                .uuid(UUID.randomUUID())
+                .storageKey(key)
+                .uploadOrder((short) uploadOrder)
+                .status("ready")
+                .build();
+    }
+
+    private PinMediaStagedEvent.StagedUpload stageOne() {
+        Pin pin = Pin.builder().id(7L).uuid(UUID.randomUUID()).userId(3L).build();
+        service.stageUploads(pin, List.of(new MockMultipartFile("images", "a.jpg", "image/jpeg", new byte[]{1, 2, 3})));
+
+        ArgumentCaptor<PinMediaStagedEvent> event = ArgumentCaptor.forClass(PinMediaStagedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        List<PinMedia> saved = savedMedia();
+        assertEquals("pending", saved.get(0).getStatus());
+        assertEquals(NODE, saved.get(0).getStagingNode());
+        return event.getValue().uploads().get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PinMedia> savedMedia() {
+        ArgumentCaptor<List<PinMedia>> saved = ArgumentCaptor.forClass(List.class);
+        verify(pinMediaRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private static PinMedia pendingMedia(Long id) {
+        UUID uuid = UUID.randomUUID();
+        return PinMedia.builder()
+                .id(id)
+                .uuid(uuid)
+                .storageKey("pins/" + UUID.randomUUID() + "/" + uuid + ".jpg")
+                .contentType("image/jpeg")
+                .status("pending")
+                .build();
+    }
+
+    private Path staleFile(String name) throws IOException {
+        Path file = Files.write(stagingDir.resolve(name), new byte[]{1});
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        return file;
+    }
+
+    /**
+     * Storage whose uploads complete only when a test completes their future
+     */
+    private static final class FakeStorage implements IMediaStorageService {
+
+        private final Map<String, CompletableFuture<Void>> pending = new HashMap<>();
+        private final List<String> stored = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Void> upload(String key, Path file, String contentType) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            pending.put(key, future);
+            return future.thenRun(() -> stored.add(key));
+        }
+
+        @Override
+        public CompletableFuture<Void> upload(String key, byte[] data, String contentType) {
+            stored.add(key);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<InputStream> openStream(String key) {
+            return CompletableFuture.failedFuture(new UnsupportedOperationException());
+        }
+
+        @Override
+        public CompletableFuture<ObjectInfo> head(String key) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public PresignedUpload presignPut(String key, String contentType, long sizeBytes, Duration ttl) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String publicUrl(String key) {
+            return "https://cdn.example/" + key;
+        }
+    }
+}
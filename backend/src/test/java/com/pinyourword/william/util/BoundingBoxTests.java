@@ -0,0 +1,58 @@
+package com.pinyourword.william.util;
+
+import com.pinyourword.william.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundingBoxTests {
+
+    @Test
+    void ordinaryViewportIsOneEnvelope() {
+        BoundingBox box = new BoundingBox(20.5, 105.0, 21.5, 106.5);
+        assertFalse(box.crossesAntimeridian());
+        assertSame(box, box.westPart());
+        assertSame(box, box.eastPart());
+        assertTrue(box.contains(21.0285, 105.8542));
+        assertFalse(box.contains(21.0285, 107.0));
+        assertFalse(box.contains(22.0, 105.8542));
+    }
+
+    @Test
+    void viewportAcrossAntimeridianSplitsAt180() {
+        // Fiji: west edge 177E, east edge 178W
+        BoundingBox box = new BoundingBox(-19.0, 177.0, -16.0, -178.0);
+        assertTrue(box.crossesAntimeridian());
+
+        BoundingBox west = box.westPart();
+        assertEquals(177.0, west.getMinLon());
+        assertEquals(180.0, west.getMaxLon());
+        BoundingBox east = box.eastPart();
+        assertEquals(-180.0, east.getMinLon());
+        assertEquals(-178.0, east.getMaxLon());
+        assertEquals(box.getMinLat(), west.getMinLat());
+        assertEquals(box.getMaxLat(), east.getMaxLat());
+
+        assertTrue(box.contains(-17.7, 178.4));
+        assertTrue(box.contains(-17.7, -179.5));
+        assertFalse(box.contains(-17.7, 0.0));
+    }
+
+    @Test
+    void outOfRangeCoordinatesAreBadRequest() {
+        assertThrows(BadRequestException.class, () -> new BoundingBox(-91, 0, 10, 10));
+        assertThrows(BadRequestException.class, () -> new BoundingBox(0, 0, 90.5, 10));
+        assertThrows(BadRequestException.class, () -> new BoundingBox(0, -181, 10, 10));
+        assertThrows(BadRequestException.class, () -> new BoundingBox(0, 0, 10, 180.5));
+        assertThrows(BadRequestException.class, () -> new BoundingBox(0, Double.NaN, 10, 10));
+    }
+
+    @Test
+    void invertedLatitudesAreBadRequest() {
+        assertThrows(BadRequestException.class, () -> new BoundingBox(10, 0, 5, 10));
+    }
+}
@@ -0,0 +1,68 @@
+package com.pinyourword.william.util;
+
+import com.pinyourword.william.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorCodecTests {
+
+    @Test
+    void instantRoundTripsAtMicrosecondPrecision() {
+        Instant timestamp = Instant.parse("2024-05-17T08:30:15.123456Z");
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode(timestamp, 42L));
+        assertEquals(timestamp, cursor.timestamp());
+        assertEquals(42L, cursor.id());
+    }
+
+    @Test
+    void localDateTimeRoundTripsUnchanged() {
+        LocalDateTime timestamp = LocalDateTime.of(2023, 12, 31, 23, 59, 59, 999_999_000);
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode(timestamp, Long.MAX_VALUE));
+        assertEquals(timestamp, cursor.localTimestamp());
+        assertEquals(Long.MAX_VALUE, cursor.id());
+    }
+
+    @Test
+    void timestampsBeforeEpochRoundTrip() {
+        Instant timestamp = Instant.parse("1969-07-20T20:17:40Z");
+        assertEquals(timestamp, CursorCodec.decode(CursorCodec.encode(timestamp, 1L)).timestamp());
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = CursorCodec.encode(Instant.parse("2024-01-01T00:00:00Z"), -1L);
+        assertEquals(-1, cursor.indexOf('+'));
+        assertEquals(-1, cursor.indexOf('/'));
+        assertEquals(-1, cursor.indexOf('='));
+    }
+
+    @Test
+    void missingCursorMeansFirstPage() {
+        assertNull(CursorCodec.decode(null));
+        assertNull(CursorCodec.decode(""));
+        assertNull(CursorCodec.decode("   "));
+    }
+
+    @Test
+    void malformedBase64IsBadRequest() {
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode("not a cursor!"));
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode("a"));
+    }
+
+    @Test
+    void wrongLengthIsBadRequest() {
+        String tooShort = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(1L).array());
+        String tooLong = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[Long.BYTES * 2 + 1]);
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode(tooShort));
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode(tooLong));
+    }
+}
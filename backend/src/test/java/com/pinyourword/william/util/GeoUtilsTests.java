@@ -0,0 +1,31 @@
+package com.pinyourword.william.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeoUtilsTests {
+
+    @Test
+    void haversineMatchesKnownDistance() {
+        // Hanoi -> Ho Chi Minh City, ~1,140 km great-circle
+        double meters = GeoUtils.haversineMeters(21.0285, 105.8542, 10.8231, 106.6297);
+        assertEquals(1_137_000, meters, 5_000);
+    }
+
+    @Test
+    void haversineIsZeroForSamePoint() {
+        assertEquals(0.0, GeoUtils.haversineMeters(21.0285, 105.8542, 21.0285, 105.8542), 1e-6);
+    }
+
+    @Test
+    void tileCoordinatesFollowSlippyMapScheme() {
+        assertEquals(0, (int) GeoUtils.tileX(-180, 1));
+        assertEquals(1, (int) GeoUtils.tileX(179.9, 1));
+        assertEquals(0, (int) GeoUtils.tileY(45, 1));
+        assertEquals(1, (int) GeoUtils.tileY(-45, 1));
+        // Hanoi at zoom 10
+        assertEquals(813, (int) GeoUtils.tileX(105.8542, 10));
+        assertEquals(450, (int) GeoUtils.tileY(21.0285, 10));
+    }
+}
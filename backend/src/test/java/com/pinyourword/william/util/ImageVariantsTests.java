@@ -0,0 +1,60 @@
+package com.pinyourword.william.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageVariantsTests {
+
+    @Test
+    void decodesFromStream() throws IOException {
+        byte[] jpeg = ImageVariants.encodeJpeg(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), 0.8f);
+
+        BufferedImage image = ImageVariants.decode(new ByteArrayInputStream(jpeg), 1_000);
+
+        assertEquals(40, image.getWidth());
+        assertEquals(20, image.getHeight());
+    }
+
+    @Test
+    void refusesImagesOverThePixelLimit() throws IOException {
+        byte[] jpeg = ImageVariants.encodeJpeg(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), 0.8f);
+
+        assertThrows(IOException.class, () -> ImageVariants.decode(new ByteArrayInputStream(jpeg), 799));
+    }
+
+    @Test
+    void refusesUnknownFormats() {
+        assertThrows(IOException.class,
+                () -> ImageVariants.decode(new ByteArrayInputStream(new byte[]{0, 0, 0, 24, 'f', 't', 'y', 'p'}), 1_000));
+    }
+
+    @Test
+    void knowsWhichContentTypesHaveAReader() {
+        assertTrue(ImageVariants.canDecode("image/jpeg"));
+        assertTrue(ImageVariants.canDecode("image/png"));
+        assertFalse(ImageVariants.canDecode("image/heic"));
+        assertFalse(ImageVariants.canDecode(null));
+    }
+
+    @Test
+    void readsExifOrientationFromTruncatedHeader() {
+        // SOI, APP1 "Exif\0\0", little-endian TIFF with one IFD entry: orientation 6
+        byte[] header = {
+                (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1, 0x00, 0x22,
+                'E', 'x', 'i', 'f', 0, 0,
+                'I', 'I', 0x2A, 0x00, 0x08, 0x00, 0x00, 0x00,
+                0x01, 0x00,
+                0x12, 0x01, 0x03, 0x00, 0x01, 0x00, 0x00, 0x00, 0x06, 0x00, 0x00, 0x00};
+
+        assertEquals(6, ImageVariants.readExifOrientation(header));
+        assertEquals(1, ImageVariants.readExifOrientation(new byte[]{(byte) 0xFF, (byte) 0xD8}));
+    }
+}
@@ -0,0 +1,99 @@
+package com.pinyourword.william.validation;
+
+import com.pinyourword.william.dto.request.RegisterRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cost of validating a well-formed registration.
+ * <p>
+ * Run with (add {@code -prof gc} for bytes allocated per call):
+ * <pre>
+ * mvn -B test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main RegisterValidationBenchmark"
+ * </pre>
+ * {@code legacyRegister} is the previous check (patterns compiled per call, errors in a new
+ * map), {@code register} the {@code @ValidRegistration} constraint through the validator
+ * Spring MVC uses for {@code @Valid}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegisterValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private RegisterRequest register;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        register = RegisterRequest.builder()
+                .email("traveller.anna@example.com")
+                .password("Wanderlust2024")
+                .username("anna_travels")
+                .displayName("Anna")
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Map<String, String> legacyRegister() {
+        Map<String, String> errors = new HashMap<>();
+        if (register.getEmail() == null || register.getEmail().isBlank()) {
+            errors.put("email", "validation.emailRequired");
+        } else if (!Pattern.compile("^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$").matcher(register.getEmail()).matches()) {
+            errors.put("email", "validation.emailValid");
+        }
+        if (register.getPassword() == null || register.getPassword().isBlank()) {
+            errors.put("password", "validation.passwordRequired");
+        } else if (register.getPassword().length() < 8 || register.getPassword().length() > 100) {
+            errors.put("password", "validation.passwordLength");
+        } else if (!Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).*$").matcher(register.getPassword()).matches()) {
+            errors.put("password", "validation.passwordFormat");
+        }
+        if (register.getUsername() == null || register.getUsername().isBlank()) {
+            errors.put("username", "validation.usernameRequired");
+        } else if (register.getUsername().length() < 3 || register.getUsername().length() > 50) {
+            errors.put("username", "validation.usernameLength");
+        } else if (!Pattern.compile("^[a-zA-Z0-9_]+$").matcher(register.getUsername()).matches()) {
+            errors.put("username", "validation.usernameFormat");
+        }
+        if (register.getDisplayName() != null && register.getDisplayName().length() > 100) {
+            errors.put("displayName", "validation.displayNameLength");
+        }
+        return errors;
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<RegisterRequest>> register() {
+        return validator.validate(register);
+    }
+}